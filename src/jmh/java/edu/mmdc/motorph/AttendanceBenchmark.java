@@ -0,0 +1,59 @@
+package edu.mmdc.motorph;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ===== Benchmarks =====
+/*
+ * AttendanceBenchmark: Weekly hours aggregation over the whole attendance log.
+ * Attendance rows = employeeCount x weekdays in attendanceDays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttendanceBenchmark {
+    @Param({ "100", "1000" })
+    public int employeeCount;
+
+    @Param({ "30", "365" })
+    public int attendanceDays;
+
+    private BenchmarkFixtures.InMemoryDataSource dataSource;
+    private AttendanceProcessor processor;
+    private List<List<Object>> rows;
+
+    @Setup
+    public void setUp() {
+        dataSource = new BenchmarkFixtures.InMemoryDataSource(employeeCount, attendanceDays);
+        processor = new AttendanceProcessor(dataSource);
+        rows = dataSource.fetchAttendanceData();
+    }
+
+    // Aggregation of rows that are already in memory
+    @Benchmark
+    public Map<Integer, Double> calculateHoursWorked() {
+        return processor.calculateHoursWorked(rows);
+    }
+
+    // Chunked streaming pipeline (fetcher thread + aggregation)
+    @Benchmark
+    public Map<Integer, Double> calculateHoursWorkedStreaming() {
+        return processor.calculateHoursWorked(AttendanceProcessor.DEFAULT_CHUNK_ROWS);
+    }
+}
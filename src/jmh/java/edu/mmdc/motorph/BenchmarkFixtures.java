@@ -0,0 +1,54 @@
+package edu.mmdc.motorph;
+
+import java.util.List;
+
+// ===== Benchmarks =====
+/*
+ * BenchmarkFixtures: Deterministic synthetic sheet data for the JMH benchmarks,
+ * produced by WorkforceGenerator so benchmarks and scale tests share one load profile.
+ */
+final class BenchmarkFixtures {
+    private static final WorkforceGenerator GENERATOR = new WorkforceGenerator(WorkforceGenerator.DEFAULT_SEED, 0.0);
+
+    private BenchmarkFixtures() {
+    }
+
+    // "Employee Details" rows, numbered from 10001, with salaries spread over every bracket
+    static List<List<Object>> employees(int count) {
+        return GENERATOR.employees(count);
+    }
+
+    // "Attendance Record" rows for every weekday of the span
+    static List<List<Object>> attendance(int employeeCount, int days) {
+        return GENERATOR.attendance(employeeCount, WorkforceGenerator.DEFAULT_FIRST_DAY, days);
+    }
+
+    static List<List<Object>> sssMatrix() { return WorkforceGenerator.sssMatrix(); }
+    static List<List<Object>> philHealthMatrix() { return WorkforceGenerator.philHealthMatrix(); }
+    static List<List<Object>> pagIbigMatrix() { return WorkforceGenerator.pagIbigMatrix(); }
+    static List<List<Object>> withHoldingTaxMatrix() { return WorkforceGenerator.withHoldingTaxMatrix(); }
+
+    static DeductionTables deductionTables() {
+        return DeductionTables.compile(sssMatrix(), philHealthMatrix(), pagIbigMatrix(), withHoldingTaxMatrix());
+    }
+
+    /*
+     * InMemoryDataSource: Serves fixture rows to EmployeeService without any I/O.
+     */
+    static final class InMemoryDataSource implements DataSource {
+        private final List<List<Object>> employees;
+        private final List<List<Object>> attendance;
+
+        InMemoryDataSource(int employeeCount, int attendanceDays) {
+            this.employees = BenchmarkFixtures.employees(employeeCount);
+            this.attendance = BenchmarkFixtures.attendance(employeeCount, attendanceDays);
+        }
+
+        @Override public List<List<Object>> fetchEmployeeData() { return employees; }
+        @Override public List<List<Object>> fetchAttendanceData() { return attendance; }
+        @Override public List<List<Object>> fetchSssMatrixData() { return sssMatrix(); }
+        @Override public List<List<Object>> fetchPhilHealthMatrixData() { return philHealthMatrix(); }
+        @Override public List<List<Object>> fetchPagIbigMatrixData() { return pagIbigMatrix(); }
+        @Override public List<List<Object>> fetchWithHoldingTaxMatrixData() { return withHoldingTaxMatrix(); }
+    }
+}
@@ -0,0 +1,125 @@
+package edu.mmdc.motorph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ===== Benchmarks =====
+/*
+ * DeductionBenchmark: Cost of one employee's deductions, per bracket lookup and in total.
+ * Salaries cycle through a fixed set so every bracket of every table gets hit.
+ * The batch* benchmarks run all SAMPLES employees through DeductionKernel per operation,
+ * with and without the vector module.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeductionBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private DeductionTables tables;
+    private List<List<Object>> sssMatrix;
+    private List<List<Object>> philHealthMatrix;
+    private List<List<Object>> pagIbigMatrix;
+    private List<List<Object>> withHoldingTaxMatrix;
+
+    private final double[] salaries = new double[SAMPLES];
+    private final double[] taxableWages = new double[SAMPLES];
+    private final Employee[] employees = new Employee[SAMPLES];
+    private final long[] salaryCentavos = new long[SAMPLES];
+    private final long[] grossCentavos = new long[SAMPLES];
+    private final long[] sss = new long[SAMPLES];
+    private final long[] philHealth = new long[SAMPLES];
+    private final long[] pagIbig = new long[SAMPLES];
+    private final long[] tax = new long[SAMPLES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sssMatrix = BenchmarkFixtures.sssMatrix();
+        philHealthMatrix = BenchmarkFixtures.philHealthMatrix();
+        pagIbigMatrix = BenchmarkFixtures.pagIbigMatrix();
+        withHoldingTaxMatrix = BenchmarkFixtures.withHoldingTaxMatrix();
+        tables = BenchmarkFixtures.deductionTables();
+
+        Map<Integer, Double> hoursMap = new HashMap<>();
+        List<List<Object>> rows = BenchmarkFixtures.employees(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            hoursMap.put(10001 + i, 40.0);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            employees[i] = EmployeeService.createEmployee(rows.get(i), hoursMap);
+            salaries[i] = employees[i].getBasicSalary();
+            taxableWages[i] = employees[i].getWeeklyGrossWage() * 0.95;
+            salaryCentavos[i] = employees[i].getBasicSalaryCentavos();
+            grossCentavos[i] = employees[i].getWeeklyGrossCentavos();
+        }
+    }
+
+    private int nextSample() {
+        return next++ & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public double sssLookup() {
+        return DeductionService.calculateSssDeduction(salaries[nextSample()], tables.getSss());
+    }
+
+    @Benchmark
+    public double philHealthLookup() {
+        return DeductionService.calculatePhilHealthDeduction(salaries[nextSample()], tables.getPhilHealth());
+    }
+
+    @Benchmark
+    public double pagIbigLookup() {
+        return DeductionService.calculatePagIbigDeduction(salaries[nextSample()], tables.getPagIbig());
+    }
+
+    @Benchmark
+    public double taxLookup() {
+        return DeductionService.calculateTaxDeduction(tables.getWithHoldingTax(), taxableWages[nextSample()]);
+    }
+
+    @Benchmark
+    public double calculateAllDeductions() {
+        Employee employee = employees[nextSample()];
+        DeductionService.calculateAllDeductions(employee, tables);
+        return employee.getWeeklyNetWage();
+    }
+
+    // The raw-matrix entry point, which compiles the four tables on every call
+    @Benchmark
+    public double calculateAllDeductionsFromMatrices() {
+        Employee employee = employees[nextSample()];
+        DeductionService.calculateAllDeductions(employee, sssMatrix, philHealthMatrix, pagIbigMatrix, withHoldingTaxMatrix);
+        return employee.getWeeklyNetWage();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public long batchVector() {
+        DeductionKernel.compute(tables, salaryCentavos, grossCentavos, sss, philHealth, pagIbig, tax, SAMPLES);
+        return tax[SAMPLES - 1];
+    }
+
+    @Benchmark
+    public long batchScalar() {
+        DeductionKernel.computeScalar(tables, salaryCentavos, grossCentavos, sss, philHealth, pagIbig, tax, 0, SAMPLES);
+        return tax[SAMPLES - 1];
+    }
+}
@@ -0,0 +1,55 @@
+package edu.mmdc.motorph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ===== Benchmarks =====
+/*
+ * EmployeeParsingBenchmark: Cost of turning one "Employee Details" row into an Employee.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmployeeParsingBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private List<List<Object>> rows;
+    private final Map<Integer, Double> hoursMap = new HashMap<>();
+    private final RowParser parser = new RowParser();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        rows = BenchmarkFixtures.employees(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            hoursMap.put(10001 + i, 40.0);
+        }
+    }
+
+    @Benchmark
+    public Employee createEmployee() {
+        return EmployeeService.createEmployee(rows.get(next++ & (SAMPLES - 1)), hoursMap);
+    }
+
+    // Reused parser, as in the payroll engine's tasks
+    @Benchmark
+    public Employee parseEmployee() {
+        return parser.parseEmployee(rows.get(next++ & (SAMPLES - 1)), hoursMap);
+    }
+}
@@ -0,0 +1,74 @@
+package edu.mmdc.motorph;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ===== Benchmarks =====
+/*
+ * PayrollBenchmark: Full payroll runs.
+ * getAllEmployees reloads the (in-memory) sheets and rebuilds the snapshot each time,
+ * which is what a refresh costs; payrollRun measures the engine alone at a given parallelism
+ * (0 = all cores).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayrollBenchmark {
+    @Param({ "1000", "10000", "50000" })
+    public int employeeCount;
+
+    @Param({ "10" })
+    public int attendanceDays;
+
+    @Param({ "1", "0" })
+    public int parallelism;
+
+    private EmployeeService service;
+    private PayrollEngine engine;
+    private List<List<Object>> rows;
+    private Map<Integer, Double> hoursMap;
+    private DeductionTables tables;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.InMemoryDataSource dataSource = new BenchmarkFixtures.InMemoryDataSource(employeeCount, attendanceDays);
+        service = new EmployeeService(dataSource);
+        engine = new PayrollEngine(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism);
+        rows = dataSource.fetchEmployeeData();
+        hoursMap = new AttendanceProcessor(dataSource).calculateHoursWorked(dataSource.fetchAttendanceData());
+        tables = BenchmarkFixtures.deductionTables();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public List<Employee> getAllEmployees() throws Exception {
+        service.refresh();
+        return service.getAllEmployees();
+    }
+
+    @Benchmark
+    public PayrollRun payrollRun() {
+        return engine.run(rows, hoursMap, tables);
+    }
+}
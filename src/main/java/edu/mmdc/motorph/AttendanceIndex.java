@@ -0,0 +1,324 @@
+package edu.mmdc.motorph;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// ===== Service Layer =====
+/*
+ * AttendanceIndex: Attendance records, read once and kept sorted for date-range queries.
+ * Records are grouped per employee (employee numbers sorted) and sorted by day within the
+ * employee, in three flat arrays: days (epoch days), minutes worked and a running total of
+ * centi-hours over all records. An employee's hours between two dates are then two binary
+ * searches and one subtraction, whatever the period: a week, half a month, a back-dated month.
+ *
+ * Hours are rounded to 2 decimals per record before they are added up, like the weekly
+ * attendance totals, so the latest work week gives the same hours as calculateHoursWorked().
+ *
+ * A snapshot's index only keeps the last HISTORY_DAYS days up to the latest date, so its size
+ * stays bounded however long the attendance log grows; covers() tells whether a period is
+ * inside what was kept. Older periods are read from the sheet again (see Builder.between).
+ */
+final class AttendanceIndex {
+    // Days of attendance a snapshot keeps (0 keeps all); the default is enough for a back-dated month
+    static final int HISTORY_DAYS = Integer.getInteger("motorph.attendance.historyDays", 62);
+
+    private final int[] employeeNumbers;
+    // Records of employeeNumbers[e] are [offsets[e], offsets[e + 1])
+    private final int[] offsets;
+    private final int[] days;
+    private final int[] minutes;
+    // centiHoursBefore[r] = centi-hours of records 0..r-1
+    private final long[] centiHoursBefore;
+    private final int firstDay;
+    // Latest date of any row, including rows skipped for a bad time; the weekly payroll counts them too
+    private final int lastDay;
+    private final long skippedRows;
+    // The days the records were kept for (both included); queries outside them would miss hours
+    private final int coveredFromDay;
+    private final int coveredToDay;
+
+    private AttendanceIndex(int[] employeeNumbers, int[] offsets, int[] days, int[] minutes, int lastDay, long skippedRows,
+            int coveredFromDay, int coveredToDay) {
+        this.employeeNumbers = employeeNumbers;
+        this.offsets = offsets;
+        this.days = days;
+        this.minutes = minutes;
+        this.lastDay = lastDay;
+        this.skippedRows = skippedRows;
+        this.coveredFromDay = coveredFromDay;
+        this.coveredToDay = coveredToDay;
+        this.centiHoursBefore = new long[minutes.length + 1];
+        int first = Integer.MAX_VALUE;
+        for (int r = 0; r < minutes.length; r++) {
+            centiHoursBefore[r + 1] = centiHoursBefore[r] + Centavos.centiHoursOfMinutes(minutes[r]);
+            first = Math.min(first, days[r]);
+        }
+        this.firstDay = first;
+    }
+
+    // Index over attendance rows that were already fetched
+    static AttendanceIndex of(List<List<Object>> rows) {
+        Builder builder = new Builder();
+        for (List<Object> row : rows) {
+            builder.accept(row);
+        }
+        return builder.build();
+    }
+
+    // ===== Queries =====
+
+    // True if every record from one date to another (both included) was kept
+    public boolean covers(LocalDate from, LocalDate to) {
+        return from.toEpochDay() >= coveredFromDay && to.toEpochDay() <= coveredToDay;
+    }
+
+    // Centi-hours worked by the employee from one date to another, both included
+    public long centiHoursBetween(int employeeNumber, LocalDate from, LocalDate to) {
+        int e = Arrays.binarySearch(employeeNumbers, employeeNumber);
+        if (e < 0) {
+            return 0;
+        }
+        return centiHoursBetween(e, (int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    public double hoursBetween(int employeeNumber, LocalDate from, LocalDate to) {
+        return centiHoursBetween(employeeNumber, from, to) / (double) Centavos.CENTI_HOURS_PER_HOUR;
+    }
+
+    /*
+     * Hours of every employee with attendance in the period, keyed by employee number; the
+     * same shape as AttendanceProcessor.calculateHoursWorked(), so it can feed PayrollEngine.
+     */
+    public Map<Integer, Double> hoursBetween(LocalDate from, LocalDate to) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        Map<Integer, Double> hours = new HashMap<>();
+        for (int e = 0; e < employeeNumbers.length; e++) {
+            int lo = lowerBound(offsets[e], offsets[e + 1], fromDay);
+            int hi = lowerBound(lo, offsets[e + 1], toDay + 1);
+            if (lo < hi) {
+                hours.put(employeeNumbers[e], (centiHoursBefore[hi] - centiHoursBefore[lo]) / (double) Centavos.CENTI_HOURS_PER_HOUR);
+            }
+        }
+        return hours;
+    }
+
+    // Total minutes clocked by the employee in the period, before any rounding
+    public long minutesBetween(int employeeNumber, LocalDate from, LocalDate to) {
+        int e = Arrays.binarySearch(employeeNumbers, employeeNumber);
+        if (e < 0) {
+            return 0;
+        }
+        int lo = lowerBound(offsets[e], offsets[e + 1], (int) from.toEpochDay());
+        int hi = lowerBound(lo, offsets[e + 1], (int) to.toEpochDay() + 1);
+        long total = 0;
+        for (int r = lo; r < hi; r++) {
+            total += minutes[r];
+        }
+        return total;
+    }
+
+    private long centiHoursBetween(int e, int fromDay, int toDay) {
+        int lo = lowerBound(offsets[e], offsets[e + 1], fromDay);
+        int hi = lowerBound(lo, offsets[e + 1], toDay + 1);
+        return centiHoursBefore[hi] - centiHoursBefore[lo];
+    }
+
+    // First record in [from, to) whose day is at least day
+    private int lowerBound(int from, int to, int day) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // ===== Periods =====
+
+    // Monday of the last completed work week, the week the weekly payroll reports (null without dates)
+    public LocalDate latestWeekStart() {
+        return lastDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(lastDay).with(DayOfWeek.MONDAY).minusWeeks(1);
+    }
+
+    // Friday of that week
+    public LocalDate latestWeekEnd() {
+        return lastDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(lastDay).with(DayOfWeek.FRIDAY).minusWeeks(1);
+    }
+
+    public boolean isEmpty() { return days.length == 0; }
+    public LocalDate getFirstDate() { return isEmpty() ? null : LocalDate.ofEpochDay(firstDay); }
+    public LocalDate getLastDate() { return lastDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(lastDay); }
+    public int getEmployeeCount() { return employeeNumbers.length; }
+    public int getRecordCount() { return days.length; }
+    public long getSkippedRows() { return skippedRows; }
+
+    // ===== Building =====
+
+    /*
+     * Builder: Collects records per employee in sheet order; build() sorts and flattens them.
+     * Rows that cannot be parsed are counted and left out. Records older than the history kept,
+     * or outside the period asked for, are dropped as they arrive (the latest date still counts).
+     * As newer dates arrive, records that have since left the history are dropped whenever an
+     * employee's records would have to grow, so a date-ordered log never piles up its whole past.
+     */
+    static final class Builder {
+        private final Map<Integer, Records> byEmployee = new HashMap<>();
+        // Days kept up to the latest date (0 keeps all), and the period kept
+        private final int historyDays;
+        private final int fromDay;
+        private final int toDay;
+        private int lastDay = Integer.MIN_VALUE;
+        private long skippedRows;
+
+        // Every record
+        Builder() {
+            this(0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        private Builder(int historyDays, int fromDay, int toDay) {
+            this.historyDays = historyDays;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        // The last HISTORY_DAYS days, as a snapshot keeps them
+        static Builder recent() {
+            return new Builder(HISTORY_DAYS, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        // Only the records from one date to another (both included), e.g. a period older than a snapshot keeps
+        static Builder between(LocalDate from, LocalDate to) {
+            return new Builder(0, (int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+
+        void accept(List<Object> row) {
+            long day = RowParser.parseEpochDay(RowParser.cell(row, RowParser.ATTENDANCE_DATE));
+            if (day != RowParser.INVALID && day == (int) day) {
+                lastDay = Math.max(lastDay, (int) day);
+            }
+            long employeeNumber = RowParser.parseLong(RowParser.cell(row, RowParser.ATTENDANCE_EMPLOYEE_NUMBER));
+            long timeIn = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_IN));
+            long timeOut = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_OUT));
+            if (day == RowParser.INVALID || day != (int) day
+                    || employeeNumber == RowParser.INVALID || employeeNumber != (int) employeeNumber
+                    || timeIn == RowParser.INVALID || timeOut == RowParser.INVALID) {
+                skippedRows++;
+                return;
+            }
+            int keepFromDay = keepFromDay();
+            if (day < fromDay || day > toDay || day < keepFromDay) {
+                return;
+            }
+            byEmployee.computeIfAbsent((int) employeeNumber, ignored -> new Records()).add((int) day, (int) (timeOut - timeIn), keepFromDay);
+        }
+
+        // First day still kept, as of the latest date so far
+        private int keepFromDay() {
+            return historyDays > 0 && lastDay != Integer.MIN_VALUE ? lastDay - historyDays + 1 : fromDay;
+        }
+
+        AttendanceIndex build() {
+            // Rows that came before the latest date may have left the window since
+            int coveredFromDay = keepFromDay();
+            int[] employeeNumbers = new int[byEmployee.size()];
+            int count = 0;
+            int total = 0;
+            for (Map.Entry<Integer, Records> entry : byEmployee.entrySet()) {
+                Records records = entry.getValue();
+                records.sortByDay();
+                records.dropBefore(coveredFromDay);
+                if (records.size > 0) {
+                    employeeNumbers[count++] = entry.getKey();
+                    total += records.size;
+                }
+            }
+            employeeNumbers = Arrays.copyOf(employeeNumbers, count);
+            Arrays.sort(employeeNumbers);
+
+            int[] offsets = new int[employeeNumbers.length + 1];
+            int[] days = new int[total];
+            int[] minutes = new int[total];
+            int at = 0;
+            for (int e = 0; e < employeeNumbers.length; e++) {
+                offsets[e] = at;
+                Records records = byEmployee.get(employeeNumbers[e]);
+                System.arraycopy(records.days, 0, days, at, records.size);
+                System.arraycopy(records.minutes, 0, minutes, at, records.size);
+                at += records.size;
+            }
+            offsets[employeeNumbers.length] = at;
+            return new AttendanceIndex(employeeNumbers, offsets, days, minutes, lastDay, skippedRows, coveredFromDay, toDay);
+        }
+    }
+
+    // One employee's records while building
+    private static final class Records {
+        private int[] days = new int[8];
+        private int[] minutes = new int[8];
+        private int size;
+        private boolean sorted = true;
+
+        // When full, first drops the records before keepFromDay; grows only if that frees less than half
+        void add(int day, int minutesWorked, int keepFromDay) {
+            if (size == days.length) {
+                sortByDay();
+                dropBefore(keepFromDay);
+                if (size > days.length / 2) {
+                    days = Arrays.copyOf(days, days.length * 2);
+                    minutes = Arrays.copyOf(minutes, minutes.length * 2);
+                }
+            }
+            if (size > 0 && day < days[size - 1]) {
+                sorted = false;
+            }
+            days[size] = day;
+            minutes[size] = minutesWorked;
+            size++;
+        }
+
+        // Sheets are usually in date order already; otherwise sort (day, position) pairs packed in longs
+        void sortByDay() {
+            if (sorted) {
+                return;
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) days[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedDays = new int[days.length];
+            int[] sortedMinutes = new int[minutes.length];
+            for (int i = 0; i < size; i++) {
+                int from = (int) keys[i];
+                sortedDays[i] = days[from];
+                sortedMinutes[i] = minutes[from];
+            }
+            days = sortedDays;
+            minutes = sortedMinutes;
+            sorted = true;
+        }
+
+        // Leaves out the records before the day, moving the rest to the front; the records must be sorted
+        void dropBefore(int day) {
+            int first = 0;
+            while (first < size && days[first] < day) {
+                first++;
+            }
+            if (first > 0) {
+                size -= first;
+                System.arraycopy(days, first, days, 0, size);
+                System.arraycopy(minutes, first, minutes, 0, size);
+            }
+        }
+    }
+}
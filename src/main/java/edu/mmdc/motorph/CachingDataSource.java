@@ -0,0 +1,300 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// ===== Data Access Layer =====
+/*
+ * CachingDataSource: Google Sheets behind a SnapshotCache.
+ * The spreadsheet's Drive modifiedTime is checked first; a sheet is downloaded only when its
+ * snapshot was saved for another modifiedTime (or there is none), and the download replaces
+ * the snapshot. When Drive or Sheets cannot be reached, the last good snapshot is used instead.
+ */
+class CachingDataSource implements DataSource {
+    /*
+     * ModifiedTimeLookup: Where the spreadsheet's last change time comes from (epoch millis).
+     */
+    @FunctionalInterface
+    interface ModifiedTimeLookup {
+        long fetch() throws IOException, GeneralSecurityException;
+    }
+
+    @FunctionalInterface
+    private interface Download {
+        List<List<Object>> fetch() throws IOException, GeneralSecurityException;
+    }
+
+    // How long one modifiedTime answer is trusted, so the fetches of one load share a single lookup
+    private static final long REVALIDATE_AFTER_MILLIS = 10_000;
+
+    private static final long OFFLINE = -1;
+
+    private final DataSource delegate;
+    private final SnapshotCache cache;
+    private final ModifiedTimeLookup modifiedTimeLookup;
+
+    private long remoteModifiedTime;
+    private long checkedAt;
+    private boolean checked;
+    private volatile boolean fallbackReported;
+
+    public CachingDataSource(DataSource delegate, SnapshotCache cache, ModifiedTimeLookup modifiedTimeLookup) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.modifiedTimeLookup = modifiedTimeLookup;
+    }
+
+    // Google Sheets, cached in the given snapshot folder
+    public static CachingDataSource forSheets(SnapshotCache cache) {
+        return new CachingDataSource(new SheetsDataSource(), cache, GoogleSheetsHandler::fetchModifiedTime);
+    }
+
+    public SnapshotCache getCache() { return cache; }
+
+    @Override
+    public List<List<Object>> fetchEmployeeData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.EMPLOYEE_DETAILS);
+    }
+
+    @Override
+    public List<List<Object>> fetchAttendanceData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.ATTENDANCE_RECORD);
+    }
+
+    @Override
+    public List<List<Object>> fetchSssMatrixData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.SSS_MATRIX);
+    }
+
+    @Override
+    public List<List<Object>> fetchPhilHealthMatrixData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.PHILHEALTH_MATRIX);
+    }
+
+    @Override
+    public List<List<Object>> fetchPagIbigMatrixData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.PAGIBIG_MATRIX);
+    }
+
+    @Override
+    public List<List<Object>> fetchWithHoldingTaxMatrixData() throws IOException, GeneralSecurityException {
+        return cached(DataSheet.WITHHOLDING_TAX_MATRIX);
+    }
+
+    // Older matrix versions are snapshotted under their own range, the same way as the sheets
+    @Override
+    public List<List<Object>> fetchMatrix(DataSheet sheet, String title) throws IOException, GeneralSecurityException {
+        return cached(GoogleSheetsHandler.matrixRange(sheet, title), () -> delegate.fetchMatrix(sheet, title));
+    }
+
+    // Fresh snapshots are read from disk; the rest are downloaded together in one batch
+    @Override
+    public Map<DataSheet, List<List<Object>>> fetchBatch(Set<DataSheet> sheets) throws IOException, GeneralSecurityException {
+        long remote = remoteModifiedTime();
+        Map<DataSheet, List<List<Object>>> result = new EnumMap<>(DataSheet.class);
+        Set<DataSheet> stale = EnumSet.noneOf(DataSheet.class);
+        for (DataSheet sheet : sheets) {
+            List<List<Object>> rows = fresh(GoogleSheetsHandler.rangeOf(sheet), remote);
+            if (rows != null) {
+                result.put(sheet, rows);
+            } else {
+                stale.add(sheet);
+            }
+        }
+        if (stale.isEmpty()) {
+            return result;
+        }
+
+        Map<DataSheet, List<List<Object>>> downloaded;
+        try {
+            downloaded = delegate.fetchBatch(stale);
+        } catch (IOException | GeneralSecurityException e) {
+            for (DataSheet sheet : stale) {
+                result.put(sheet, fallback(GoogleSheetsHandler.rangeOf(sheet), e));
+            }
+            return result;
+        }
+        for (Map.Entry<DataSheet, List<List<Object>>> entry : downloaded.entrySet()) {
+            save(GoogleSheetsHandler.rangeOf(entry.getKey()), remote, entry.getValue());
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    // Streams the snapshot when it is fresh; otherwise streams the download and saves it on the way through
+    @Override
+    public void streamAttendanceData(int chunkRows, Consumer<List<List<Object>>> chunkConsumer) throws IOException, GeneralSecurityException {
+        String range = GoogleSheetsHandler.ATTENDANCE_STREAM_RANGE;
+        long remote = remoteModifiedTime();
+        if (remote != OFFLINE && cache.modifiedTime(range) == remote && cache.stream(range, chunkRows, chunkConsumer)) {
+            PayrollMetrics.increment("snapshot.hits");
+            return;
+        }
+        PayrollMetrics.increment("snapshot.misses");
+
+        // Dropped (set to null) if writing the snapshot fails; the run goes on without it
+        SnapshotCache.Writer[] writer = { remote == OFFLINE ? null : openWriter(range, remote) };
+        boolean[] started = new boolean[1];
+        try {
+            delegate.streamAttendanceData(chunkRows, chunk -> {
+                started[0] = true;
+                if (writer[0] != null) {
+                    try {
+                        writer[0].writeRows(chunk);
+                    } catch (IOException e) {
+                        closeQuietly(writer[0]);
+                        writer[0] = null;
+                    }
+                }
+                chunkConsumer.accept(chunk);
+            });
+            if (writer[0] != null) {
+                writer[0].commit();
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            closeQuietly(writer[0]);
+            writer[0] = null;
+            // Rows already handed over cannot be taken back, so the snapshot can only stand in for a stream that never started
+            if (started[0] || !cache.stream(range, chunkRows, chunkConsumer)) {
+                throw e;
+            }
+            printFallback(range, e);
+        } finally {
+            closeQuietly(writer[0]);
+        }
+    }
+
+    // Writes go straight through; the next read looks at modifiedTime again, so it sees them
+    @Override
+    public void writeEmployees(List<List<Object>> appended, List<List<Object>> updated) throws IOException, GeneralSecurityException {
+        try {
+            delegate.writeEmployees(appended, updated);
+        } finally {
+            synchronized (this) {
+                checked = false;
+            }
+        }
+    }
+
+    // Asked to check what a write left behind, so never from the local copy
+    @Override
+    public Set<Integer> fetchEmployeeNumbers() throws IOException, GeneralSecurityException {
+        return delegate.fetchEmployeeNumbers();
+    }
+
+    private List<List<Object>> cached(DataSheet sheet) throws IOException, GeneralSecurityException {
+        return cached(GoogleSheetsHandler.rangeOf(sheet), () -> delegate.fetch(sheet));
+    }
+
+    private List<List<Object>> cached(String range, Download download) throws IOException, GeneralSecurityException {
+        long remote = remoteModifiedTime();
+        List<List<Object>> rows = fresh(range, remote);
+        if (rows != null) {
+            return rows;
+        }
+
+        try {
+            rows = download.fetch();
+        } catch (IOException | GeneralSecurityException e) {
+            return fallback(range, e);
+        }
+        save(range, remote, rows);
+        return rows;
+    }
+
+    // The snapshot's rows if it was saved for the spreadsheet's current modifiedTime
+    private List<List<Object>> fresh(String range, long remote) {
+        List<List<Object>> rows = null;
+        if (remote != OFFLINE && cache.modifiedTime(range) == remote) {
+            rows = cache.read(range);
+        }
+        PayrollMetrics.increment(rows == null ? "snapshot.misses" : "snapshot.hits");
+        return rows;
+    }
+
+    // Any snapshot of the range, whatever its age, when the download failed
+    private List<List<Object>> fallback(String range, Exception cause) throws IOException, GeneralSecurityException {
+        List<List<Object>> rows = cache.read(range);
+        if (rows == null) {
+            if (cause instanceof GeneralSecurityException security) {
+                throw security;
+            }
+            throw (IOException) cause;
+        }
+        printFallback(range, cause);
+        return rows;
+    }
+
+    private void save(String range, long remote, List<List<Object>> rows) {
+        if (remote == OFFLINE) {
+            return;
+        }
+        try {
+            cache.write(range, remote, rows);
+        } catch (IOException e) {
+            System.out.println("Could not save snapshot of " + range + ": " + e.getMessage());
+        }
+    }
+
+    private SnapshotCache.Writer openWriter(String range, long remote) {
+        try {
+            return cache.writer(range, remote);
+        } catch (IOException e) {
+            System.out.println("Could not save snapshot of " + range + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Reported once; the other sheets of the same load are in the same situation
+    private void printFallback(String range, Exception cause) {
+        PayrollMetrics.increment("snapshot.fallbacks");
+        if (fallbackReported) {
+            return;
+        }
+        fallbackReported = true;
+        SnapshotCache.Header header = cache.header(range);
+        String savedAt = header == null ? "an earlier run" : Instant.ofEpochMilli(header.getSavedAt()).toString();
+        System.out.println("Google Sheets unavailable (" + cause.getMessage() + "); using local snapshots, "
+                + range + " saved at " + savedAt);
+    }
+
+    /*
+     * The spreadsheet's modifiedTime, looked up at most once per REVALIDATE_AFTER_MILLIS.
+     * OFFLINE when Drive cannot be reached; every fetch then goes by what the snapshots say.
+     */
+    private synchronized long remoteModifiedTime() {
+        long now = System.currentTimeMillis();
+        if (checked && now - checkedAt < REVALIDATE_AFTER_MILLIS) {
+            return remoteModifiedTime;
+        }
+        try {
+            remoteModifiedTime = modifiedTimeLookup.fetch();
+        } catch (IOException | GeneralSecurityException e) {
+            if (!checked || remoteModifiedTime != OFFLINE) {
+                System.out.println("Could not check the spreadsheet for changes: " + e.getMessage());
+            }
+            remoteModifiedTime = OFFLINE;
+        }
+        checked = true;
+        checkedAt = now;
+        return remoteModifiedTime;
+    }
+
+    private static void closeQuietly(SnapshotCache.Writer writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // Only the temp file is left behind
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.mmdc.motorph;
+
+// ===== Deduction Layer =====
+/*
+ * Centavos: Fixed-point money arithmetic on primitive longs (1 peso = 100 centavos).
+ * The whole wage/deduction pipeline runs on these helpers, so results never depend on
+ * floating-point evaluation order and serial and parallel runs give identical amounts.
+ *
+ * Rounding rule: every operation that produces a fraction of a centavo (rates, shares,
+ * weekly splits, hours x rate) rounds to the nearest centavo, halves rounding up
+ * (towards positive infinity). Nothing here allocates.
+ *
+ * Compared with the old double arithmetic, which rounded nothing until display, a weekly net
+ * wage can differ by up to 2 centavos, not 1, because net is gross minus separately rounded
+ * amounts. When a monthly SSS contribution and PhilHealth share both end in 50 centavos (e.g.
+ * 1,057.50 and 352.50), both weekly quarters end in half a centavo and round up, so net is a
+ * whole centavo lower; gross rounded down and the tax's own rounding add up to 0.75 more.
+ * On 3,000 generated employees over 60 days, 1,114 net wages differed by 1 centavo and 15 by 2
+ * (at most 1.75 centavos before display).
+ *
+ * Other fixed-point units used with it:
+ *   rates as micros: a fraction in millionths, so 3% = 30_000 and 100% = 1_000_000
+ *   hours as centi-hours: hundredths of an hour, so 7.5 hours = 750
+ */
+final class Centavos {
+    static final long PER_PESO = 100;
+    static final long MICROS_PER_UNIT = 1_000_000;
+    static final long MICROS_PER_PERCENT = 10_000;
+    static final long CENTI_HOURS_PER_HOUR = 100;
+
+    private Centavos() {
+    }
+
+    // Nearest centavo of a peso amount
+    static long fromPesos(double pesos) {
+        return Math.round(pesos * PER_PESO);
+    }
+
+    static long fromPesos(long pesos) {
+        return pesos * PER_PESO;
+    }
+
+    static double toPesos(long centavos) {
+        return centavos / (double) PER_PESO;
+    }
+
+    // Percentage (e.g. 3 for 3%) to micros
+    static long percentToMicros(double percent) {
+        return Math.round(percent * MICROS_PER_PERCENT);
+    }
+
+    // amount x rate, rounded to the nearest centavo
+    static long applyRate(long amountCentavos, long rateMicros) {
+        return divide(amountCentavos * rateMicros, MICROS_PER_UNIT);
+    }
+
+    // amount / divisor, rounded to the nearest centavo (divisor > 0)
+    static long divide(long amount, long divisor) {
+        return Math.floorDiv(2 * amount + divisor, 2 * divisor);
+    }
+
+    // Wage for a number of centi-hours at an hourly rate
+    static long wage(long centiHours, long hourlyRateCentavos) {
+        return divide(centiHours * hourlyRateCentavos, CENTI_HOURS_PER_HOUR);
+    }
+
+    // Hours as a double (already rounded to 2 decimals by the attendance processor) to centi-hours
+    static long centiHours(double hours) {
+        return Math.round(hours * CENTI_HOURS_PER_HOUR);
+    }
+
+    // Minutes worked to centi-hours, rounded like the attendance sheet totals (2 decimals)
+    static long centiHoursOfMinutes(long minutes) {
+        return divide(minutes * CENTI_HOURS_PER_HOUR, 60);
+    }
+
+    /*
+     * Plain "1234.56" / "-0.50" text, without String.format or BigDecimal.
+     */
+    static String format(long centavos) {
+        StringBuilder text = new StringBuilder(16);
+        appendTo(text, centavos);
+        return text.toString();
+    }
+
+    static void appendTo(StringBuilder text, long centavos) {
+        long value = centavos;
+        if (value < 0) {
+            text.append('-');
+            value = -value;
+        }
+        text.append(value / PER_PESO).append('.');
+        long cents = value % PER_PESO;
+        if (cents < 10) {
+            text.append('0');
+        }
+        text.append(cents);
+    }
+}
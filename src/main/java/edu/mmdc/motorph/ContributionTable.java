@@ -0,0 +1,190 @@
+package edu.mmdc.motorph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// ===== Deduction Layer =====
+/*
+ * ContributionTable: A contribution/tax matrix parsed once into primitive arrays.
+ * Rows are kept sorted by lower bound and looked up by binary search, so finding an
+ * employee's bracket costs a few comparisons and allocates nothing.
+ * Amounts are held in centavos (see Centavos) and percentages in micros.
+ *
+ * Columns of the source matrices:
+ *   A: lower bound (empty = 0)     B: upper bound (empty = no limit)
+ *   C: rate  - SSS contribution amount, Pag-IBIG and tax percentage
+ *   D: fixed - PhilHealth monthly premium, tax fixed amount
+ *   E: bracket type - PhilHealth only (1 and 3 fixed premium, 2 percentage of salary)
+ * Cells that are missing or not numbers are stored as 0.
+ */
+final class ContributionTable {
+    private final long[] lower;
+    private final long[] upper;
+    private final long[] rateCentavos;
+    private final long[] rateMicros;
+    private final long[] fixed;
+    private final int[] bracketType;
+
+    // Running maximum of the upper bounds, used to find the first matching row when brackets overlap
+    private final long[] maxUpper;
+
+    private ContributionTable(long[] lower, long[] upper, long[] rateCentavos, long[] rateMicros, long[] fixed, int[] bracketType) {
+        this.lower = lower;
+        this.upper = upper;
+        this.rateCentavos = rateCentavos;
+        this.rateMicros = rateMicros;
+        this.fixed = fixed;
+        this.bracketType = bracketType;
+        this.maxUpper = new long[upper.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < upper.length; i++) {
+            max = Math.max(max, upper[i]);
+            maxUpper[i] = max;
+        }
+    }
+
+    public static ContributionTable compile(List<List<Object>> matrix) {
+        int size = matrix == null ? 0 : matrix.size();
+
+        // Sort row positions by lower bound; the sort is stable so equal bounds keep sheet order
+        Integer[] order = new Integer[size];
+        long[] rawLower = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            rawLower[i] = parseBound(matrix.get(i), 0, 0, i);
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> rawLower[i]));
+
+        long[] lower = new long[size];
+        long[] upper = new long[size];
+        long[] rateCentavos = new long[size];
+        long[] rateMicros = new long[size];
+        long[] fixed = new long[size];
+        int[] bracketType = new int[size];
+
+        for (int sorted = 0; sorted < size; sorted++) {
+            int index = order[sorted];
+            List<Object> row = matrix.get(index);
+            lower[sorted] = rawLower[index];
+            upper[sorted] = parseBound(row, 1, Long.MAX_VALUE, index);
+            double rate = parseValue(row, 2);
+            rateCentavos[sorted] = Centavos.fromPesos(rate);
+            rateMicros[sorted] = Centavos.percentToMicros(rate);
+            fixed[sorted] = Centavos.fromPesos(parseValue(row, 3));
+            bracketType[sorted] = (int) parseValue(row, 4);
+        }
+        return new ContributionTable(lower, upper, rateCentavos, rateMicros, fixed, bracketType);
+    }
+
+    /*
+     * Returns the row whose bracket contains the amount (in centavos), or -1 if none does.
+     * Matches the original sheet scan: the first row with lower <= amount <= upper.
+     */
+    public int find(long amount) {
+        // Last row whose lower bound is <= amount
+        int low = 0;
+        int high = lower.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lower[mid] <= amount) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (candidate < 0) {
+            return -1;
+        }
+
+        // First row up to the candidate whose upper bound reaches the amount
+        low = 0;
+        high = candidate;
+        int match = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (maxUpper[mid] >= amount) {
+                match = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        // maxUpper is a running maximum, so the first hit is itself a row that reaches the amount
+        return match;
+    }
+
+    public int size() { return lower.length; }
+    public long lower(int row) { return lower[row]; }
+    public long upper(int row) { return upper[row]; }
+
+    // Column C read as an amount (SSS contribution)
+    public long rateCentavos(int row) { return rateCentavos[row]; }
+
+    // Column C read as a percentage (Pag-IBIG, tax)
+    public long rateMicros(int row) { return rateMicros[row]; }
+
+    public long fixed(int row) { return fixed[row]; }
+    public int bracketType(int row) { return bracketType[row]; }
+
+    // Largest upper bound of rows 0..row; non-decreasing, so it can be counted instead of searched (see VectorDeductionKernel)
+    public long maxUpper(int row) { return maxUpper[row]; }
+
+    /*
+     * Content hash of one bracket (Fingerprints.NONE for row -1). Two tables that give the same
+     * fingerprint for the rows an amount falls in give the same deduction for that amount.
+     */
+    public long fingerprint(int row) {
+        if (row < 0) {
+            return Fingerprints.NONE;
+        }
+        long hash = Fingerprints.combine(lower[row], upper[row]);
+        hash = Fingerprints.combine(hash, rateCentavos[row]);
+        hash = Fingerprints.combine(hash, rateMicros[row]);
+        hash = Fingerprints.combine(hash, fixed[row]);
+        return Fingerprints.combine(hash, bracketType[row]);
+    }
+
+    // Content hash of the whole table, in bracket order
+    public long fingerprint() {
+        long hash = size();
+        for (int row = 0; row < size(); row++) {
+            hash = Fingerprints.combine(hash, fingerprint(row));
+        }
+        return hash;
+    }
+
+    // Bounds in centavos; an empty upper bound means no limit
+    private static long parseBound(List<Object> row, int column, long emptyValue, int rowIndex) {
+        String text = cell(row, column);
+        if (text.isEmpty()) {
+            return emptyValue;
+        }
+        try {
+            return Centavos.fromPesos(Double.parseDouble(text));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid bracket bound '" + text + "' in matrix row " + (rowIndex + 1));
+        }
+    }
+
+    private static double parseValue(List<Object> row, int column) {
+        String text = cell(row, column);
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String cell(List<Object> row, int column) {
+        if (column >= row.size() || row.get(column) == null) {
+            return "";
+        }
+        return row.get(column).toString().replace(",", "").trim();
+    }
+}
@@ -0,0 +1,327 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// ===== Data Access Layer =====
+/*
+ * CsvDataSource: Reads the six sheets from local CSV files (File > Download > CSV in Google Sheets).
+ * Files are memory-mapped and parsed straight from the mapped bytes, so large attendance
+ * exports are read at disk speed without going through a Reader.
+ *
+ * Expected files inside the data folder, named after the sheets:
+ *   Employee Details.csv, Attendance Record.csv (first line is the header and is skipped)
+ *   SSS Matrix.csv, Philhealth Matrix.csv, Pag-ibig Matrix.csv, Withholding Tax Matrix.csv (no header)
+ *   plus one file per dated matrix version named in the deduction rules, e.g. SSS Matrix 2023.csv
+ *
+ * Employee writes append to Employee Details.csv; updates rewrite it through a temp file that
+ * replaces the original in one move, so readers never see a half-written file.
+ */
+class CsvDataSource implements DataSource {
+    static final String EMPLOYEE_FILE = "Employee Details.csv";
+    static final String ATTENDANCE_FILE = "Attendance Record.csv";
+    static final String SSS_FILE = "SSS Matrix.csv";
+    static final String PHILHEALTH_FILE = "Philhealth Matrix.csv";
+    static final String PAGIBIG_FILE = "Pag-ibig Matrix.csv";
+    static final String WITHHOLDINGTAX_FILE = "Withholding Tax Matrix.csv";
+
+    // Same starting rows as the ranges in GoogleSheetsHandler (A2 for data sheets, A1 for matrices)
+    private static final int HEADER_ROWS = 1;
+    private static final int NO_HEADER = 0;
+
+    // Files bigger than this are mapped one window at a time
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private final Path dataDir;
+
+    public CsvDataSource(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public Path getDataDir() { return dataDir; }
+
+    @Override
+    public List<List<Object>> fetchEmployeeData() throws IOException {
+        return readAll(dataDir.resolve(EMPLOYEE_FILE), HEADER_ROWS);
+    }
+
+    @Override
+    public List<List<Object>> fetchAttendanceData() throws IOException {
+        return readAll(dataDir.resolve(ATTENDANCE_FILE), HEADER_ROWS);
+    }
+
+    // Rows are handed over as soon as a chunk fills up, so the whole file is never held in memory
+    @Override
+    public void streamAttendanceData(int chunkRows, Consumer<List<List<Object>>> chunkConsumer) throws IOException {
+        class Chunker implements Consumer<List<Object>> {
+            private List<List<Object>> chunk = new ArrayList<>(chunkRows);
+
+            @Override
+            public void accept(List<Object> row) {
+                chunk.add(row);
+                if (chunk.size() == chunkRows) {
+                    flush();
+                }
+            }
+
+            void flush() {
+                if (!chunk.isEmpty()) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkRows);
+                }
+            }
+        }
+
+        Chunker chunker = new Chunker();
+        readRows(dataDir.resolve(ATTENDANCE_FILE), HEADER_ROWS, chunker);
+        chunker.flush();
+    }
+
+    @Override
+    public List<List<Object>> fetchSssMatrixData() throws IOException {
+        return readAll(dataDir.resolve(SSS_FILE), NO_HEADER);
+    }
+
+    @Override
+    public List<List<Object>> fetchPhilHealthMatrixData() throws IOException {
+        return readAll(dataDir.resolve(PHILHEALTH_FILE), NO_HEADER);
+    }
+
+    @Override
+    public List<List<Object>> fetchPagIbigMatrixData() throws IOException {
+        return readAll(dataDir.resolve(PAGIBIG_FILE), NO_HEADER);
+    }
+
+    @Override
+    public List<List<Object>> fetchWithHoldingTaxMatrixData() throws IOException {
+        return readAll(dataDir.resolve(WITHHOLDINGTAX_FILE), NO_HEADER);
+    }
+
+    @Override
+    public List<List<Object>> fetchMatrix(DataSheet sheet, String title) throws IOException {
+        return readAll(dataDir.resolve(title + ".csv"), NO_HEADER);
+    }
+
+    @Override
+    public synchronized void writeEmployees(List<List<Object>> appended, List<List<Object>> updated) throws IOException {
+        Path file = dataDir.resolve(EMPLOYEE_FILE);
+        if (updated.isEmpty()) {
+            appendRows(file, appended);
+            return;
+        }
+
+        // Header included, so it is written back unchanged
+        List<List<Object>> rows = readAll(file, NO_HEADER);
+        Map<Long, List<Object>> replacements = new HashMap<>();
+        for (List<Object> row : updated) {
+            replacements.put(RowParser.parseLong(RowParser.cell(row, RowParser.EMPLOYEE_NUMBER)), row);
+        }
+        for (int i = HEADER_ROWS; i < rows.size(); i++) {
+            List<Object> replacement = replacements.remove(RowParser.parseLong(RowParser.cell(rows.get(i), RowParser.EMPLOYEE_NUMBER)));
+            if (replacement != null) {
+                rows.set(i, replacement);
+            }
+        }
+        if (!replacements.isEmpty()) {
+            throw new IOException("Employees " + replacements.keySet() + " are not in " + file.getFileName());
+        }
+        rows.addAll(appended);
+        writeRows(file, rows);
+    }
+
+    static List<List<Object>> readAll(Path file, int skipRows) throws IOException {
+        long start = PayrollMetrics.start();
+        List<List<Object>> rows = new ArrayList<>();
+        readRows(file, skipRows, rows::add);
+        PayrollMetrics.timer("fetch." + file.getFileName()).record(start);
+        return rows;
+    }
+
+    /*
+     * Parses a CSV file row by row and hands every row to the sink.
+     * Handles quoted cells ("90,000"), escaped quotes ("") and CRLF line endings.
+     * Blank lines are skipped and trailing empty cells are dropped, the same way
+     * the Sheets values API trims them.
+     */
+    static void readRows(Path file, int skipRows, Consumer<List<Object>> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RowBuilder builder = new RowBuilder(skipRows, sink);
+            long size = channel.size();
+
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                long length = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                while (buffer.hasRemaining()) {
+                    builder.accept(buffer.get());
+                }
+            }
+            builder.finish();
+        }
+    }
+
+    // Replaces the file with the given rows, through a temp file in the same folder
+    static void writeRows(Path file, List<List<Object>> rows) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeAll(channel, rows);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Adds rows at the end of the file, starting a new line if its last one is unterminated
+    static void appendRows(Path file, List<List<Object>> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    channel.write(ByteBuffer.wrap(new byte[] { '\n' }), size);
+                }
+            }
+            channel.position(channel.size());
+            writeAll(channel, rows);
+        }
+    }
+
+    // Cells with commas, quotes or line breaks are quoted, quotes doubled; the reverse of RowBuilder
+    private static void writeAll(FileChannel channel, List<List<Object>> rows) throws IOException {
+        StringBuilder text = new StringBuilder(128 * rows.size());
+        for (List<Object> row : rows) {
+            for (int i = 0; i < row.size(); i++) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                String cell = row.get(i) == null ? "" : row.get(i).toString();
+                if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+                    text.append(cell);
+                } else {
+                    text.append('"').append(cell.replace("\"", "\"\"")).append('"');
+                }
+            }
+            text.append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /*
+     * RowBuilder: Byte-level CSV state machine. Its state survives across mapped windows,
+     * so a row (or even a quoted cell) may start in one window and end in the next.
+     */
+    private static final class RowBuilder {
+        private final Consumer<List<Object>> sink;
+        private int rowsToSkip;
+
+        private byte[] cell = new byte[64];
+        private int cellLength = 0;
+        private List<Object> row = new ArrayList<>();
+        private int lineLength = 0;
+        private boolean inQuotes = false;
+        private boolean quotePending = false;
+
+        RowBuilder(int rowsToSkip, Consumer<List<Object>> sink) {
+            this.rowsToSkip = rowsToSkip;
+            this.sink = sink;
+        }
+
+        void accept(byte b) {
+            if (quotePending) {
+                quotePending = false;
+                if (b == '"') {
+                    // "" inside a quoted cell is a literal quote
+                    append(b);
+                    return;
+                }
+                inQuotes = false;
+            }
+
+            if (inQuotes) {
+                if (b == '"') {
+                    quotePending = true;
+                } else {
+                    append(b);
+                }
+                return;
+            }
+
+            switch (b) {
+                case '"' -> {
+                    if (cellLength == 0) {
+                        inQuotes = true;
+                        lineLength++;
+                    } else {
+                        append(b);
+                    }
+                }
+                case ',' -> {
+                    endCell();
+                    lineLength++;
+                }
+                case '\n' -> endRow();
+                case '\r' -> { /* ignored, \n ends the line */ }
+                default -> append(b);
+            }
+        }
+
+        void finish() {
+            quotePending = false;
+            inQuotes = false;
+            endRow();
+        }
+
+        private void append(byte b) {
+            if (cellLength == cell.length) {
+                cell = Arrays.copyOf(cell, cell.length * 2);
+            }
+            cell[cellLength++] = b;
+            lineLength++;
+        }
+
+        private void endCell() {
+            row.add(new String(cell, 0, cellLength, StandardCharsets.UTF_8));
+            cellLength = 0;
+        }
+
+        private void endRow() {
+            if (lineLength == 0) {
+                return; // blank line
+            }
+            endCell();
+            lineLength = 0;
+
+            // Drop trailing empty cells like the Sheets API does
+            int last = row.size();
+            while (last > 0 && ((String) row.get(last - 1)).isEmpty()) {
+                last--;
+            }
+            List<Object> completed = last == row.size() ? row : new ArrayList<>(row.subList(0, last));
+            row = new ArrayList<>(completed.size());
+
+            if (rowsToSkip > 0) {
+                rowsToSkip--;
+                return;
+            }
+            sink.accept(completed);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// ===== Data Access Layer =====
+/*
+ * DataSource: Abstraction over where the six MotorPH sheets come from.
+ * Every method returns the rows exactly as the Google Sheets values API would
+ * (a list of rows, each a list of cell values), so the services don't care
+ * whether the data came from the network or from local files.
+ */
+interface DataSource {
+
+    // Set -Dmotorph.dataDir=<folder> to run from local CSV exports instead of Google Sheets
+    String DATA_DIR_PROPERTY = "motorph.dataDir";
+
+    // "Employee Details" sheet (without the header row)
+    List<List<Object>> fetchEmployeeData() throws IOException, GeneralSecurityException;
+
+    // "Attendance Record" sheet (without the header row)
+    List<List<Object>> fetchAttendanceData() throws IOException, GeneralSecurityException;
+
+    // Contribution and tax matrices
+    List<List<Object>> fetchSssMatrixData() throws IOException, GeneralSecurityException;
+    List<List<Object>> fetchPhilHealthMatrixData() throws IOException, GeneralSecurityException;
+    List<List<Object>> fetchPagIbigMatrixData() throws IOException, GeneralSecurityException;
+    List<List<Object>> fetchWithHoldingTaxMatrixData() throws IOException, GeneralSecurityException;
+
+    default List<List<Object>> fetch(DataSheet sheet) throws IOException, GeneralSecurityException {
+        return switch (sheet) {
+            case EMPLOYEE_DETAILS -> fetchEmployeeData();
+            case ATTENDANCE_RECORD -> fetchAttendanceData();
+            case SSS_MATRIX -> fetchSssMatrixData();
+            case PHILHEALTH_MATRIX -> fetchPhilHealthMatrixData();
+            case PAGIBIG_MATRIX -> fetchPagIbigMatrixData();
+            case WITHHOLDING_TAX_MATRIX -> fetchWithHoldingTaxMatrixData();
+        };
+    }
+
+    /*
+     * One version of a contribution/tax matrix, kept in its own tab (or file) with the sheet's
+     * layout, e.g. "SSS Matrix 2023" next to "SSS Matrix". The sheet's own title is the current
+     * version (see DeductionRules). Sources that only know the six sheets have no other versions.
+     */
+    default List<List<Object>> fetchMatrix(DataSheet sheet, String title) throws IOException, GeneralSecurityException {
+        if (sheet.getTitle().equals(title)) {
+            return fetch(sheet);
+        }
+        throw new IOException("This data source has no \"" + title + "\" sheet");
+    }
+
+    // Fetches several sheets at once. Sources that support it override this with a single round trip.
+    default Map<DataSheet, List<List<Object>>> fetchBatch(Set<DataSheet> sheets) throws IOException, GeneralSecurityException {
+        Map<DataSheet, List<List<Object>>> result = new EnumMap<>(DataSheet.class);
+        for (DataSheet sheet : sheets) {
+            result.put(sheet, fetch(sheet));
+        }
+        return result;
+    }
+
+    /*
+     * Streams the "Attendance Record" sheet in chunks of at most chunkRows rows, in sheet order,
+     * without a fixed end row. The default implementation fetches everything and slices it;
+     * sources that can read incrementally override it so only one chunk is held at a time.
+     */
+    default void streamAttendanceData(int chunkRows, Consumer<List<List<Object>>> chunkConsumer) throws IOException, GeneralSecurityException {
+        List<List<Object>> rows = fetchAttendanceData();
+        if (rows == null) {
+            return;
+        }
+        for (int from = 0; from < rows.size(); from += chunkRows) {
+            chunkConsumer.accept(rows.subList(from, Math.min(from + chunkRows, rows.size())));
+        }
+    }
+
+    /*
+     * Writes "Employee Details" rows (in the createEmployee column layout): appended rows go below
+     * the last employee, updated rows replace the row with the same employee number. Sources write
+     * each kind in as few calls as they can, never one call per row. Read-only sources refuse.
+     */
+    default void writeEmployees(List<List<Object>> appended, List<List<Object>> updated) throws IOException, GeneralSecurityException {
+        throw new IOException("This data source is read-only");
+    }
+
+    // Employee numbers already in "Employee Details", read from the sheet itself (not a cached copy)
+    default Set<Integer> fetchEmployeeNumbers() throws IOException, GeneralSecurityException {
+        Set<Integer> numbers = new HashSet<>();
+        List<List<Object>> rows = fetchEmployeeData();
+        if (rows != null) {
+            for (List<Object> row : rows) {
+                long number = RowParser.parseLong(RowParser.cell(row, RowParser.EMPLOYEE_NUMBER));
+                if (number != RowParser.INVALID && number == (int) number) {
+                    numbers.add((int) number);
+                }
+            }
+        }
+        return numbers;
+    }
+
+    // Picks the data source from the system properties, Google Sheets (with local snapshots) being the default
+    static DataSource fromSystemProperties() {
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir == null || dataDir.isBlank()) {
+            SnapshotCache cache = SnapshotCache.fromSystemProperties();
+            return cache == null ? new SheetsDataSource() : CachingDataSource.forSheets(cache);
+        }
+        return new CsvDataSource(Path.of(dataDir));
+    }
+}
+
+/*
+ * DataSheet: The six sheets of the MotorPH spreadsheet.
+ */
+enum DataSheet {
+    EMPLOYEE_DETAILS("Employee Details"),
+    ATTENDANCE_RECORD("Attendance Record"),
+    SSS_MATRIX("SSS Matrix"),
+    PHILHEALTH_MATRIX("Philhealth Matrix"),
+    PAGIBIG_MATRIX("Pag-ibig Matrix"),
+    WITHHOLDING_TAX_MATRIX("Withholding Tax Matrix");
+
+    // The four contribution/tax tables used by DeductionService
+    static final Set<DataSheet> MATRICES = Set.of(SSS_MATRIX, PHILHEALTH_MATRIX, PAGIBIG_MATRIX, WITHHOLDING_TAX_MATRIX);
+
+    private final String title;
+
+    DataSheet(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() { return title; }
+
+    // Resolves the sheet from a tab title, e.g. the part before '!' in "SSS Matrix!A1:C45"
+    static DataSheet fromTitle(String title) {
+        for (DataSheet sheet : values()) {
+            if (sheet.title.equals(title)) {
+                return sheet;
+            }
+        }
+        return null;
+    }
+}
+
+/*
+ * SheetsDataSource: The original data source, reading straight from Google Sheets.
+ */
+class SheetsDataSource implements DataSource {
+    @Override
+    public List<List<Object>> fetchEmployeeData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchEmployeeData();
+    }
+
+    @Override
+    public List<List<Object>> fetchAttendanceData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchAttendanceData();
+    }
+
+    @Override
+    public List<List<Object>> fetchSssMatrixData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchSssMatrixData();
+    }
+
+    @Override
+    public List<List<Object>> fetchPhilHealthMatrixData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchPhilHealthMatrixData();
+    }
+
+    @Override
+    public List<List<Object>> fetchPagIbigMatrixData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchPagIbigMatrixData();
+    }
+
+    @Override
+    public List<List<Object>> fetchWithHoldingTaxMatrixData() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchWithHoldingTaxMatrixData();
+    }
+
+    @Override
+    public List<List<Object>> fetchMatrix(DataSheet sheet, String title) throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchMatrixData(sheet, title);
+    }
+
+    // Reads open-ended ranges chunk by chunk until the sheet runs out of rows
+    @Override
+    public void streamAttendanceData(int chunkRows, Consumer<List<List<Object>>> chunkConsumer) throws IOException, GeneralSecurityException {
+        int firstRow = GoogleSheetsHandler.ATTENDANCE_FIRST_ROW;
+        while (true) {
+            List<List<Object>> chunk = GoogleSheetsHandler.fetchAttendanceRows(firstRow, chunkRows);
+            if (chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            chunkConsumer.accept(chunk);
+            // Sheets drops trailing empty rows, so a short chunk is the last one
+            if (chunk.size() < chunkRows) {
+                return;
+            }
+            firstRow += chunkRows;
+        }
+    }
+
+    // All requested ranges in one values().batchGet round trip
+    @Override
+    public Map<DataSheet, List<List<Object>>> fetchBatch(Set<DataSheet> sheets) throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.batchFetch(sheets);
+    }
+
+    // Only the employee number column
+    @Override
+    public Set<Integer> fetchEmployeeNumbers() throws IOException, GeneralSecurityException {
+        return GoogleSheetsHandler.fetchEmployeeSheetRows().keySet();
+    }
+
+    // One values().append for the new rows; updates need the sheet rows of their employees, then one values().batchUpdate
+    @Override
+    public void writeEmployees(List<List<Object>> appended, List<List<Object>> updated) throws IOException, GeneralSecurityException {
+        if (!updated.isEmpty()) {
+            Map<Integer, Integer> sheetRows = GoogleSheetsHandler.fetchEmployeeSheetRows();
+            Map<Integer, List<Object>> bySheetRow = new TreeMap<>();
+            for (List<Object> row : updated) {
+                Integer sheetRow = sheetRows.get((int) RowParser.parseLong(RowParser.cell(row, RowParser.EMPLOYEE_NUMBER)));
+                if (sheetRow == null) {
+                    throw new IOException("Employee " + row.get(RowParser.EMPLOYEE_NUMBER) + " is not in the sheet");
+                }
+                bySheetRow.put(sheetRow, row);
+            }
+            GoogleSheetsHandler.updateEmployeeRows(bySheetRow);
+        }
+        if (!appended.isEmpty()) {
+            GoogleSheetsHandler.appendEmployeeRows(appended);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.mmdc.motorph;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionFormula: The statutory parameters DeductionService applies on top of the matrices:
+ * the PhilHealth premium rate and how many ways the premium is split (employee and employer),
+ * the monthly Pag-IBIG cap, and how many weeks a monthly amount is split into (also the factor
+ * that turns a weekly taxable wage into the monthly one the tax matrix is written for).
+ * Each compiled DeductionTables carries the formula of its rule set (see DeductionRules).
+ */
+final class DeductionFormula {
+    // The parameters as they have always been in DeductionService
+    static final DeductionFormula STANDARD = new DeductionFormula(DeductionService.PHILHEALTH_RATE_MICROS,
+            DeductionService.PHILHEALTH_EMPLOYEE_SHARE, DeductionService.PAGIBIG_CAP_CENTAVOS, DeductionService.WEEKS_PER_MONTH);
+
+    private final long philHealthRateMicros;
+    private final long philHealthEmployeeShare;
+    private final long pagIbigCapCentavos;
+    private final long weeksPerMonth;
+
+    DeductionFormula(long philHealthRateMicros, long philHealthEmployeeShare, long pagIbigCapCentavos, long weeksPerMonth) {
+        if (philHealthEmployeeShare <= 0 || weeksPerMonth <= 0) {
+            throw new IllegalArgumentException("The PhilHealth split and the weeks per month must be positive");
+        }
+        this.philHealthRateMicros = philHealthRateMicros;
+        this.philHealthEmployeeShare = philHealthEmployeeShare;
+        this.pagIbigCapCentavos = pagIbigCapCentavos;
+        this.weeksPerMonth = weeksPerMonth;
+    }
+
+    public long getPhilHealthRateMicros() { return philHealthRateMicros; }
+    public long getPhilHealthEmployeeShare() { return philHealthEmployeeShare; }
+    public long getPagIbigCapCentavos() { return pagIbigCapCentavos; }
+    public long getWeeksPerMonth() { return weeksPerMonth; }
+
+    // Both divisors are powers of two, so VectorDeductionKernel can divide with shifts
+    boolean hasPowerOfTwoDivisors() {
+        return Long.bitCount(philHealthEmployeeShare) == 1 && Long.bitCount(weeksPerMonth) == 1;
+    }
+
+    public long fingerprint() {
+        long hash = Fingerprints.combine(philHealthRateMicros, philHealthEmployeeShare);
+        hash = Fingerprints.combine(hash, pagIbigCapCentavos);
+        return Fingerprints.combine(hash, weeksPerMonth);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DeductionFormula formula
+                && philHealthRateMicros == formula.philHealthRateMicros
+                && philHealthEmployeeShare == formula.philHealthEmployeeShare
+                && pagIbigCapCentavos == formula.pagIbigCapCentavos
+                && weeksPerMonth == formula.weeksPerMonth;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint());
+    }
+}
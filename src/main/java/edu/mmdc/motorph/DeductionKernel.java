@@ -0,0 +1,69 @@
+package edu.mmdc.motorph;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionKernel: The four weekly deductions for a whole batch of employees at once.
+ * Input and output are parallel primitive arrays (monthly salaries and weekly gross wages
+ * in, weekly SSS/PhilHealth/Pag-IBIG/tax out, all in centavos), so the inner loop touches
+ * no Employee objects. The amounts are exactly those of DeductionService.calculateAllDeductions.
+ *
+ * When the JVM runs with --add-modules jdk.incubator.vector the batch goes through
+ * VectorDeductionKernel, a whole vector of employees per step; otherwise (or with
+ * -Dmotorph.simd=false) through the scalar loop below. The vector kernel divides by shifting,
+ * so a formula whose PhilHealth split or weeks per month is not a power of two stays scalar.
+ */
+final class DeductionKernel {
+    static final boolean VECTORIZED = Boolean.parseBoolean(System.getProperty("motorph.simd", "true"))
+            && vectorModulePresent();
+
+    private static final PayrollMetrics.Timer BATCH_TIMER = PayrollMetrics.timer("deduction.batch");
+
+    private DeductionKernel() {
+    }
+
+    /*
+     * Fills sss, philHealth, pagIbig and tax [0, count) from monthlySalaries and weeklyGross.
+     * Net wage is weeklyGross minus the four.
+     */
+    static void compute(DeductionTables tables, long[] monthlySalaries, long[] weeklyGross,
+                        long[] sss, long[] philHealth, long[] pagIbig, long[] tax, int count) {
+        long start = PayrollMetrics.start();
+        if (VECTORIZED && tables.getFormula().hasPowerOfTwoDivisors()) {
+            VectorDeductionKernel.compute(tables, monthlySalaries, weeklyGross, sss, philHealth, pagIbig, tax, count);
+        } else {
+            computeScalar(tables, monthlySalaries, weeklyGross, sss, philHealth, pagIbig, tax, 0, count);
+        }
+        BATCH_TIMER.record(start);
+        PayrollMetrics.add("deduction.batch.employees", count);
+    }
+
+    // One employee at a time, [from, to); also does the vector kernel's leftover lanes
+    static void computeScalar(DeductionTables tables, long[] monthlySalaries, long[] weeklyGross,
+                              long[] sss, long[] philHealth, long[] pagIbig, long[] tax, int from, int to) {
+        DeductionFormula formula = tables.getFormula();
+        long weeks = formula.getWeeksPerMonth();
+        for (int i = from; i < to; i++) {
+            long monthlySalary = monthlySalaries[i];
+            sss[i] = Centavos.divide(DeductionService.calculateSssDeductionCentavos(monthlySalary, tables.getSss()), weeks);
+            philHealth[i] = Centavos.divide(DeductionService.calculatePhilHealthDeductionCentavos(monthlySalary, tables.getPhilHealth(), formula),
+                    weeks);
+            pagIbig[i] = Centavos.divide(DeductionService.calculatePagIbigDeductionCentavos(monthlySalary, tables.getPagIbig(), formula),
+                    weeks);
+            long taxableWage = weeklyGross[i] - sss[i] - philHealth[i] - pagIbig[i];
+            tax[i] = Centavos.divide(DeductionService.calculateTaxDeductionCentavos(tables.getWithHoldingTax(), taxableWage, formula),
+                    weeks);
+        }
+    }
+
+    // The incubator module is only resolved when asked for on the command line
+    private static boolean vectorModulePresent() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorDeductionKernel.lanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.mmdc.motorph;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionRuleSet: The deduction rules in force on a date, as resolved by DeductionRules:
+ * which version (tab or CSV file title) of each matrix applies, the formula parameters, and
+ * the dates this combination holds for. Rule sets compare by content only, so periods with
+ * the same rules share one compiled DeductionTables.
+ */
+final class DeductionRuleSet {
+    // Every sheet's own matrix with the standard formula, whatever the date
+    static final DeductionRuleSet STANDARD = new DeductionRuleSet(standardTitles(), DeductionFormula.STANDARD, null, null);
+
+    private final Map<DataSheet, String> matrixTitles;
+    private final DeductionFormula formula;
+    // First and last day of validity (both included); null when that end is open
+    private final LocalDate validFrom;
+    private final LocalDate validTo;
+
+    DeductionRuleSet(Map<DataSheet, String> matrixTitles, DeductionFormula formula, LocalDate validFrom, LocalDate validTo) {
+        this.matrixTitles = new EnumMap<>(matrixTitles);
+        this.formula = formula;
+        this.validFrom = validFrom;
+        this.validTo = validTo;
+    }
+
+    static Map<DataSheet, String> standardTitles() {
+        Map<DataSheet, String> titles = new EnumMap<>(DataSheet.class);
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            titles.put(sheet, sheet.getTitle());
+        }
+        return titles;
+    }
+
+    public String getMatrixTitle(DataSheet sheet) { return matrixTitles.get(sheet); }
+    public DeductionFormula getFormula() { return formula; }
+    public LocalDate getValidFrom() { return validFrom; }
+    public LocalDate getValidTo() { return validTo; }
+
+    // True if the matrix is the sheet's own (current) version
+    boolean isStandardMatrix(DataSheet sheet) {
+        return sheet.getTitle().equals(matrixTitles.get(sheet));
+    }
+
+    // True if any matrix is at its standard version
+    boolean usesStandardMatrix() {
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            if (isStandardMatrix(sheet)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean covers(LocalDate date) {
+        return (validFrom == null || !date.isBefore(validFrom)) && (validTo == null || !date.isAfter(validTo));
+    }
+
+    // e.g. "SSS Matrix 2023, Philhealth Matrix, Pag-ibig Matrix, Withholding Tax Matrix (2023-01-01 to 2023-12-31)"
+    public String describe() {
+        return String.join(", ", matrixTitles.values())
+                + " (" + (validFrom == null ? "..." : validFrom) + " to " + (validTo == null ? "..." : validTo) + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DeductionRuleSet ruleSet
+                && matrixTitles.equals(ruleSet.matrixTitles) && formula.equals(ruleSet.formula);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * matrixTitles.hashCode() + formula.hashCode();
+    }
+}
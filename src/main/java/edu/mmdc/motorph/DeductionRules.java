@@ -0,0 +1,316 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionRules: Effective-dated deduction rules, and the compiled tables of each version.
+ *
+ * Every matrix and every formula parameter may have versions with a validity date range, listed
+ * in a CSV file given with -Dmotorph.deductionRules=<file> (first line is the header):
+ *
+ *   Rule,Effective From,Effective To,Value
+ *   SSS Matrix,2023-01-01,2023-12-31,SSS Matrix 2023
+ *   PhilHealth Rate,2024-01-01,,5
+ *
+ * Rules are the four matrix titles, whose value is the tab (or CSV file) holding that version in
+ * the sheet's layout, and PhilHealth Rate (percent), PhilHealth Split (ways the premium is shared),
+ * Pag-IBIG Cap (pesos per month) and Weeks Per Month. Both dates are included; an empty one leaves
+ * that end open. Versions of one rule may not overlap, and on dates none of them covers the
+ * standard sheet or parameter applies. Without the property every date gets the standard rules.
+ *
+ * A pay period resolves by its last day to a DeductionRuleSet. Compiled rule sets stay in a
+ * least-recently-used cache of -Dmotorph.deductionRules.cacheSize entries (default 8), so payroll
+ * runs that go back across several statutory years fetch and compile each year's matrices once
+ * instead of on every run; a matrix shared by several cached rule sets is compiled only once.
+ */
+final class DeductionRules {
+    static final String RULES_PROPERTY = "motorph.deductionRules";
+    static final int DEFAULT_CACHE_SIZE = Integer.getInteger("motorph.deductionRules.cacheSize", 8);
+
+    private static final String PHILHEALTH_RATE = "PhilHealth Rate";
+    private static final String PHILHEALTH_SPLIT = "PhilHealth Split";
+    private static final String PAGIBIG_CAP = "Pag-IBIG Cap";
+    private static final String WEEKS_PER_MONTH = "Weeks Per Month";
+
+    // Columns of the rules file
+    private static final int RULE = 0;
+    private static final int EFFECTIVE_FROM = 1;
+    private static final int EFFECTIVE_TO = 2;
+    private static final int VALUE = 3;
+
+    private static final PayrollMetrics.Timer COMPILE_TIMER = PayrollMetrics.timer("deduction.rules.compile");
+    private static final LongAdder CACHE_HITS = PayrollMetrics.counter("deduction.rules.cacheHits");
+    private static final LongAdder CACHE_MISSES = PayrollMetrics.counter("deduction.rules.cacheMisses");
+    private static final LongAdder CACHE_EVICTIONS = PayrollMetrics.counter("deduction.rules.cacheEvictions");
+
+    /*
+     * Version: One dated value of a rule. Days are epoch days, both included; open ends are
+     * Long.MIN_VALUE and Long.MAX_VALUE. Matrices keep the title, parameters the parsed amount.
+     */
+    private static final class Version {
+        final long from;
+        final long to;
+        final String title;
+        final long amount;
+
+        Version(long from, long to, String title, long amount) {
+            this.from = from;
+            this.to = to;
+            this.title = title;
+            this.amount = amount;
+        }
+    }
+
+    private final DataSource dataSource;
+    // Versions of each rule, by rule name, sorted by start date
+    private final Map<String, List<Version>> versions;
+    private final int cacheSize;
+
+    // Compiled rule sets, least recently used first; guarded by this
+    private final LinkedHashMap<DeductionRuleSet, DeductionTables> compiled;
+    // Bumped by invalidate(), so a compile that started before it is not cached; guarded by this
+    private long generation;
+
+    private DeductionRules(DataSource dataSource, Map<String, List<Version>> versions, int cacheSize) {
+        this.dataSource = dataSource;
+        this.versions = versions;
+        this.cacheSize = Math.max(1, cacheSize);
+        this.compiled = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DeductionRuleSet, DeductionTables> eldest) {
+                if (size() <= DeductionRules.this.cacheSize) {
+                    return false;
+                }
+                CACHE_EVICTIONS.increment();
+                return true;
+            }
+        };
+    }
+
+    // The standard rules for every date
+    static DeductionRules standard(DataSource dataSource) {
+        return new DeductionRules(dataSource, Map.of(), DEFAULT_CACHE_SIZE);
+    }
+
+    // The rules file named by -Dmotorph.deductionRules; the standard rules if there is none or it cannot be read
+    static DeductionRules fromSystemProperties(DataSource dataSource) {
+        String file = System.getProperty(RULES_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return standard(dataSource);
+        }
+        try {
+            return load(dataSource, Path.of(file), DEFAULT_CACHE_SIZE);
+        } catch (IOException e) {
+            System.out.println("Deduction rules unavailable, using the standard rules: " + e.getMessage());
+            return standard(dataSource);
+        }
+    }
+
+    static DeductionRules load(DataSource dataSource, Path file, int cacheSize) throws IOException {
+        List<List<Object>> rows = CsvDataSource.readAll(file, 1);
+        Map<String, List<Version>> versions = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            String rule = text(row, RULE);
+            try {
+                versions.computeIfAbsent(rule, name -> new ArrayList<>()).add(parseVersion(rule, row));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                // Line numbers as in the file, after the header
+                throw new IOException(file.getFileName() + " line " + (i + 2) + ": " + e.getMessage(), e);
+            }
+        }
+        for (Map.Entry<String, List<Version>> entry : versions.entrySet()) {
+            List<Version> list = entry.getValue();
+            list.sort(Comparator.comparingLong(version -> version.from));
+            for (int i = 1; i < list.size(); i++) {
+                if (list.get(i).from <= list.get(i - 1).to) {
+                    throw new IOException(file.getFileName() + ": versions of " + entry.getKey() + " overlap");
+                }
+            }
+        }
+        return new DeductionRules(dataSource, versions, cacheSize);
+    }
+
+    private static Version parseVersion(String rule, List<Object> row) {
+        String from = text(row, EFFECTIVE_FROM);
+        String to = text(row, EFFECTIVE_TO);
+        long fromDay = from.isEmpty() ? Long.MIN_VALUE : LocalDate.parse(from).toEpochDay();
+        long toDay = to.isEmpty() ? Long.MAX_VALUE : LocalDate.parse(to).toEpochDay();
+        if (toDay < fromDay) {
+            throw new IllegalArgumentException("Effective To is before Effective From");
+        }
+
+        String value = text(row, VALUE);
+        DataSheet sheet = DataSheet.fromTitle(rule);
+        if (sheet != null && DataSheet.MATRICES.contains(sheet)) {
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("No sheet named for " + rule);
+            }
+            return new Version(fromDay, toDay, value, 0);
+        }
+        long amount = switch (rule) {
+            case PHILHEALTH_RATE -> Centavos.percentToMicros(Double.parseDouble(value));
+            case PAGIBIG_CAP -> RowParser.parseCentavos(value);
+            case PHILHEALTH_SPLIT, WEEKS_PER_MONTH -> RowParser.parseLong(value);
+            default -> throw new IllegalArgumentException("Unknown rule \"" + rule + "\"");
+        };
+        if (amount == RowParser.INVALID || amount < 0
+                || (amount == 0 && (rule.equals(PHILHEALTH_SPLIT) || rule.equals(WEEKS_PER_MONTH)))) {
+            throw new IllegalArgumentException("Invalid " + rule + " \"" + value + "\"");
+        }
+        return new Version(fromDay, toDay, null, amount);
+    }
+
+    private static String text(List<Object> row, int column) {
+        CharSequence cell = RowParser.cell(row, column);
+        return cell == null ? "" : cell.toString().trim();
+    }
+
+    // ===== Resolution =====
+
+    // The rules in force on the date, valid for the longest range around it where none of them changes
+    public DeductionRuleSet resolve(LocalDate date) {
+        if (versions.isEmpty()) {
+            return DeductionRuleSet.STANDARD;
+        }
+        long day = date.toEpochDay();
+        long[] validity = { Long.MIN_VALUE, Long.MAX_VALUE };
+
+        Map<DataSheet, String> titles = new EnumMap<>(DataSheet.class);
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            Version version = versionOn(sheet.getTitle(), day, validity);
+            titles.put(sheet, version == null ? sheet.getTitle() : version.title);
+        }
+        DeductionFormula formula = new DeductionFormula(
+                amountOn(PHILHEALTH_RATE, day, validity, DeductionFormula.STANDARD.getPhilHealthRateMicros()),
+                amountOn(PHILHEALTH_SPLIT, day, validity, DeductionFormula.STANDARD.getPhilHealthEmployeeShare()),
+                amountOn(PAGIBIG_CAP, day, validity, DeductionFormula.STANDARD.getPagIbigCapCentavos()),
+                amountOn(WEEKS_PER_MONTH, day, validity, DeductionFormula.STANDARD.getWeeksPerMonth()));
+
+        return new DeductionRuleSet(titles, formula,
+                validity[0] == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(validity[0]),
+                validity[1] == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(validity[1]));
+    }
+
+    private long amountOn(String rule, long day, long[] validity, long standard) {
+        Version version = versionOn(rule, day, validity);
+        return version == null ? standard : version.amount;
+    }
+
+    // The rule's version covering the day (null: the standard one), narrowing validity to where that holds
+    private Version versionOn(String rule, long day, long[] validity) {
+        for (Version version : versions.getOrDefault(rule, List.of())) {
+            if (version.to < day) {
+                validity[0] = Math.max(validity[0], version.to + 1);
+            } else if (version.from > day) {
+                validity[1] = Math.min(validity[1], version.from - 1);
+                return null;
+            } else {
+                validity[0] = Math.max(validity[0], version.from);
+                validity[1] = Math.min(validity[1], version.to);
+                return version;
+            }
+        }
+        return null;
+    }
+
+    // ===== Compiled rule sets =====
+
+    /*
+     * The compiled tables of the rules in force on the date, from the cache when they are there.
+     * Matrices at their standard version come from the warm-up if one is given (it may be null),
+     * e.g. the one a snapshot was built with, so its payslips use the very matrices it serves;
+     * a cached rule set compiled from another warm-up's matrices is compiled again.
+     */
+    public DeductionTables tablesFor(LocalDate date, DeductionTablesWarmup warmup) throws IOException, GeneralSecurityException {
+        DeductionRuleSet ruleSet = resolve(date);
+        DeductionTables standard = warmup != null && ruleSet.usesStandardMatrix() ? warmup.await() : null;
+        long compiledGeneration;
+        synchronized (this) {
+            DeductionTables tables = compiled.get(ruleSet);
+            if (tables != null && (standard == null || sharesStandardMatrices(tables, ruleSet, standard))) {
+                CACHE_HITS.increment();
+                return tables;
+            }
+            compiledGeneration = generation;
+        }
+        CACHE_MISSES.increment();
+
+        // Compiled outside the lock, so lookups of cached rule sets never wait for a fetch
+        long start = PayrollMetrics.start();
+        DeductionTables tables = compile(ruleSet, standard);
+        COMPILE_TIMER.record(start);
+        synchronized (this) {
+            if (generation == compiledGeneration) {
+                compiled.put(ruleSet, tables);
+            }
+        }
+        return tables;
+    }
+
+    // Drops every compiled rule set, e.g. when the matrices are fetched again on refresh
+    public synchronized void invalidate() {
+        compiled.clear();
+        generation++;
+    }
+
+    public synchronized int cachedRuleSets() {
+        return compiled.size();
+    }
+
+    // standard: the tables standard matrices are taken from, or null to fetch them like any other version
+    private DeductionTables compile(DeductionRuleSet ruleSet, DeductionTables standard) throws IOException, GeneralSecurityException {
+        Map<DataSheet, ContributionTable> tables = new EnumMap<>(DataSheet.class);
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            ContributionTable table;
+            if (standard != null && ruleSet.isStandardMatrix(sheet)) {
+                table = standard.of(sheet);
+            } else {
+                table = cachedMatrix(sheet, ruleSet.getMatrixTitle(sheet));
+                if (table == null) {
+                    table = ContributionTable.compile(dataSource.fetchMatrix(sheet, ruleSet.getMatrixTitle(sheet)));
+                }
+            }
+            tables.put(sheet, table);
+        }
+        // The warm-up's own tables when nothing differs, so the standard rules stay one object
+        if (standard != null && ruleSet.equals(DeductionRuleSet.STANDARD)) {
+            return standard;
+        }
+        return new DeductionTables(tables.get(DataSheet.SSS_MATRIX), tables.get(DataSheet.PHILHEALTH_MATRIX),
+                tables.get(DataSheet.PAGIBIG_MATRIX), tables.get(DataSheet.WITHHOLDING_TAX_MATRIX), ruleSet.getFormula());
+    }
+
+    // True if the rule set's standard matrices in the tables are those of standard
+    private static boolean sharesStandardMatrices(DeductionTables tables, DeductionRuleSet ruleSet, DeductionTables standard) {
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            if (ruleSet.isStandardMatrix(sheet) && tables.of(sheet) != standard.of(sheet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The matrix version as compiled for another cached rule set, or null; iterating leaves the LRU order alone
+    private synchronized ContributionTable cachedMatrix(DataSheet sheet, String title) {
+        for (Map.Entry<DeductionRuleSet, DeductionTables> entry : compiled.entrySet()) {
+            if (title.equals(entry.getKey().getMatrixTitle(sheet))) {
+                return entry.getValue().of(sheet);
+            }
+        }
+        return null;
+    }
+}
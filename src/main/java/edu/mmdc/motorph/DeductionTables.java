@@ -0,0 +1,66 @@
+package edu.mmdc.motorph;
+
+import java.util.List;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionTables: The four compiled matrices used for one payroll computation, with the
+ * formula parameters of the same rule set.
+ */
+final class DeductionTables {
+    private final ContributionTable sss;
+    private final ContributionTable philHealth;
+    private final ContributionTable pagIbig;
+    private final ContributionTable withHoldingTax;
+    private final DeductionFormula formula;
+
+    public DeductionTables(ContributionTable sss, ContributionTable philHealth,
+                           ContributionTable pagIbig, ContributionTable withHoldingTax) {
+        this(sss, philHealth, pagIbig, withHoldingTax, DeductionFormula.STANDARD);
+    }
+
+    public DeductionTables(ContributionTable sss, ContributionTable philHealth,
+                           ContributionTable pagIbig, ContributionTable withHoldingTax, DeductionFormula formula) {
+        this.sss = sss;
+        this.philHealth = philHealth;
+        this.pagIbig = pagIbig;
+        this.withHoldingTax = withHoldingTax;
+        this.formula = formula;
+    }
+
+    // Parses the raw sheet matrices once
+    public static DeductionTables compile(List<List<Object>> sssMatrix, List<List<Object>> philHealthMatrix,
+                                          List<List<Object>> pagIbigMatrix, List<List<Object>> withHoldingTaxMatrix) {
+        return new DeductionTables(
+            ContributionTable.compile(sssMatrix),
+            ContributionTable.compile(philHealthMatrix),
+            ContributionTable.compile(pagIbigMatrix),
+            ContributionTable.compile(withHoldingTaxMatrix)
+        );
+    }
+
+    public ContributionTable getSss() { return sss; }
+    public ContributionTable getPhilHealth() { return philHealth; }
+    public ContributionTable getPagIbig() { return pagIbig; }
+    public ContributionTable getWithHoldingTax() { return withHoldingTax; }
+    public DeductionFormula getFormula() { return formula; }
+
+    // The table compiled from one of the four matrix sheets
+    ContributionTable of(DataSheet sheet) {
+        return switch (sheet) {
+            case SSS_MATRIX -> sss;
+            case PHILHEALTH_MATRIX -> philHealth;
+            case PAGIBIG_MATRIX -> pagIbig;
+            case WITHHOLDING_TAX_MATRIX -> withHoldingTax;
+            default -> throw new IllegalArgumentException(sheet.getTitle() + " is not a deduction matrix");
+        };
+    }
+
+    // Content hash of the four tables and the formula; equal fingerprints mean every deduction comes out the same
+    public long fingerprint() {
+        long hash = Fingerprints.combine(sss.fingerprint(), philHealth.fingerprint());
+        hash = Fingerprints.combine(hash, pagIbig.fingerprint());
+        hash = Fingerprints.combine(hash, withHoldingTax.fingerprint());
+        return Fingerprints.combine(hash, formula.fingerprint());
+    }
+}
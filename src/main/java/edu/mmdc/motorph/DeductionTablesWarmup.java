@@ -0,0 +1,128 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ===== Deduction Layer =====
+/*
+ * DeductionTablesWarmup: Fetches and compiles the four deduction matrices in the background.
+ * A virtual thread fetches all four in one DataSource.fetchBatch call (a single values().batchGet
+ * on Google Sheets) and compiles each table in turn. Callers can check the readiness of each table;
+ * await() blocks only if the tables are needed before they are ready.
+ */
+final class DeductionTablesWarmup {
+    enum State { LOADING, READY, FAILED }
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<DataSheet, CompletableFuture<ContributionTable>> tables = new EnumMap<>(DataSheet.class);
+    private volatile DeductionTables compiled;
+    // Only the startup warm-up shows up in the StartupTimer report
+    private final boolean atStartup;
+
+    private DeductionTablesWarmup(boolean atStartup) {
+        this.atStartup = atStartup;
+    }
+
+    // The warm-up at startup, timed in the startup report
+    public static DeductionTablesWarmup start(DataSource dataSource) {
+        return start(dataSource, true);
+    }
+
+    // A later fetch of the matrices, e.g. for a refresh; not timed
+    public static DeductionTablesWarmup refetch(DataSource dataSource) {
+        return start(dataSource, false);
+    }
+
+    private static DeductionTablesWarmup start(DataSource dataSource, boolean atStartup) {
+        DeductionTablesWarmup warmup = new DeductionTablesWarmup(atStartup);
+        for (DataSheet sheet : DataSheet.MATRICES) {
+            warmup.tables.put(sheet, new CompletableFuture<>());
+        }
+        EXECUTOR.execute(() -> warmup.load(dataSource));
+        return warmup;
+    }
+
+    // One round trip for the four matrices; a failed fetch fails every table
+    private void load(DataSource dataSource) {
+        long start = System.nanoTime();
+        Map<DataSheet, List<List<Object>>> matrices;
+        try {
+            matrices = dataSource.fetchBatch(DataSheet.MATRICES);
+        } catch (Exception e) {
+            tables.values().forEach(table -> table.completeExceptionally(e));
+            return;
+        }
+        if (atStartup) {
+            StartupTimer.record("fetch deduction matrices", start);
+        }
+        for (Map.Entry<DataSheet, CompletableFuture<ContributionTable>> table : tables.entrySet()) {
+            try {
+                table.getValue().complete(ContributionTable.compile(matrices.get(table.getKey())));
+            } catch (RuntimeException e) {
+                table.getValue().completeExceptionally(e);
+            }
+        }
+    }
+
+    public State getState(DataSheet sheet) {
+        CompletableFuture<ContributionTable> table = tables.get(sheet);
+        if (!table.isDone()) {
+            return State.LOADING;
+        }
+        return table.isCompletedExceptionally() ? State.FAILED : State.READY;
+    }
+
+    public boolean isReady() {
+        return compiled != null || tables.values().stream().allMatch(table -> table.isDone() && !table.isCompletedExceptionally());
+    }
+
+    // e.g. "SSS Matrix: READY, Philhealth Matrix: LOADING, ..."
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        for (DataSheet sheet : tables.keySet()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(sheet.getTitle()).append(": ").append(getState(sheet));
+        }
+        return text.toString();
+    }
+
+    // The compiled tables, waiting for any that are still loading
+    public DeductionTables await() throws IOException {
+        DeductionTables result = compiled;
+        if (result != null) {
+            return result;
+        }
+
+        long start = System.nanoTime();
+        boolean waited = !isReady();
+        try {
+            result = new DeductionTables(
+                tables.get(DataSheet.SSS_MATRIX).get(),
+                tables.get(DataSheet.PHILHEALTH_MATRIX).get(),
+                tables.get(DataSheet.PAGIBIG_MATRIX).get(),
+                tables.get(DataSheet.WITHHOLDING_TAX_MATRIX).get()
+            );
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("Error fetching Google Sheets matrices: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the deduction matrices", e);
+        }
+
+        if (waited && atStartup) {
+            StartupTimer.record("waited for deduction matrices", start);
+        }
+        compiled = result;
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+package edu.mmdc.motorph;
+
+import java.util.Arrays;
+import java.util.List;
+
+// ===== Service Layer =====
+/*
+ * EmployeeIndex: In-memory lookup of employees by employee number, built once per data snapshot.
+ * Each employee number maps to a row of the snapshot's EmployeeStore. When employee numbers are
+ * (nearly) contiguous, as in the MotorPH sheet (10001, 10002, ...), the row is found by direct
+ * array offset; otherwise an open-addressing int hash table is used. Either way a lookup is O(1)
+ * with no boxing and no I/O.
+ */
+final class EmployeeIndex {
+    private static final int EMPTY = -1;
+
+    // Columns of the snapshot, in sheet order
+    private final EmployeeStore store;
+
+    // Dense mode: slotByOffset[number - minNumber]
+    private final int minNumber;
+    private final int[] slotByOffset;
+
+    // Hash mode: linear probing over keys/slots, capacity is a power of two
+    private final int[] keys;
+    private final int[] slots;
+
+    public EmployeeIndex(List<Employee> employeeList) {
+        this(EmployeeStore.of(employeeList));
+    }
+
+    public EmployeeIndex(EmployeeStore store) {
+        this.store = store;
+        int count = store.size();
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int number = store.employeeNumber(i);
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+
+        long span = count == 0 ? 0 : (long) max - min + 1;
+        if (span <= 2L * count + 16) {
+            this.minNumber = min;
+            this.slotByOffset = new int[(int) span];
+            Arrays.fill(slotByOffset, EMPTY);
+            this.keys = null;
+            this.slots = null;
+            for (int i = 0; i < count; i++) {
+                int offset = store.employeeNumber(i) - min;
+                // Keep the first row for a duplicated number, like the old sheet scan did
+                if (slotByOffset[offset] == EMPTY) {
+                    slotByOffset[offset] = i;
+                }
+            }
+        } else {
+            this.minNumber = 0;
+            this.slotByOffset = null;
+            int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.slots = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+            for (int i = 0; i < count; i++) {
+                int number = store.employeeNumber(i);
+                int at = probe(number);
+                if (slots[at] == EMPTY) {
+                    keys[at] = number;
+                    slots[at] = i;
+                }
+            }
+        }
+    }
+
+    // Returns the employee with this number, or null if there is none
+    public Employee get(int employeeNumber) {
+        int slot = slotOf(employeeNumber);
+        return slot == EMPTY ? null : store.get(slot);
+    }
+
+    // Hours worked in the computed week, 0 when the employee is unknown
+    public double getHours(int employeeNumber) {
+        int slot = slotOf(employeeNumber);
+        return slot == EMPTY ? 0.0 : store.centiHoursWorked(slot) / (double) Centavos.CENTI_HOURS_PER_HOUR;
+    }
+
+    // Row of the employee in getStore(), or -1 if there is none
+    public int rowOf(int employeeNumber) {
+        return slotOf(employeeNumber);
+    }
+
+    public boolean contains(int employeeNumber) {
+        return slotOf(employeeNumber) != EMPTY;
+    }
+
+    // All employees in sheet order
+    public List<Employee> getEmployees() {
+        return store.asList();
+    }
+
+    public EmployeeStore getStore() { return store; }
+
+    public int size() { return store.size(); }
+
+    private int slotOf(int employeeNumber) {
+        if (slotByOffset != null) {
+            long offset = (long) employeeNumber - minNumber;
+            if (offset < 0 || offset >= slotByOffset.length) {
+                return EMPTY;
+            }
+            return slotByOffset[(int) offset];
+        }
+        return slots[probe(employeeNumber)];
+    }
+
+    // Position of the key, or of the empty cell where it would go
+    private int probe(int key) {
+        int mask = keys.length - 1;
+        int at = mix(key) & mask;
+        while (slots[at] != EMPTY && keys[at] != key) {
+            at = (at + 1) & mask;
+        }
+        return at;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,412 @@
+package edu.mmdc.motorph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// ===== Service Layer =====
+/*
+ * EmployeeSearchIndex: Finds employees by name, position, status or immediate supervisor.
+ * Every field is split into lower-case words, and each word maps to the employees it appears
+ * in (a TreeMap, so all the words starting with a prefix are one subMap). A search needs no
+ * Employee objects and no sheet access.
+ *
+ * Every word of the query must match a word of the employee, by
+ *   - exact word:          "garcia"
+ *   - prefix:              "gar" -> Garcia, Garcia-Lim
+ *   - edit distance:       "gracia" -> Garcia (1 edit for words of 4+ letters, 2 for 7+;
+ *                          a swapped pair of letters is one edit), also against the start of
+ *                          longer words, so a typo can still be typed on
+ * Hits are ranked by how well each query word matched (exact > prefix > fuzzy) times the weight
+ * of the field it matched in (names > position > supervisor > status), then by name.
+ *
+ * Employees are numbered with small slots (reused after a remove), and each word keeps the slots
+ * it occurs in as int arrays, so scoring a search is array work with no boxing.
+ *
+ * The index is updated one employee at a time (put/remove); EmployeeService.getSearchIndex()
+ * brings it up to date with a new snapshot and with queued writes, touching only what changed.
+ */
+final class EmployeeSearchIndex {
+    enum Field {
+        LAST_NAME(8), FIRST_NAME(8), POSITION(4), SUPERVISOR(2), STATUS(1);
+
+        final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Match quality of one query word
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    private static final int FUZZY = 2;
+    private static final int FUZZY_PREFIX = 1;
+
+    private static final Field[] FIELDS = Field.values();
+
+    // Highest field weight for every set of fields (bit per Field)
+    private static final int[] BEST_WEIGHT = new int[1 << FIELDS.length];
+
+    static {
+        for (int fields = 0; fields < BEST_WEIGHT.length; fields++) {
+            for (Field field : FIELDS) {
+                if ((fields & (1 << field.ordinal())) != 0) {
+                    BEST_WEIGHT[fields] = Math.max(BEST_WEIGHT[fields], field.weight);
+                }
+            }
+        }
+    }
+
+    /*
+     * Document: The indexed fields of one employee, as given to put().
+     */
+    private static final class Document {
+        final int employeeNumber;
+        final int slot;
+        final String[] values;
+        final String displayName;
+
+        Document(int employeeNumber, int slot, String[] values) {
+            this.employeeNumber = employeeNumber;
+            this.slot = slot;
+            this.values = values;
+            this.displayName = values[Field.LAST_NAME.ordinal()] + " " + values[Field.FIRST_NAME.ordinal()];
+        }
+    }
+
+    /*
+     * Postings: The slots a word occurs in, each with the fields it occurs in there; unordered.
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int[] fields = new int[4];
+        int size;
+
+        // A document's words are added together, so a repeat of the word is the last entry
+        void add(int slot, int field) {
+            if (size > 0 && slots[size - 1] == slot) {
+                fields[size - 1] |= field;
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            slots[size] = slot;
+            fields[size] = field;
+            size++;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    fields[i] = fields[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    // Guarded by this
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private Document[] bySlot = new Document[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+
+    // Per-search scratch, indexed by slot and all zero between searches
+    private int[] wordScores = new int[16];
+    private int[] totals = new int[16];
+    private int[] matchedWords = new int[16];
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    // Edit distance rows, as long as the longest indexed word
+    private int[][] distanceRows = new int[3][16];
+
+    /*
+     * Hit: One matching employee and its score.
+     */
+    static final class Hit {
+        private final int employeeNumber;
+        private final int score;
+        // Tie-breaker for the ranking
+        private final String displayName;
+
+        Hit(int employeeNumber, int score, String displayName) {
+            this.employeeNumber = employeeNumber;
+            this.score = score;
+            this.displayName = displayName;
+        }
+
+        public int getEmployeeNumber() { return employeeNumber; }
+        public int getScore() { return score; }
+    }
+
+    /*
+     * Page: One page of ranked hits, with the total number of matching employees.
+     */
+    static final class Page {
+        private final List<Hit> hits;
+        private final int total;
+        private final int offset;
+
+        Page(List<Hit> hits, int total, int offset) {
+            this.hits = hits;
+            this.total = total;
+            this.offset = offset;
+        }
+
+        public List<Hit> getHits() { return hits; }
+        public int getTotal() { return total; }
+        public int getOffset() { return offset; }
+        public boolean hasMore() { return offset + hits.size() < total; }
+    }
+
+    // Adds the employee, or replaces what was indexed for it; does nothing if no field changed
+    public synchronized void put(int employeeNumber, CharSequence lastName, CharSequence firstName, CharSequence position,
+                                 CharSequence supervisor, CharSequence status) {
+        String[] values = { text(lastName), text(firstName), text(position), text(supervisor), text(status) };
+        Document old = documents.get(employeeNumber);
+        if (old != null && Arrays.equals(old.values, values)) {
+            return;
+        }
+        if (old != null) {
+            unindex(old);
+        }
+        Document document = new Document(employeeNumber, old != null ? old.slot : allocateSlot(), values);
+        documents.put(employeeNumber, document);
+        bySlot[document.slot] = document;
+        for (Field field : FIELDS) {
+            for (String word : words(values[field.ordinal()])) {
+                words.computeIfAbsent(word, w -> new Postings()).add(document.slot, 1 << field.ordinal());
+                if (word.length() >= distanceRows[0].length) {
+                    distanceRows = new int[3][word.length() + 1];
+                }
+            }
+        }
+    }
+
+    public synchronized void remove(int employeeNumber) {
+        Document old = documents.remove(employeeNumber);
+        if (old != null) {
+            unindex(old);
+            bySlot[old.slot] = null;
+            freeSlots[freeCount++] = old.slot;
+        }
+    }
+
+    public synchronized boolean contains(int employeeNumber) {
+        return documents.containsKey(employeeNumber);
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    // Employee numbers in the index, for dropping the ones a new snapshot no longer has
+    public synchronized int[] employeeNumbers() {
+        return documents.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /*
+     * The hits from offset on, at most limit of them, best first. An empty query matches nobody.
+     */
+    public synchronized Page search(String query, int offset, int limit) {
+        List<String> queryWords = words(text(query));
+        int[] matches = new int[0];
+        int matchCount = 0;
+        for (int k = 0; k < queryWords.size(); k++) {
+            touchedCount = 0;
+            match(queryWords.get(k));
+
+            // Keep the slots that matched every word so far, adding up their scores
+            if (k == 0) {
+                matches = new int[touchedCount];
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                if (matchedWords[slot] == k) {
+                    matchedWords[slot] = k + 1;
+                    totals[slot] += wordScores[slot];
+                    if (k == 0) {
+                        matches[matchCount++] = slot;
+                    }
+                }
+                wordScores[slot] = 0;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < matchCount; i++) {
+            int slot = matches[i];
+            if (matchedWords[slot] == queryWords.size()) {
+                Document document = bySlot[slot];
+                hits.add(new Hit(document.employeeNumber, totals[slot], document.displayName));
+            }
+            matchedWords[slot] = 0;
+            totals[slot] = 0;
+        }
+        hits.sort((a, b) -> {
+            if (a.score != b.score) {
+                return Integer.compare(b.score, a.score);
+            }
+            int byName = a.displayName.compareTo(b.displayName);
+            return byName != 0 ? byName : Integer.compare(a.employeeNumber, b.employeeNumber);
+        });
+        int from = Math.min(Math.max(0, offset), hits.size());
+        int to = Math.min(hits.size(), from + Math.max(0, limit));
+        return new Page(List.copyOf(hits.subList(from, to)), hits.size(), from);
+    }
+
+    // Puts the query word's best score for every slot it matches in wordScores (those slots in touched)
+    private void match(String queryWord) {
+        Postings exact = words.get(queryWord);
+        if (exact != null) {
+            score(exact, EXACT);
+        }
+        for (Postings postings : words.subMap(queryWord, false, queryWord + Character.MAX_VALUE, false).values()) {
+            score(postings, PREFIX);
+        }
+
+        int maxEdits = maxEdits(queryWord.length());
+        if (maxEdits == 0) {
+            return;
+        }
+        for (Map.Entry<String, Postings> entry : words.entrySet()) {
+            String word = entry.getKey();
+            if (word.startsWith(queryWord)) {
+                continue;
+            }
+            if (editDistance(queryWord, word, word.length(), maxEdits) <= maxEdits) {
+                score(entry.getValue(), FUZZY);
+            } else if (word.length() > queryWord.length()
+                    && editDistance(queryWord, word, queryWord.length(), maxEdits) <= maxEdits) {
+                score(entry.getValue(), FUZZY_PREFIX);
+            }
+        }
+    }
+
+    private void score(Postings postings, int quality) {
+        for (int i = 0; i < postings.size; i++) {
+            int slot = postings.slots[i];
+            if (wordScores[slot] == 0) {
+                touched[touchedCount++] = slot;
+            }
+            wordScores[slot] = Math.max(wordScores[slot], quality * BEST_WEIGHT[postings.fields[i]]);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = slotCount++;
+        if (slotCount > bySlot.length) {
+            int capacity = bySlot.length * 2;
+            bySlot = Arrays.copyOf(bySlot, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+            wordScores = Arrays.copyOf(wordScores, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+            matchedWords = Arrays.copyOf(matchedWords, capacity);
+            touched = Arrays.copyOf(touched, capacity);
+        }
+        return slot;
+    }
+
+    private void unindex(Document document) {
+        for (Field field : FIELDS) {
+            for (String word : words(document.values[field.ordinal()])) {
+                Postings postings = words.get(word);
+                if (postings == null) {
+                    continue;
+                }
+                postings.remove(document.slot);
+                if (postings.size == 0) {
+                    words.remove(word);
+                }
+            }
+        }
+    }
+
+    // Typos allowed for a query word of this length
+    static int maxEdits(int length) {
+        return length < 4 ? 0 : length < 7 ? 1 : 2;
+    }
+
+    /*
+     * Edit distance counting a swap of two neighbouring letters as one edit (optimal string
+     * alignment), between a and the first length characters of b (an indexed word); max + 1 as
+     * soon as it is known to exceed max. Only the band of cells within max of the diagonal is
+     * filled, so this is O(max * length).
+     */
+    private int editDistance(String a, String b, int length, int max) {
+        if (Math.abs(a.length() - length) > max) {
+            return max + 1;
+        }
+        int[] twoBack = distanceRows[0];
+        int[] previous = distanceRows[1];
+        int[] current = distanceRows[2];
+        for (int j = 0; j <= length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(length, i + max);
+            current[0] = i;
+            if (from > 1) {
+                current[from - 1] = max + 1;
+            }
+            int rowMin = from > 1 ? max + 1 : i;
+            char letter = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int value = Math.min(previous[j - 1] + (letter == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && letter == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, twoBack[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (to < length) {
+                current[to + 1] = max + 1;
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] oldest = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = oldest;
+        }
+        return Math.min(previous[length], max + 1);
+    }
+
+    // Lower-case words: runs of letters and digits ("Sales & Marketing" -> sales, marketing)
+    static List<String> words(String text) {
+        List<String> result = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static String text(CharSequence value) {
+        return value == null ? "" : value.toString().trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,466 @@
+package edu.mmdc.motorph;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// ===== Model Layer =====
+/*
+ * EmployeeStore: The computed employees of one data snapshot, stored column by column.
+ * Numbers and payroll amounts are primitive arrays indexed by row (sheet order). Repeating
+ * strings (status, position, supervisor) are stored as int codes into a per-column dictionary.
+ * Government IDs and phone numbers are digit runs with dashes, so each one is stored as its
+ * digits in a long plus a dictionary code for its layout ("###-###-###"). Names and addresses
+ * share one UTF-8 byte array.
+ *
+ * A snapshot therefore costs a few hundred bytes per employee instead of an Employee object with
+ * thirteen Strings, and totals run as plain loops over long[] columns. get(row) materializes a
+ * short-lived Employee for the screens and exports that still work on objects.
+ */
+final class EmployeeStore {
+    private final int size;
+
+    // Numeric columns
+    private final int[] employeeNumbers;
+    private final int[] birthdays;
+    private final int[] basicSalaries;
+    private final int[] riceSubsidies;
+    private final int[] phoneAllowances;
+    private final int[] clothingAllowances;
+    private final int[] grossSemiMonthlyRates;
+    private final long[] hourlyRates;
+
+    // Payroll columns, all fixed-point
+    private final long[] centiHours;
+    private final long[] grossWages;
+    private final long[] sssDeductions;
+    private final long[] philHealthDeductions;
+    private final long[] pagIbigDeductions;
+    private final long[] taxDeductions;
+    private final long[] netWages;
+
+    // Low-cardinality text
+    private final int[] statusCodes;
+    private final int[] positionCodes;
+    private final int[] supervisorCodes;
+    private final String[] statuses;
+    private final String[] positions;
+    private final String[] supervisors;
+
+    // Dashed numbers
+    private final DigitsColumn phoneNumbers;
+    private final DigitsColumn sssNumbers;
+    private final DigitsColumn philhealthNumbers;
+    private final DigitsColumn tinNumbers;
+    private final DigitsColumn pagIbigNumbers;
+
+    // Last name, first name and address of row r are entries 3r, 3r + 1 and 3r + 2
+    private final TextColumn text;
+
+    private EmployeeStore(Builder builder) {
+        this.size = builder.size;
+        this.employeeNumbers = Arrays.copyOf(builder.employeeNumbers, size);
+        this.birthdays = Arrays.copyOf(builder.birthdays, size);
+        this.basicSalaries = Arrays.copyOf(builder.basicSalaries, size);
+        this.riceSubsidies = Arrays.copyOf(builder.riceSubsidies, size);
+        this.phoneAllowances = Arrays.copyOf(builder.phoneAllowances, size);
+        this.clothingAllowances = Arrays.copyOf(builder.clothingAllowances, size);
+        this.grossSemiMonthlyRates = Arrays.copyOf(builder.grossSemiMonthlyRates, size);
+        this.hourlyRates = Arrays.copyOf(builder.hourlyRates, size);
+        this.centiHours = Arrays.copyOf(builder.centiHours, size);
+        this.grossWages = Arrays.copyOf(builder.grossWages, size);
+        this.sssDeductions = Arrays.copyOf(builder.sssDeductions, size);
+        this.philHealthDeductions = Arrays.copyOf(builder.philHealthDeductions, size);
+        this.pagIbigDeductions = Arrays.copyOf(builder.pagIbigDeductions, size);
+        this.taxDeductions = Arrays.copyOf(builder.taxDeductions, size);
+        this.netWages = Arrays.copyOf(builder.netWages, size);
+        this.statusCodes = Arrays.copyOf(builder.statusCodes, size);
+        this.positionCodes = Arrays.copyOf(builder.positionCodes, size);
+        this.supervisorCodes = Arrays.copyOf(builder.supervisorCodes, size);
+        this.statuses = builder.statuses.values();
+        this.positions = builder.positions.values();
+        this.supervisors = builder.supervisors.values();
+        this.phoneNumbers = builder.phoneNumbers.build();
+        this.sssNumbers = builder.sssNumbers.build();
+        this.philhealthNumbers = builder.philhealthNumbers.build();
+        this.tinNumbers = builder.tinNumbers.build();
+        this.pagIbigNumbers = builder.pagIbigNumbers.build();
+        this.text = builder.text.build();
+    }
+
+    // Copies the computed employees into columns, keeping their order
+    static EmployeeStore of(List<Employee> employees) {
+        Builder builder = new Builder(employees.size());
+        for (Employee employee : employees) {
+            builder.add(employee);
+        }
+        return builder.build();
+    }
+
+    public int size() { return size; }
+
+    // ===== Column access =====
+
+    public int employeeNumber(int row) { return employeeNumbers[row]; }
+    public long centiHoursWorked(int row) { return centiHours[row]; }
+    public long weeklyGrossCentavos(int row) { return grossWages[row]; }
+    public long weeklyNetCentavos(int row) { return netWages[row]; }
+    public long weeklySssCentavos(int row) { return sssDeductions[row]; }
+    public long weeklyPhilHealthCentavos(int row) { return philHealthDeductions[row]; }
+    public long weeklyPagIbigCentavos(int row) { return pagIbigDeductions[row]; }
+    public long weeklyTaxCentavos(int row) { return taxDeductions[row]; }
+    public String lastName(int row) { return text.get(3 * row); }
+    public String firstName(int row) { return text.get(3 * row + 1); }
+    public String status(int row) { return statuses[statusCodes[row]]; }
+    public String position(int row) { return positions[positionCodes[row]]; }
+    public String supervisor(int row) { return supervisors[supervisorCodes[row]]; }
+
+    // Whole-column totals, sequential passes over primitive arrays
+    public long totalWeeklyGrossCentavos() { return sum(grossWages); }
+    public long totalWeeklyNetCentavos() { return sum(netWages); }
+    public long totalCentiHoursWorked() { return sum(centiHours); }
+    public long totalWeeklyDeductionsCentavos() {
+        return sum(sssDeductions) + sum(philHealthDeductions) + sum(pagIbigDeductions) + sum(taxDeductions);
+    }
+
+    private static long sum(long[] column) {
+        long total = 0;
+        for (long value : column) {
+            total += value;
+        }
+        return total;
+    }
+
+    // ===== Employee views =====
+
+    // A new Employee holding row's values; changing it does not change the store
+    public Employee get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        Employee employee = new Employee(employeeNumbers[row], text.get(3 * row), text.get(3 * row + 1),
+            LocalDate.ofEpochDay(birthdays[row]), text.get(3 * row + 2), phoneNumbers.get(row),
+            sssNumbers.get(row), philhealthNumbers.get(row), tinNumbers.get(row), pagIbigNumbers.get(row),
+            statuses[statusCodes[row]], positions[positionCodes[row]], supervisors[supervisorCodes[row]],
+            basicSalaries[row], riceSubsidies[row], phoneAllowances[row], clothingAllowances[row],
+            grossSemiMonthlyRates[row], Centavos.toPesos(hourlyRates[row]));
+        employee.restorePayroll(centiHours[row], grossWages[row], sssDeductions[row], philHealthDeductions[row],
+            pagIbigDeductions[row], taxDeductions[row], netWages[row]);
+        return employee;
+    }
+
+    // Read-only list of all rows; each get() materializes a fresh Employee
+    public List<Employee> asList() {
+        return new EmployeeList();
+    }
+
+    private final class EmployeeList extends AbstractList<Employee> implements RandomAccess {
+        @Override
+        public Employee get(int index) { return EmployeeStore.this.get(index); }
+
+        @Override
+        public int size() { return size; }
+    }
+
+    // ===== Building =====
+
+    /*
+     * Builder: Appends employees one at a time into growable columns; build() trims them.
+     */
+    static final class Builder {
+        private int size;
+        private int[] employeeNumbers;
+        private int[] birthdays;
+        private int[] basicSalaries;
+        private int[] riceSubsidies;
+        private int[] phoneAllowances;
+        private int[] clothingAllowances;
+        private int[] grossSemiMonthlyRates;
+        private long[] hourlyRates;
+        private long[] centiHours;
+        private long[] grossWages;
+        private long[] sssDeductions;
+        private long[] philHealthDeductions;
+        private long[] pagIbigDeductions;
+        private long[] taxDeductions;
+        private long[] netWages;
+        private int[] statusCodes;
+        private int[] positionCodes;
+        private int[] supervisorCodes;
+        private final StringDictionary statuses = new StringDictionary();
+        private final StringDictionary positions = new StringDictionary();
+        private final StringDictionary supervisors = new StringDictionary();
+        private final DigitsColumn.Builder phoneNumbers;
+        private final DigitsColumn.Builder sssNumbers;
+        private final DigitsColumn.Builder philhealthNumbers;
+        private final DigitsColumn.Builder tinNumbers;
+        private final DigitsColumn.Builder pagIbigNumbers;
+        private final TextColumn.Builder text;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            employeeNumbers = new int[capacity];
+            birthdays = new int[capacity];
+            basicSalaries = new int[capacity];
+            riceSubsidies = new int[capacity];
+            phoneAllowances = new int[capacity];
+            clothingAllowances = new int[capacity];
+            grossSemiMonthlyRates = new int[capacity];
+            hourlyRates = new long[capacity];
+            centiHours = new long[capacity];
+            grossWages = new long[capacity];
+            sssDeductions = new long[capacity];
+            philHealthDeductions = new long[capacity];
+            pagIbigDeductions = new long[capacity];
+            taxDeductions = new long[capacity];
+            netWages = new long[capacity];
+            statusCodes = new int[capacity];
+            positionCodes = new int[capacity];
+            supervisorCodes = new int[capacity];
+            phoneNumbers = new DigitsColumn.Builder(capacity);
+            sssNumbers = new DigitsColumn.Builder(capacity);
+            philhealthNumbers = new DigitsColumn.Builder(capacity);
+            tinNumbers = new DigitsColumn.Builder(capacity);
+            pagIbigNumbers = new DigitsColumn.Builder(capacity);
+            text = new TextColumn.Builder(3 * capacity);
+        }
+
+        Builder add(Employee employee) {
+            if (size == employeeNumbers.length) {
+                grow();
+            }
+            int row = size++;
+            employeeNumbers[row] = employee.getEmployeeNumber();
+            birthdays[row] = Math.toIntExact(employee.getBirthday().toEpochDay());
+            basicSalaries[row] = employee.getBasicSalary();
+            riceSubsidies[row] = employee.getRiceSubsidy();
+            phoneAllowances[row] = employee.getPhoneAllowance();
+            clothingAllowances[row] = employee.getClothingAllowance();
+            grossSemiMonthlyRates[row] = employee.getGrossSemiMonthlyRate();
+            hourlyRates[row] = employee.getHourlyRateCentavos();
+            centiHours[row] = employee.getCentiHoursWorked();
+            grossWages[row] = employee.getWeeklyGrossCentavos();
+            sssDeductions[row] = employee.getWeeklySssCentavos();
+            philHealthDeductions[row] = employee.getWeeklyPhilHealthCentavos();
+            pagIbigDeductions[row] = employee.getWeeklyPagIbigCentavos();
+            taxDeductions[row] = employee.getWeeklyTaxCentavos();
+            netWages[row] = employee.getWeeklyNetCentavos();
+            statusCodes[row] = statuses.encode(employee.getStatus());
+            positionCodes[row] = positions.encode(employee.getPosition());
+            supervisorCodes[row] = supervisors.encode(employee.getImmediateSupervisor());
+            phoneNumbers.add(employee.getPhoneNumber());
+            sssNumbers.add(employee.getSssNumber());
+            philhealthNumbers.add(employee.getPhilhealthNumber());
+            tinNumbers.add(employee.getTinNumber());
+            pagIbigNumbers.add(employee.getPagIbigNumber());
+            text.add(employee.getLastName());
+            text.add(employee.getFirstName());
+            text.add(employee.getAddress());
+            return this;
+        }
+
+        EmployeeStore build() {
+            return new EmployeeStore(this);
+        }
+
+        private void grow() {
+            int capacity = employeeNumbers.length * 2;
+            employeeNumbers = Arrays.copyOf(employeeNumbers, capacity);
+            birthdays = Arrays.copyOf(birthdays, capacity);
+            basicSalaries = Arrays.copyOf(basicSalaries, capacity);
+            riceSubsidies = Arrays.copyOf(riceSubsidies, capacity);
+            phoneAllowances = Arrays.copyOf(phoneAllowances, capacity);
+            clothingAllowances = Arrays.copyOf(clothingAllowances, capacity);
+            grossSemiMonthlyRates = Arrays.copyOf(grossSemiMonthlyRates, capacity);
+            hourlyRates = Arrays.copyOf(hourlyRates, capacity);
+            centiHours = Arrays.copyOf(centiHours, capacity);
+            grossWages = Arrays.copyOf(grossWages, capacity);
+            sssDeductions = Arrays.copyOf(sssDeductions, capacity);
+            philHealthDeductions = Arrays.copyOf(philHealthDeductions, capacity);
+            pagIbigDeductions = Arrays.copyOf(pagIbigDeductions, capacity);
+            taxDeductions = Arrays.copyOf(taxDeductions, capacity);
+            netWages = Arrays.copyOf(netWages, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+            positionCodes = Arrays.copyOf(positionCodes, capacity);
+            supervisorCodes = Arrays.copyOf(supervisorCodes, capacity);
+        }
+    }
+
+    /*
+     * StringDictionary: Gives each distinct string (null included) a small int code, in order of first use.
+     */
+    static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int size() { return values.size(); }
+
+        String[] values() { return values.toArray(new String[0]); }
+    }
+
+    /*
+     * DigitsColumn: Numbers like "44-4506057-3" stored as their digits (4445060573) and the code of
+     * their layout ("##-#######-#"), so leading zeros and dashes come back exactly. Values that do
+     * not fit (no layout, '#' in the text, more than 18 digits) keep the whole text as the layout
+     * and LITERAL as their digits.
+     */
+    static final class DigitsColumn {
+        private static final long LITERAL = -1;
+        private static final int MAX_DIGITS = 18;
+
+        private final long[] digits;
+        private final int[] layoutCodes;
+        private final String[] layouts;
+
+        private DigitsColumn(long[] digits, int[] layoutCodes, String[] layouts) {
+            this.digits = digits;
+            this.layoutCodes = layoutCodes;
+            this.layouts = layouts;
+        }
+
+        String get(int row) {
+            String layout = layouts[layoutCodes[row]];
+            long value = digits[row];
+            if (value == LITERAL) {
+                return layout;
+            }
+            char[] chars = layout.toCharArray();
+            for (int i = chars.length - 1; i >= 0; i--) {
+                if (chars[i] == '#') {
+                    chars[i] = (char) ('0' + value % 10);
+                    value /= 10;
+                }
+            }
+            return new String(chars);
+        }
+
+        static final class Builder {
+            private final StringDictionary layouts = new StringDictionary();
+            private long[] digits;
+            private int[] layoutCodes;
+            private int size;
+
+            Builder(int capacity) {
+                digits = new long[capacity];
+                layoutCodes = new int[capacity];
+            }
+
+            void add(String number) {
+                if (size == digits.length) {
+                    digits = Arrays.copyOf(digits, size * 2);
+                    layoutCodes = Arrays.copyOf(layoutCodes, size * 2);
+                }
+                long value = encodeDigits(number);
+                digits[size] = value;
+                layoutCodes[size] = layouts.encode(value == LITERAL ? number : layoutOf(number));
+                size++;
+            }
+
+            DigitsColumn build() {
+                return new DigitsColumn(Arrays.copyOf(digits, size), Arrays.copyOf(layoutCodes, size), layouts.values());
+            }
+
+            private static long encodeDigits(String number) {
+                if (number == null || number.indexOf('#') >= 0) {
+                    return LITERAL;
+                }
+                long value = 0;
+                int count = 0;
+                for (int i = 0; i < number.length(); i++) {
+                    char c = number.charAt(i);
+                    if (c >= '0' && c <= '9') {
+                        if (++count > MAX_DIGITS) {
+                            return LITERAL;
+                        }
+                        value = value * 10 + (c - '0');
+                    }
+                }
+                return value;
+            }
+
+            private static String layoutOf(String number) {
+                char[] chars = number.toCharArray();
+                for (int i = 0; i < chars.length; i++) {
+                    if (chars[i] >= '0' && chars[i] <= '9') {
+                        chars[i] = '#';
+                    }
+                }
+                return new String(chars);
+            }
+        }
+    }
+
+    /*
+     * TextColumn: Many strings in one UTF-8 byte array; entry i is bytes[ends[i - 1], ends[i]).
+     */
+    static final class TextColumn {
+        private final byte[] bytes;
+        private final int[] ends;
+        private final BitSet nulls;
+
+        private TextColumn(byte[] bytes, int[] ends, BitSet nulls) {
+            this.bytes = bytes;
+            this.ends = ends;
+            this.nulls = nulls;
+        }
+
+        String get(int entry) {
+            if (nulls.get(entry)) {
+                return null;
+            }
+            int start = entry == 0 ? 0 : ends[entry - 1];
+            return new String(bytes, start, ends[entry] - start, StandardCharsets.UTF_8);
+        }
+
+        static final class Builder {
+            private byte[] bytes;
+            private int[] ends;
+            private final BitSet nulls = new BitSet();
+            private int length;
+            private int size;
+
+            Builder(int capacity) {
+                bytes = new byte[capacity * 16];
+                ends = new int[capacity];
+            }
+
+            void add(String value) {
+                if (size == ends.length) {
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                if (value == null) {
+                    nulls.set(size);
+                } else {
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    if (length + encoded.length > bytes.length) {
+                        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length));
+                    }
+                    System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                    length += encoded.length;
+                }
+                ends[size++] = length;
+            }
+
+            TextColumn build() {
+                return new TextColumn(Arrays.copyOf(bytes, length), Arrays.copyOf(ends, size), nulls);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// ===== Service Layer =====
+/*
+ * EmployeeWriteQueue: Write-behind queue for new and changed "Employee Details" rows.
+ * create()/update() validate the row (createEmployee column layout, via RowParser) and return
+ * at once; the row is then pending, keyed by employee number. Writes to a pending employee are
+ * merged into one (a new hire edited before it is flushed is still a single append).
+ *
+ * Pending rows go to the DataSource in one batch: one append for the new rows and one
+ * batchUpdate for the changed ones, however many there are. A batch is flushed once it holds
+ * BATCH_ROWS rows, or FLUSH_MILLIS after its first write. A failed batch stays pending and is
+ * tried again later; flush() and close() write it on the caller's thread. A failed append may
+ * still have reached the sheet (a timeout or 5xx is not retried), so before new rows from a failed
+ * batch are sent again the sheet's employee numbers are read, and rows already there become updates.
+ *
+ * Until a snapshot loaded after the write replaces the current one, EmployeeService lays the
+ * queued rows (pending or already written) over the snapshot, so local reads see them at once.
+ *
+ *   -Dmotorph.writes.batchRows=<n>      (default 500)
+ *   -Dmotorph.writes.flushMillis=<n>    (default 2000)
+ */
+final class EmployeeWriteQueue implements AutoCloseable {
+    static final int BATCH_ROWS = Integer.getInteger("motorph.writes.batchRows", 500);
+    static final long FLUSH_MILLIS = Long.getLong("motorph.writes.flushMillis", 2000);
+
+    /*
+     * QueuedRow: The latest row for one employee. version changes with every merge, so a
+     * flush can tell whether the row it wrote is still the latest one.
+     */
+    private static final class QueuedRow {
+        final List<Object> row;
+        final boolean append;
+        final long version;
+        final Instant writtenAt;
+
+        QueuedRow(List<Object> row, boolean append, long version, Instant writtenAt) {
+            this.row = row;
+            this.append = append;
+            this.version = version;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final EmployeeService service;
+
+    // Guarded by this: rows not yet written, and written rows the snapshot does not have yet
+    private final Map<Integer, QueuedRow> pending = new LinkedHashMap<>();
+    private final Map<Integer, QueuedRow> written = new LinkedHashMap<>();
+    private long nextVersion;
+
+    // Guarded by this: new employees whose append failed and may or may not be in the sheet
+    private final Set<Integer> unconfirmedAppends = new HashSet<>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledFlush;
+
+    // One batch on its way at a time
+    private final Object flushLock = new Object();
+
+    EmployeeWriteQueue(DataSource dataSource, EmployeeService service) {
+        this.dataSource = dataSource;
+        this.service = service;
+    }
+
+    // Queues a new employee; its number must not be taken
+    public void create(List<Object> row) throws IOException, GeneralSecurityException {
+        submit(row, true);
+    }
+
+    // Queues new details for an existing employee
+    public void update(List<Object> row) throws IOException, GeneralSecurityException {
+        submit(row, false);
+    }
+
+    /*
+     * Validates the row and returns it as trimmed text cells, cut to the employee columns.
+     * Throws IllegalArgumentException naming every bad field.
+     */
+    static List<Object> validate(List<Object> row) {
+        List<Object> cells = new ArrayList<>(RowParser.EMPLOYEE_COLUMNS.length);
+        for (int column = 0; column < RowParser.EMPLOYEE_COLUMNS.length && column < row.size(); column++) {
+            Object cell = row.get(column);
+            cells.add(cell == null ? "" : cell.toString().trim());
+        }
+        EmployeeService.createEmployee(cells, Map.of());
+        return cells;
+    }
+
+    private void submit(List<Object> row, boolean create) throws IOException, GeneralSecurityException {
+        List<Object> cells = validate(row);
+        int employeeNumber = (int) RowParser.parseLong(RowParser.cell(cells, RowParser.EMPLOYEE_NUMBER));
+        PayrollSnapshot current = service.getSnapshot();
+
+        int queued;
+        synchronized (this) {
+            QueuedRow previous = pending.get(employeeNumber);
+            boolean exists = previous != null || written.containsKey(employeeNumber)
+                    || current.getEmployees().get(employeeNumber) != null;
+            if (create && exists) {
+                throw new IllegalArgumentException("Employee number " + employeeNumber + " is already taken");
+            }
+            if (!create && !exists) {
+                throw new IllegalArgumentException("No employee with number " + employeeNumber);
+            }
+            if (previous != null) {
+                PayrollMetrics.increment("writes.merged");
+            }
+            // A row not written yet keeps its kind, so a new hire edited before the flush is still appended
+            boolean append = previous != null ? previous.append : create;
+            pending.put(employeeNumber, new QueuedRow(cells, append, nextVersion++, null));
+            queued = pending.size();
+        }
+        PayrollMetrics.increment("writes.queued");
+        scheduleFlush(queued >= BATCH_ROWS ? 0 : FLUSH_MILLIS);
+    }
+
+    // Rows not written yet
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // Goes up with every create() and update(), so callers can tell whether anything was queued since
+    public synchronized long getVersion() {
+        return nextVersion;
+    }
+
+    /*
+     * The queued row of the employee as the snapshot should show it: pending, or written after
+     * the snapshot was loaded. Null if the snapshot's own row is current.
+     */
+    public synchronized List<Object> rowOf(int employeeNumber, PayrollSnapshot snapshot) {
+        QueuedRow queued = pending.get(employeeNumber);
+        if (queued == null) {
+            queued = written.get(employeeNumber);
+            if (queued != null && !queued.writtenAt.isAfter(snapshot.getLoadedAt())) {
+                written.remove(employeeNumber);
+                queued = null;
+            }
+        }
+        return queued == null ? null : queued.row;
+    }
+
+    // Every row rowOf() would return, by employee number, in the order they were queued
+    public synchronized Map<Integer, List<Object>> rowsOver(PayrollSnapshot snapshot) {
+        Map<Integer, List<Object>> rows = new LinkedHashMap<>();
+        written.values().removeIf(queued -> !queued.writtenAt.isAfter(snapshot.getLoadedAt()));
+        for (Map.Entry<Integer, QueuedRow> entry : written.entrySet()) {
+            rows.put(entry.getKey(), entry.getValue().row);
+        }
+        for (Map.Entry<Integer, QueuedRow> entry : pending.entrySet()) {
+            rows.put(entry.getKey(), entry.getValue().row);
+        }
+        return rows;
+    }
+
+    /*
+     * Writes every pending row now, on the calling thread. Returns the number of rows written.
+     * On failure the rows stay pending and a later flush tries again.
+     */
+    public int flush() throws IOException, GeneralSecurityException {
+        synchronized (flushLock) {
+            Map<Integer, QueuedRow> batch;
+            synchronized (this) {
+                batch = new LinkedHashMap<>(pending);
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            Set<Integer> inSheet = Set.of();
+            synchronized (this) {
+                if (!Collections.disjoint(unconfirmedAppends, batch.keySet())) {
+                    inSheet = null;
+                }
+            }
+            if (inSheet == null) {
+                // An earlier append of some of these rows failed; see which of them went through anyway
+                inSheet = dataSource.fetchEmployeeNumbers();
+            }
+
+            List<List<Object>> appended = new ArrayList<>();
+            List<List<Object>> updated = new ArrayList<>();
+            List<Integer> appendedNumbers = new ArrayList<>();
+            for (Map.Entry<Integer, QueuedRow> entry : batch.entrySet()) {
+                QueuedRow queued = entry.getValue();
+                if (queued.append && !inSheet.contains(entry.getKey())) {
+                    appended.add(queued.row);
+                    appendedNumbers.add(entry.getKey());
+                } else {
+                    if (queued.append) {
+                        PayrollMetrics.increment("writes.appendsFound");
+                    }
+                    updated.add(queued.row);
+                }
+            }
+
+            long start = PayrollMetrics.start();
+            try {
+                dataSource.writeEmployees(appended, updated);
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                PayrollMetrics.increment("writes.failures");
+                synchronized (this) {
+                    unconfirmedAppends.addAll(appendedNumbers);
+                }
+                throw e;
+            }
+            PayrollMetrics.timer("writes.flush").record(start);
+            PayrollMetrics.add("writes.rows", batch.size());
+
+            Instant writtenAt = Instant.now();
+            synchronized (this) {
+                unconfirmedAppends.removeAll(batch.keySet());
+                for (Map.Entry<Integer, QueuedRow> entry : batch.entrySet()) {
+                    QueuedRow sent = entry.getValue();
+                    written.put(entry.getKey(), new QueuedRow(sent.row, false, sent.version, writtenAt));
+                    QueuedRow latest = pending.get(entry.getKey());
+                    if (latest.version == sent.version) {
+                        pending.remove(entry.getKey());
+                    } else if (latest.append) {
+                        // Changed while the batch was on its way; the row now exists, so the change is an update
+                        pending.put(entry.getKey(), new QueuedRow(latest.row, false, latest.version, null));
+                    }
+                }
+            }
+            return batch.size();
+        }
+    }
+
+    // Writes what is pending and stops the background flushes
+    @Override
+    public void close() throws IOException, GeneralSecurityException {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        flush();
+    }
+
+    private synchronized void scheduleFlush(long delayMillis) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+                    Thread.ofPlatform().daemon().name("employee-writes").unstarted(runnable));
+        }
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        // A flush already due sooner covers this write too
+        if (scheduledFlush != null && !scheduledFlush.isDone() && scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+            return;
+        }
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = scheduler.schedule(this::flushInBackground, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushInBackground() {
+        synchronized (this) {
+            scheduledFlush = null;
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            System.out.println("Could not save " + pendingCount() + " employee changes (will retry): " + e.getMessage());
+        }
+        // Rows queued or left over meanwhile get their own flush
+        if (pendingCount() > 0) {
+            scheduleFlush(FLUSH_MILLIS);
+        }
+    }
+}
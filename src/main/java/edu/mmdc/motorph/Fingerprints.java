@@ -0,0 +1,111 @@
+package edu.mmdc.motorph;
+
+import java.util.Arrays;
+import java.util.List;
+
+// ===== Service Layer =====
+/*
+ * Fingerprints: 64-bit content hashes used to tell whether sheet data changed between runs.
+ * Cells are hashed as text (FNV-1a over the characters, with a separator between cells), so
+ * a row hashes the same whichever run or data source it came from. Values are only compared
+ * within one process and are never stored. Where a match means reusing a result, RowKey keeps
+ * the cells as well and confirms it.
+ */
+final class Fingerprints {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Stands in for "no row" (e.g. a salary outside every bracket)
+    static final long NONE = 0x9e3779b97f4a7c15L;
+
+    private Fingerprints() {
+    }
+
+    // All cells of a row
+    static long ofRow(List<Object> row) {
+        long hash = FNV_OFFSET;
+        for (Object cell : row) {
+            hash = addCell(hash, cell);
+        }
+        return mix(hash);
+    }
+
+    // The given cells of a row; missing cells hash as empty
+    static long ofCells(List<Object> row, int... columns) {
+        long hash = FNV_OFFSET;
+        for (int column : columns) {
+            hash = addCell(hash, column < row.size() ? row.get(column) : null);
+        }
+        return mix(hash);
+    }
+
+    // Order-dependent combination of two fingerprints
+    static long combine(long hash, long value) {
+        return mix(hash * 31 + value);
+    }
+
+    // Finalizer of SplitMix64, spreads every input bit over the whole hash
+    static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /*
+     * RowKey: Cells of a row as a map key. The fingerprint is only its hash code; equals() compares
+     * the cells' text, so two rows whose fingerprints collide are still two keys.
+     */
+    static final class RowKey {
+        private final String[] cells;
+        private final long fingerprint;
+
+        private RowKey(String[] cells, long fingerprint) {
+            this.cells = cells;
+            this.fingerprint = fingerprint;
+        }
+
+        // All cells of a row
+        static RowKey ofRow(List<Object> row) {
+            String[] cells = new String[row.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = text(row.get(i));
+            }
+            return new RowKey(cells, Fingerprints.ofRow(row));
+        }
+
+        // The given cells of a row; missing cells count as empty
+        static RowKey ofCells(List<Object> row, int... columns) {
+            String[] cells = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                cells[i] = columns[i] < row.size() ? text(row.get(columns[i])) : null;
+            }
+            return new RowKey(cells, Fingerprints.ofCells(row, columns));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RowKey key && key.fingerprint == fingerprint && Arrays.equals(key.cells, cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fingerprint);
+        }
+
+        private static String text(Object cell) {
+            return cell == null ? null : cell.toString();
+        }
+    }
+
+    private static long addCell(long hash, Object cell) {
+        if (cell != null) {
+            String text = cell.toString();
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // Cell separator, so ["ab", "c"] and ["a", "bc"] differ
+        return (hash ^ 0x1f) * FNV_PRIME;
+    }
+}
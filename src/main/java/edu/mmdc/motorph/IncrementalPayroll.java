@@ -0,0 +1,331 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// ===== Service Layer =====
+/*
+ * IncrementalPayroll: Payroll runs that redo only what changed since the previous run.
+ *
+ * Attendance rows are fingerprinted by content; a row seen before keeps its parsed date and
+ * hours, so only new or edited rows are parsed, and removed rows are taken back out of the
+ * per-employee daily totals. Employee Details rows are fingerprinted the same way, and the
+ * previous result of a row is reused when
+ *   - the row is unchanged (same fingerprint, then the same cells, see Fingerprints.RowKey),
+ *   - the employee's hours for the reported week are unchanged, and
+ *   - the deduction tables are unchanged, or every bracket the employee falls in is the same.
+ * Everything else goes through the PayrollEngine as usual, so the results match a full run.
+ *
+ * Turned on with -Dmotorph.payroll.incremental=true. The state grows with the attendance log
+ * (one entry per distinct row), which is why the default streaming run does not keep it.
+ */
+class IncrementalPayroll {
+    static final String INCREMENTAL_PROPERTY = "motorph.payroll.incremental";
+
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private final PayrollEngine engine;
+
+    // One entry per distinct attendance row content
+    private final Map<Fingerprints.RowKey, AttendanceEntry> attendance = new HashMap<>();
+
+    // Centi-hours per (employee, day), see dayKey()
+    private final Map<Long, Long> centiHoursByDay = new HashMap<>();
+
+    // Rows per date, to know the latest date as rows come and go
+    private final TreeMap<Long, Integer> rowsPerDay = new TreeMap<>();
+
+    private int generation;
+
+    // Previous run: results by Employee Details row, and the tables they were computed with
+    private Map<Fingerprints.RowKey, EmployeeResult> results = new HashMap<>();
+    private DeductionTables previousTables;
+    private long previousTablesFingerprint;
+
+    private int lastRecomputed;
+    private int lastReused;
+    private int lastAttendanceParsed;
+
+    public IncrementalPayroll(PayrollEngine engine) {
+        this.engine = engine;
+    }
+
+    public int getLastRecomputed() { return lastRecomputed; }
+    public int getLastReused() { return lastReused; }
+    public int getLastAttendanceParsed() { return lastAttendanceParsed; }
+
+    /*
+     * Brings the attendance state up to date with the whole attendance sheet.
+     * Rows that were not seen this time are treated as deleted.
+     */
+    public void updateAttendance(AttendanceProcessor attendanceProcessor) throws IOException {
+        updateAttendance(attendanceProcessor, row -> { });
+    }
+
+    // The same, also handing every row to rowConsumer in the same pass (e.g. the snapshot's AttendanceIndex)
+    public synchronized void updateAttendance(AttendanceProcessor attendanceProcessor, Consumer<List<Object>> rowConsumer) throws IOException {
+        long start = PayrollMetrics.start();
+        generation++;
+        lastAttendanceParsed = 0;
+        try {
+            attendanceProcessor.streamRows(AttendanceProcessor.DEFAULT_CHUNK_ROWS, row -> {
+                acceptAttendance(row);
+                rowConsumer.accept(row);
+            });
+        } catch (IOException | RuntimeException e) {
+            // Only part of the sheet was seen; start over from nothing next time
+            attendance.clear();
+            centiHoursByDay.clear();
+            rowsPerDay.clear();
+            results.clear();
+            throw e;
+        }
+
+        Iterator<AttendanceEntry> entries = attendance.values().iterator();
+        while (entries.hasNext()) {
+            AttendanceEntry entry = entries.next();
+            if (entry.generation != generation) {
+                entry.count = 0;
+            }
+            int delta = entry.count - entry.applied;
+            if (delta != 0) {
+                apply(entry, delta);
+                entry.applied = entry.count;
+            }
+            if (entry.count == 0) {
+                entries.remove();
+            }
+        }
+        PayrollMetrics.timer("attendance.incremental").record(start);
+        PayrollMetrics.add("attendance.parsed", lastAttendanceParsed);
+    }
+
+    // Payroll for the Employee Details rows, against the current attendance state
+    public synchronized PayrollRun run(List<List<Object>> rows, DeductionTables tables) {
+        int count = rows == null ? 0 : rows.size();
+        long[] week = reportedWeek();
+        long tablesFingerprint = tables.fingerprint();
+        boolean tablesChanged = previousTables == null || tablesFingerprint != previousTablesFingerprint;
+
+        Employee[] employees = new Employee[count];
+        RowError[] errors = new RowError[count];
+        Fingerprints.RowKey[] rowKeys = new Fingerprints.RowKey[count];
+        long[] centiHours = new long[count];
+        Map<Fingerprints.RowKey, EmployeeResult> nextResults = new HashMap<>();
+
+        // Rows that have to go through the engine again
+        List<Integer> dirty = new ArrayList<>();
+        List<List<Object>> dirtyRows = new ArrayList<>();
+        Map<Integer, Double> dirtyHours = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            List<Object> row = rows.get(i);
+            Integer employeeNumber = employeeNumberOf(row);
+            rowKeys[i] = Fingerprints.RowKey.ofRow(row);
+            centiHours[i] = employeeNumber == null || week == null ? 0 : centiHoursOf(employeeNumber, week);
+
+            EmployeeResult previous = results.get(rowKeys[i]);
+            if (previous != null && previous.centiHours == centiHours[i]
+                    && (!tablesChanged || sameBrackets(previous, tables))) {
+                employees[i] = previous.employee;
+                errors[i] = previous.error == null ? null : new RowError(i, row, previous.error);
+                nextResults.put(rowKeys[i], previous);
+                continue;
+            }
+
+            dirty.add(i);
+            dirtyRows.add(row);
+            if (employeeNumber != null && centiHours[i] != 0) {
+                dirtyHours.put(employeeNumber, centiHours[i] / (double) Centavos.CENTI_HOURS_PER_HOUR);
+            }
+        }
+
+        Employee[] computed = new Employee[dirtyRows.size()];
+        RowError[] computedErrors = new RowError[dirtyRows.size()];
+        engine.computeAll(dirtyRows, dirtyHours, tables, computed, computedErrors);
+        for (int d = 0; d < computed.length; d++) {
+            int i = dirty.get(d);
+            String error = computedErrors[d] == null ? null : computedErrors[d].getMessage();
+            employees[i] = computed[d];
+            errors[i] = error == null ? null : new RowError(i, rows.get(i), error);
+            nextResults.put(rowKeys[i], new EmployeeResult(centiHours[i], computed[d], error));
+        }
+
+        results = nextResults;
+        previousTables = tables;
+        previousTablesFingerprint = tablesFingerprint;
+        lastRecomputed = dirty.size();
+        lastReused = count - dirty.size();
+        PayrollMetrics.add("incremental.recomputed", lastRecomputed);
+        PayrollMetrics.add("incremental.reused", lastReused);
+
+        List<Employee> runEmployees = new ArrayList<>(count);
+        List<List<Object>> runRows = new ArrayList<>(count);
+        List<RowError> runErrors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (employees[i] != null) {
+                runEmployees.add(employees[i]);
+                runRows.add(rows.get(i));
+            }
+            if (errors[i] != null) {
+                runErrors.add(errors[i]);
+            }
+        }
+        return new PayrollRun(runEmployees, runRows, runErrors);
+    }
+
+    /*
+     * True if the new tables put the employee in brackets with the same content as the previous
+     * tables did, for the monthly salary and for the monthly taxable wage. A different formula
+     * changes the amounts whatever the brackets, so then nobody is reused.
+     */
+    private boolean sameBrackets(EmployeeResult previous, DeductionTables tables) {
+        Employee employee = previous.employee;
+        if (employee == null) {
+            // The row could not be parsed; the tables play no part in that
+            return true;
+        }
+        if (previous.error != null || !previousTables.getFormula().equals(tables.getFormula())) {
+            return false;
+        }
+        long salary = employee.getBasicSalaryCentavos();
+        if (!sameBracket(previousTables.getSss(), tables.getSss(), salary)
+                || !sameBracket(previousTables.getPhilHealth(), tables.getPhilHealth(), salary)
+                || !sameBracket(previousTables.getPagIbig(), tables.getPagIbig(), salary)) {
+            return false;
+        }
+        // Same contributions, so the taxable wage is the same as last time
+        long weeklyTaxable = employee.getWeeklyGrossCentavos() - employee.getWeeklySssCentavos()
+                - employee.getWeeklyPhilHealthCentavos() - employee.getWeeklyPagIbigCentavos();
+        return sameBracket(previousTables.getWithHoldingTax(), tables.getWithHoldingTax(),
+                weeklyTaxable * tables.getFormula().getWeeksPerMonth());
+    }
+
+    private static boolean sameBracket(ContributionTable before, ContributionTable after, long amount) {
+        return before.fingerprint(before.find(amount)) == after.fingerprint(after.find(amount));
+    }
+
+    // ===== Attendance state =====
+
+    private void acceptAttendance(List<Object> row) {
+        Fingerprints.RowKey key = Fingerprints.RowKey.ofCells(row, 0, 3, 4, 5);
+        AttendanceEntry entry = attendance.get(key);
+        if (entry == null) {
+            entry = parse(row);
+            lastAttendanceParsed++;
+            attendance.put(key, entry);
+        }
+        if (entry.generation != generation) {
+            entry.generation = generation;
+            entry.count = 0;
+        }
+        entry.count++;
+    }
+
+    // Same parsing and rounding as the full run in AttendanceProcessor
+    private static AttendanceEntry parse(List<Object> row) {
+        AttendanceEntry entry = new AttendanceEntry();
+        long day = RowParser.parseEpochDay(RowParser.cell(row, RowParser.ATTENDANCE_DATE));
+        if (day == RowParser.INVALID) {
+            PayrollMetrics.increment("rows.malformed.attendance");
+            System.out.println("Error parsing date for row: " + row);
+            return entry;
+        }
+        entry.day = day;
+
+        long employeeNumber = RowParser.parseLong(RowParser.cell(row, RowParser.ATTENDANCE_EMPLOYEE_NUMBER));
+        long timeIn = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_IN));
+        long timeOut = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_OUT));
+        if (employeeNumber == RowParser.INVALID || employeeNumber != (int) employeeNumber
+                || timeIn == RowParser.INVALID || timeOut == RowParser.INVALID) {
+            PayrollMetrics.increment("rows.malformed.attendance");
+            System.out.println("Error processing employee data for row: " + row);
+            return entry;
+        }
+        entry.employeeNumber = (int) employeeNumber;
+        entry.centiHours = Centavos.centiHoursOfMinutes(timeOut - timeIn);
+        entry.hasHours = true;
+        return entry;
+    }
+
+    private void apply(AttendanceEntry entry, int delta) {
+        if (entry.day == NO_DAY) {
+            return;
+        }
+        int rowsLeft = rowsPerDay.merge(entry.day, delta, Integer::sum);
+        if (rowsLeft == 0) {
+            rowsPerDay.remove(entry.day);
+        }
+        if (entry.hasHours) {
+            centiHoursByDay.merge(dayKey(entry.employeeNumber, entry.day), entry.centiHours * delta, Long::sum);
+        }
+    }
+
+    // Monday and Friday (epoch days) of the latest completed working week, or null without attendance
+    private long[] reportedWeek() {
+        if (rowsPerDay.isEmpty()) {
+            System.out.println("No attendance data found.");
+            return null;
+        }
+        LocalDate latestDate = LocalDate.ofEpochDay(rowsPerDay.lastKey());
+        return new long[] {
+            latestDate.with(DayOfWeek.MONDAY).minusWeeks(1).toEpochDay(),
+            latestDate.with(DayOfWeek.FRIDAY).minusWeeks(1).toEpochDay()
+        };
+    }
+
+    private long centiHoursOf(int employeeNumber, long[] week) {
+        long total = 0;
+        for (long day = week[0]; day <= week[1]; day++) {
+            total += centiHoursByDay.getOrDefault(dayKey(employeeNumber, day), 0L);
+        }
+        return total;
+    }
+
+    private static long dayKey(int employeeNumber, long day) {
+        return ((long) employeeNumber << 32) | (day & 0xFFFFFFFFL);
+    }
+
+    private static Integer employeeNumberOf(List<Object> row) {
+        long employeeNumber = RowParser.parseLong(RowParser.cell(row, RowParser.EMPLOYEE_NUMBER));
+        return employeeNumber == RowParser.INVALID || employeeNumber != (int) employeeNumber ? null : (int) employeeNumber;
+    }
+
+    /*
+     * AttendanceEntry: A distinct attendance row, parsed once.
+     * count is how many times the row appears in the current sheet, applied how many of
+     * those are already in the daily totals.
+     */
+    private static final class AttendanceEntry {
+        long day = NO_DAY;
+        int employeeNumber;
+        long centiHours;
+        boolean hasHours;
+        int generation;
+        int count;
+        int applied;
+    }
+
+    /*
+     * EmployeeResult: The outcome of one Employee Details row in the previous run.
+     */
+    private static final class EmployeeResult {
+        final long centiHours;
+        final Employee employee;
+        final String error;
+
+        EmployeeResult(long centiHours, Employee employee, String error) {
+            this.centiHours = centiHours;
+            this.employee = employee;
+            this.error = error;
+        }
+    }
+}
@@ -10,30 +10,44 @@ package edu.mmdc.motorph;
  */
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.drive.Drive;
 import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.AppendValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesResponse;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.security.GeneralSecurityException;
 import java.util.stream.Collectors;
 
 import java.util.List;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.Duration;
-import java.time.format.DateTimeFormatter;
 import java.time.DayOfWeek;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.HashMap;
 
 import java.util.Scanner;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 //import lombok.Getter;
 //import lombok.Setter;
@@ -46,21 +60,42 @@ import java.util.Scanner;
  */
 public class MotorPH {
     public static void main(String[] args) {
+        StartupTimer.mark("main started");
+        // Registers the metrics MXBean up front, so it can be watched from the first fetch
+        PayrollMetrics.getInstance();
+
+        // Server mode: JSON over HTTP instead of the menu
+        if (args.length > 0 && args[0].equals("--serve")) {
+            PayrollHttpServer.serve(args);
+            return;
+        }
         System.out.println("Welcome to MotorPH!");
 
         Scanner scanner = new Scanner(System.in);
         boolean running = true;
 
         // Delegate the user interactions to Controller(EmployeeController)
-        EmployeeController controller = new EmployeeController();
+        // Data comes from Google Sheets unless -Dmotorph.dataDir points to local CSV exports
+        long controllerStart = System.nanoTime();
+        EmployeeController controller = new EmployeeController(DataSource.fromSystemProperties());
+        StartupTimer.record("controller created", controllerStart);
+        // Keeps the data current during long sessions when -Dmotorph.refresh.seconds is set
+        SnapshotRefresher refresher = SnapshotRefresher.startIfEnabled(controller.getEmployeeService());
+        boolean firstPrompt = true;
 
         while (running) {
             System.out.println("\nChoose an option:");
             System.out.println("1. Search by Employee Number");
-            System.out.println("2. Display All Employees");
-            System.out.println("3. Add Employee");
-            System.out.println("4. Exit");
+            System.out.println("2. Search by Name, Position or Supervisor");
+            System.out.println("3. Display All Employees");
+            System.out.println("4. Add Employee");
+            System.out.println("5. Export Payroll Report");
+            System.out.println("6. Exit");
             System.out.print("Enter your choice: ");
+            if (firstPrompt) {
+                StartupTimer.mark("first prompt");
+                firstPrompt = false;
+            }
 
             int choice;
             try {
@@ -92,20 +127,33 @@ public class MotorPH {
                     }
                 }
                 case 2 -> {
-                    controller.displayAllEmployees();
+                    controller.searchEmployees(scanner);
                 }
                 case 3 -> {
-                    // Future: Implementation for adding an employee heree
-                    System.out.println("Add Employee functionality coming soon.");
+                    controller.displayAllEmployees(scanner);
                 }
                 case 4 -> {
+                    controller.addEmployees(scanner);
+                }
+                case 5 -> {
+                    System.out.print("Enter report file (.csv or .json) [payroll-report.csv]: ");
+                    String file = scanner.nextLine().trim();
+                    controller.exportPayrollReport(file.isEmpty() ? "payroll-report.csv" : file);
+                }
+                case 6 -> {
+                    StartupTimer.printReportIfEnabled();
                     System.out.println("Exiting program. Goodbye!");
                     running = false;
                 }
-                default -> System.out.println("Invalid choice. Please select a number from 1 to 4.");
+                default -> System.out.println("Invalid choice. Please select a number from 1 to 6.");
             }
         }
 
+        if (refresher != null) {
+            refresher.close();
+        }
+        controller.savePendingEmployees();
+        controller.getEmployeeService().closeLedger();
         scanner.close();
     }
 }
@@ -115,7 +163,19 @@ public class MotorPH {
  * EmployeeController: Handles user input and delegates tasks to the service layer
  */
 class EmployeeController {
-    private final EmployeeService employeeService = new EmployeeService();
+    private final EmployeeService employeeService;
+
+    public EmployeeController() {
+        this(new SheetsDataSource());
+    }
+
+    public EmployeeController(DataSource dataSource) {
+        this.employeeService = new EmployeeService(dataSource);
+    }
+
+    public EmployeeService getEmployeeService() {
+        return employeeService;
+    }
 
     public void displayEmployeeBySearch(int employeeNumber) {
         try {
@@ -130,36 +190,270 @@ class EmployeeController {
         }
     }
 
-    public void displayAllEmployees() {
+    // Employees shown per page in the terminal
+    private static final int PAGE_SIZE = 20;
+
+    /*
+     * Searches by name, position, status or supervisor (prefixes and small typos match too) and
+     * shows the best matches a page at a time. Repeats until an empty search.
+     */
+    public void searchEmployees(Scanner scanner) {
+        while (true) {
+            System.out.print("Search for (name, position, status or supervisor; Enter to go back): ");
+            String query = scanner.nextLine().trim();
+            if (query.isEmpty()) {
+                System.out.println("Returning to the main menu...");
+                return;
+            }
+            try {
+                EmployeeSearchIndex index = employeeService.getSearchIndex();
+                for (int offset = 0; ; offset += PAGE_SIZE) {
+                    long start = PayrollMetrics.start();
+                    EmployeeSearchIndex.Page page = index.search(query, offset, PAGE_SIZE);
+                    PayrollMetrics.timer("search.employees").record(start);
+                    if (page.getTotal() == 0) {
+                        System.out.println("No employees match \"" + query + "\".");
+                        break;
+                    }
+                    StringBuilder out = new StringBuilder(128 * (PAGE_SIZE + 4));
+                    appendSearchHeader(out);
+                    for (EmployeeSearchIndex.Hit hit : page.getHits()) {
+                        Employee employee = employeeService.getEmployeeByNumber(hit.getEmployeeNumber());
+                        if (employee != null) {
+                            appendSearchLine(out, employee);
+                        }
+                    }
+                    out.append("Showing ").append(page.getOffset() + 1).append('-').append(page.getOffset() + page.getHits().size())
+                            .append(" of ").append(page.getTotal()).append('\n');
+                    System.out.print(out);
+                    if (!page.hasMore()) {
+                        break;
+                    }
+                    System.out.print("Press Enter for the next page, or q to stop: ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                System.out.println("Error during search: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Summary table, one line per employee, shown a page at a time.
+     * Each page is built in one buffer and printed with a single call.
+     */
+    public void displayAllEmployees(Scanner scanner) {
         try {
-            List<Employee> employees = employeeService.getAllEmployees();
-            if (employees.isEmpty()) {
+            EmployeeStore employees = employeeService.getEmployeeStore();
+            if (employees.size() == 0) {
                 System.out.println("No employee data found.");
                 return;
             }
-            System.out.println("\nAll Employee Details:");
-            System.out.println("----------------------------");
-            for (Employee employee : employees) {
-                displayEmployeeInfo(employee);
+
+            long totalGross = employees.totalWeeklyGrossCentavos();
+            long totalNet = employees.totalWeeklyNetCentavos();
+
+            StringBuilder page = new StringBuilder(128 * (PAGE_SIZE + 4));
+            page.append("\nAll Employee Details:\n");
+            for (int from = 0; from < employees.size(); from += PAGE_SIZE) {
+                int to = Math.min(from + PAGE_SIZE, employees.size());
+                appendSummaryHeader(page);
+                for (int i = from; i < to; i++) {
+                    appendSummaryLine(page, employees, i);
+                }
+                page.append("Showing ").append(from + 1).append('-').append(to).append(" of ").append(employees.size()).append('\n');
+                System.out.print(page);
+                page.setLength(0);
+
+                if (to < employees.size()) {
+                    System.out.print("Press Enter for the next page, or q to stop: ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                        break;
+                    }
+                }
             }
-            System.out.println("\nTotal number of employees: " + employees.size());
+
+            page.append("\nTotal number of employees: ").append(employees.size()).append('\n');
+            page.append("Total weekly gross wage:   ");
+            Centavos.appendTo(page, totalGross);
+            page.append("\nTotal weekly net wage:     ");
+            Centavos.appendTo(page, totalNet);
+            page.append('\n');
+            System.out.print(page);
         } catch (Exception e) {
             System.out.println("Error displaying all employees: " + e.getMessage());
         }
     }
 
+    /*
+     * Adds employees, typed in field by field or imported from a CSV file in the "Employee Details"
+     * layout (header line first). Imported rows with a taken employee number update that employee.
+     * Everything is queued and written to the sheet in the background, in batches.
+     */
+    public void addEmployees(Scanner scanner) {
+        System.out.print("Enter a CSV file to import, or press Enter to type in one employee: ");
+        String file = scanner.nextLine().trim();
+        if (!file.isEmpty()) {
+            importEmployees(Path.of(file));
+            return;
+        }
+
+        List<Object> row = new ArrayList<>(RowParser.EMPLOYEE_COLUMNS.length);
+        for (String column : RowParser.EMPLOYEE_COLUMNS) {
+            System.out.print(column + ": ");
+            row.add(scanner.nextLine());
+        }
+        try {
+            employeeService.addEmployee(row);
+            System.out.println("Employee " + row.get(RowParser.EMPLOYEE_NUMBER).toString().trim()
+                    + " added; it will be saved to the sheet shortly.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Employee not added: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error adding employee: " + e.getMessage());
+        }
+    }
+
+    private void importEmployees(Path file) {
+        try {
+            List<List<Object>> rows = CsvDataSource.readAll(file, 1);
+            int added = 0;
+            int updated = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    if (employeeService.saveEmployee(rows.get(i))) {
+                        added++;
+                    } else {
+                        updated++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Line numbers count the header
+                    System.out.println("Line " + (i + 2) + " skipped: " + e.getMessage());
+                }
+            }
+            System.out.println("Queued " + added + " new and " + updated + " updated employees; they will be saved to the sheet shortly.");
+        } catch (Exception e) {
+            System.out.println("Error importing employees: " + e.getMessage());
+        }
+    }
+
+    // Writes queued employee changes before the program exits
+    public void savePendingEmployees() {
+        int pending = employeeService.getWriteQueue().pendingCount();
+        if (pending > 0) {
+            System.out.println("Saving " + pending + " employee changes...");
+        }
+        try {
+            employeeService.getWriteQueue().close();
+        } catch (Exception e) {
+            System.out.println("Error saving employee changes: " + e.getMessage());
+        }
+    }
+
+    // Writes every employee's computed payroll to a CSV or JSON file
+    public void exportPayrollReport(String file) {
+        try {
+            List<Employee> employees = employeeService.getAllEmployees();
+            Path path = Path.of(file);
+            PayrollReportWriter.export(path, employees);
+            System.out.println("Exported " + employees.size() + " employees to " + path.toAbsolutePath());
+        } catch (Exception e) {
+            System.out.println("Error exporting payroll report: " + e.getMessage());
+        }
+    }
+
+    private static void appendSummaryHeader(StringBuilder out) {
+        out.append("------------------------------------------------------------------------------\n");
+        appendPadded(out, "Emp #", 8);
+        appendPadded(out, "Name", 32);
+        appendPadded(out, "Hours", 10);
+        appendPadded(out, "Gross", 14);
+        out.append("Net\n");
+        out.append("------------------------------------------------------------------------------\n");
+    }
+
+    private static void appendSearchHeader(StringBuilder out) {
+        out.append("------------------------------------------------------------------------------\n");
+        appendPadded(out, "Emp #", 8);
+        appendPadded(out, "Name", 28);
+        appendPadded(out, "Position", 28);
+        out.append("Status\n");
+        out.append("------------------------------------------------------------------------------\n");
+    }
+
+    private static void appendSearchLine(StringBuilder out, Employee employee) {
+        int start = out.length();
+        out.append(employee.getEmployeeNumber());
+        pad(out, start, 8);
+
+        start = out.length();
+        String name = employee.getFirstName() + " " + employee.getLastName();
+        out.append(name, 0, Math.min(name.length(), 27));
+        pad(out, start, 28);
+
+        start = out.length();
+        String position = employee.getPosition() == null ? "" : employee.getPosition();
+        out.append(position, 0, Math.min(position.length(), 27));
+        pad(out, start, 28);
+
+        out.append(employee.getStatus() == null ? "" : employee.getStatus()).append('\n');
+    }
+
+    // One row of the store, read straight from its columns
+    private static void appendSummaryLine(StringBuilder out, EmployeeStore employees, int row) {
+        int start = out.length();
+        out.append(employees.employeeNumber(row));
+        pad(out, start, 8);
+
+        start = out.length();
+        String name = employees.firstName(row) + " " + employees.lastName(row);
+        out.append(name, 0, Math.min(name.length(), 31));
+        pad(out, start, 32);
+
+        start = out.length();
+        Centavos.appendTo(out, employees.centiHoursWorked(row));
+        pad(out, start, 10);
+
+        start = out.length();
+        Centavos.appendTo(out, employees.weeklyGrossCentavos(row));
+        pad(out, start, 14);
+
+        Centavos.appendTo(out, employees.weeklyNetCentavos(row));
+        out.append('\n');
+    }
+
+    private static void appendPadded(StringBuilder out, String text, int width) {
+        int start = out.length();
+        out.append(text);
+        pad(out, start, width);
+    }
+
+    private static void pad(StringBuilder out, int start, int width) {
+        while (out.length() - start < width) {
+            out.append(' ');
+        }
+    }
+
     private void displayEmployeeInfo(Employee employee) {
-        System.out.println("\n----------------------------");
-        System.out.println("----EMPLOYEE INFORMATION----");
-        System.out.println("----------------------------");
-        System.out.println("Employee Number:    " + employee.getEmployeeNumber());
-        System.out.println("Name:               " + employee.getFirstName() + " " + employee.getLastName());
-        System.out.println("Birthday:           " + employee.getBirthday());
-        System.out.println("Hourly Rate:        " + String.format("%.2f", employee.getHourlyRate()));
-        System.out.println("Total Hours Worked: " + String.format("%.2f", employee.getHoursWorked()));
-        System.out.println("Weekly Gross Wage:  " + String.format("%.2f", employee.getWeeklyGrossWage()));
-        System.out.println("Weekly Net Wage:    " + String.format("%.2f", employee.getWeeklyNetWage()));
-        System.out.println("----------------------------");
+        StringBuilder info = new StringBuilder(512);
+        info.append("\n----------------------------\n");
+        info.append("----EMPLOYEE INFORMATION----\n");
+        info.append("----------------------------\n");
+        info.append("Employee Number:    ").append(employee.getEmployeeNumber()).append('\n');
+        info.append("Name:               ").append(employee.getFirstName()).append(' ').append(employee.getLastName()).append('\n');
+        info.append("Birthday:           ").append(employee.getBirthday()).append('\n');
+        info.append("Hourly Rate:        ");
+        Centavos.appendTo(info, employee.getHourlyRateCentavos());
+        info.append("\nTotal Hours Worked: ");
+        Centavos.appendTo(info, employee.getCentiHoursWorked());
+        info.append("\nWeekly Gross Wage:  ");
+        Centavos.appendTo(info, employee.getWeeklyGrossCentavos());
+        info.append("\nWeekly Net Wage:    ");
+        Centavos.appendTo(info, employee.getWeeklyNetCentavos());
+        info.append("\n----------------------------\n");
+        System.out.print(info);
     }
 }
 
@@ -170,98 +464,333 @@ class EmployeeController {
  */
 class EmployeeService {
     
-    // Access to data from GoogleSheets to be used locally
-    private final GoogleSheetsHandler handler = new GoogleSheetsHandler();
-    private final AttendanceProcessor attendanceProcessor = new AttendanceProcessor();
+    // Access to the sheets data (Google Sheets or local files) to be used locally
+    private final DataSource dataSource;
+    private final AttendanceProcessor attendanceProcessor;
+    private final PayrollEngine payrollEngine = new PayrollEngine();
+
+    // Matrices for the first snapshot, fetched and compiled in the background from construction on
+    private final DeductionTablesWarmup deductionTables;
+
+    // Effective-dated matrices and formula parameters, with the compiled versions (see DeductionRules)
+    private final DeductionRules deductionRules;
+
+    // The current data snapshot, built on first use; refresh() replaces it as a whole with one atomic swap
+    private final AtomicReference<PayrollSnapshot> snapshot = new AtomicReference<>();
+
+    // Serializes snapshot builds (the first load and refreshes); readers of a loaded snapshot never take it
+    private final Object buildLock = new Object();
 
-    // Pre-fetched matrices from Google Sheets
-    private List<List<Object>> sssMatrix;
-    private List<List<Object>> philHealthMatrix;
-    private List<List<Object>> pagIbigMatrix;
-    private List<List<Object>> withHoldingTaxMatrix;
+    // History of computed weeks, when -Dmotorph.ledgerDir is set (null otherwise)
+    private final PayrollLedger ledger = PayrollLedger.fromSystemProperties();
+
+    // New and changed employees on their way to the data source; reads lay them over the snapshot
+    private final EmployeeWriteQueue writeQueue;
+
+    // Name/position/status/supervisor search over the snapshot plus queued rows (see getSearchIndex)
+    private final EmployeeSearchIndex searchIndex = new EmployeeSearchIndex();
+    // What the search index was last brought up to date with; guarded by searchIndex
+    private PayrollSnapshot searchIndexSnapshot;
+    private long searchIndexQueueVersion = -1;
+
+    // Reuses the previous run's results on refresh, turned on with -Dmotorph.payroll.incremental=true
+    private final IncrementalPayroll incrementalPayroll = Boolean.getBoolean(IncrementalPayroll.INCREMENTAL_PROPERTY)
+            ? new IncrementalPayroll(payrollEngine) : null;
 
-    // Constructor: Fetch matrices once when the service is created
     public EmployeeService() {
-        try {
-            this.sssMatrix = GoogleSheetsHandler.fetchSssMatrixData();
-            this.philHealthMatrix = GoogleSheetsHandler.fetchPhilHealthMatrixData();
-            this.pagIbigMatrix = GoogleSheetsHandler.fetchPagIbigMatrixData();
-            this.withHoldingTaxMatrix = GoogleSheetsHandler.fetchWithHoldingTaxMatrixData();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Error fetching Google Sheets matrices: " + e.getMessage());
-        }
+        this(new SheetsDataSource());
+    }
+
+    // Constructor: Start fetching the matrices; it returns right away so the menu can come up
+    public EmployeeService(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.attendanceProcessor = new AttendanceProcessor(dataSource);
+        this.deductionTables = DeductionTablesWarmup.start(dataSource);
+        this.deductionRules = DeductionRules.fromSystemProperties(dataSource);
+        this.writeQueue = new EmployeeWriteQueue(dataSource, this);
+    }
+
+    // Readiness of the background matrix warm-up
+    public DeductionTablesWarmup getDeductionTablesWarmup() {
+        return deductionTables;
     }
     
-    public Employee getEmployeeByNumber(int employeeNumber) throws IOException, GeneralSecurityException {
-        List<List<Object>> rawData = handler.fetchEmployeeData();
-        Map<Integer, Double> hoursMap = attendanceProcessor.calculateHoursWorked();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-        Employee employee = null;
-
-        for (List<Object> row : rawData) {
-            if (Integer.parseInt(row.get(0).toString()) == employeeNumber) {
-                employee = createEmployee(row, formatter, hoursMap);
-                break;
-            }
+    public DeductionRules getDeductionRules() {
+        return deductionRules;
+    }
+
+    // The compiled tables of the rules in force on the last day of a pay period, sharing the snapshot's standard matrices
+    public DeductionTables getDeductionTables(LocalDate periodEnd) throws IOException, GeneralSecurityException {
+        return deductionRules.tablesFor(periodEnd, getSnapshot().getMatrices());
+    }
+    
+    public EmployeeWriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    // The payroll history, or null when the ledger is turned off
+    public PayrollLedger getLedger() {
+        return ledger;
+    }
+
+    // Queues a new employee (createEmployee column layout); throws IllegalArgumentException for a bad row or a taken number
+    public void addEmployee(List<Object> row) throws IOException, GeneralSecurityException {
+        writeQueue.create(row);
+    }
+
+    // Queues new details for an existing employee
+    public void updateEmployee(List<Object> row) throws IOException, GeneralSecurityException {
+        writeQueue.update(row);
+    }
+
+    // Adds the employee, or updates it if the number is taken; returns true if it was added
+    public boolean saveEmployee(List<Object> row) throws IOException, GeneralSecurityException {
+        List<Object> cells = EmployeeWriteQueue.validate(row);
+        int employeeNumber = (int) RowParser.parseLong(RowParser.cell(cells, RowParser.EMPLOYEE_NUMBER));
+        if (getEmployeeByNumber(employeeNumber) == null) {
+            writeQueue.create(cells);
+            return true;
         }
-        return employee;
+        writeQueue.update(cells);
+        return false;
+    }
+
+    // Looks the employee up in the current snapshot (or the write queue); no sheet access once the index is built
+    public Employee getEmployeeByNumber(int employeeNumber) throws IOException, GeneralSecurityException {
+        PayrollSnapshot current = getSnapshot();
+        List<Object> queued = writeQueue.rowOf(employeeNumber, current);
+        return queued != null ? current.employeeOf(queued) : current.getEmployees().get(employeeNumber);
     }
 
     public List<Employee> getAllEmployees() throws IOException, GeneralSecurityException {
-        List<List<Object>> rawData = handler.fetchEmployeeData();
-        Map<Integer, Double> hoursMap = attendanceProcessor.calculateHoursWorked();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-        List<Employee> employees = new java.util.ArrayList<>();
+        PayrollSnapshot current = getSnapshot();
+        Map<Integer, List<Object>> queued = writeQueue.rowsOver(current);
+        return queued.isEmpty() ? current.getEmployees().getEmployees() : withQueuedRows(current, queued);
+    }
 
-        for (List<Object> row : rawData) {
-            try {
-                Employee employee = createEmployee(row, formatter, hoursMap);
-                employees.add(employee);
-            } catch (Exception e) {
-                System.out.println("Error processing employee data: " + row);
-                e.printStackTrace();
+    // Column store of the current snapshot, for totals and scans that need no Employee objects
+    public EmployeeStore getEmployeeStore() throws IOException, GeneralSecurityException {
+        PayrollSnapshot current = getSnapshot();
+        Map<Integer, List<Object>> queued = writeQueue.rowsOver(current);
+        return queued.isEmpty() ? current.getEmployees().getStore() : EmployeeStore.of(withQueuedRows(current, queued));
+    }
+
+    // The snapshot's employees with queued rows in place of their old ones, and new ones at the end
+    private static List<Employee> withQueuedRows(PayrollSnapshot current, Map<Integer, List<Object>> queued) {
+        Map<Integer, List<Object>> remaining = new HashMap<>(queued);
+        List<Employee> employees = new ArrayList<>(current.getEmployees().size() + queued.size());
+        for (Employee employee : current.getEmployees().getEmployees()) {
+            List<Object> row = remaining.remove(employee.getEmployeeNumber());
+            employees.add(row == null ? employee : current.employeeOf(row));
+        }
+        for (Map.Entry<Integer, List<Object>> entry : queued.entrySet()) {
+            if (remaining.containsKey(entry.getKey())) {
+                employees.add(current.employeeOf(entry.getValue()));
             }
         }
         return employees;
     }
 
-    // Creates an Employee object from raw data
-    private Employee createEmployee(List<Object> row, DateTimeFormatter formatter, Map<Integer, Double> hoursMap) {
-        int employeeNumber = Integer.parseInt(row.get(0).toString());
-        double hoursWorked = hoursMap.getOrDefault(employeeNumber, 0.0);
-
-        Employee employee = new Employee(
-            employeeNumber,
-            row.get(1).toString(),
-            row.get(2).toString(),
-            LocalDate.parse(row.get(3).toString(), formatter),
-            row.get(4).toString(),
-            row.get(5).toString(),
-            row.get(6).toString(),
-            row.get(7).toString(),
-            row.get(8).toString(),
-            row.get(9).toString(),
-            row.get(10).toString(),
-            row.get(11).toString(),
-            row.get(12).toString(),
-            Integer.parseInt(row.get(13).toString().replace(",", "")),
-            Integer.parseInt(row.get(14).toString().replace(",", "")),
-            Integer.parseInt(row.get(15).toString().replace(",", "")),
-            Integer.parseInt(row.get(16).toString().replace(",", "")),
-            Integer.parseInt(row.get(17).toString().replace(",", "")),
-            Double.parseDouble(row.get(18).toString())
-        );
-        employee.setHoursWorked(hoursWorked);
-        
+    /*
+     * The search index, brought up to date first: with a new snapshot every employee is compared
+     * and only changed ones are re-indexed; with new queued writes only those rows are.
+     */
+    public EmployeeSearchIndex getSearchIndex() throws IOException, GeneralSecurityException {
+        PayrollSnapshot current = getSnapshot();
+        long queueVersion = writeQueue.getVersion();
+        synchronized (searchIndex) {
+            if (current == searchIndexSnapshot && queueVersion == searchIndexQueueVersion) {
+                return searchIndex;
+            }
+            long start = PayrollMetrics.start();
+            if (current != searchIndexSnapshot) {
+                EmployeeIndex employees = current.getEmployees();
+                EmployeeStore store = employees.getStore();
+                for (int row = 0; row < store.size(); row++) {
+                    // A duplicated number is the first row's employee, as in EmployeeIndex
+                    if (employees.rowOf(store.employeeNumber(row)) == row) {
+                        searchIndex.put(store.employeeNumber(row), store.lastName(row), store.firstName(row),
+                                store.position(row), store.supervisor(row), store.status(row));
+                    }
+                }
+                for (int employeeNumber : searchIndex.employeeNumbers()) {
+                    if (!employees.contains(employeeNumber)) {
+                        searchIndex.remove(employeeNumber);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, List<Object>> queued : writeQueue.rowsOver(current).entrySet()) {
+                List<Object> row = queued.getValue();
+                searchIndex.put(queued.getKey(), RowParser.cell(row, RowParser.LAST_NAME), RowParser.cell(row, RowParser.FIRST_NAME),
+                        RowParser.cell(row, RowParser.POSITION), RowParser.cell(row, RowParser.IMMEDIATE_SUPERVISOR),
+                        RowParser.cell(row, RowParser.STATUS));
+            }
+            PayrollMetrics.timer("search.index.update").record(start);
+            searchIndexSnapshot = current;
+            searchIndexQueueVersion = queueVersion;
+            return searchIndex;
+        }
+    }
+
+    // The index of the current data snapshot, loaded on first use
+    public EmployeeIndex getEmployeeIndex() throws IOException, GeneralSecurityException {
+        return getSnapshot().getEmployees();
+    }
+
+    // Every attendance record of the current data snapshot, by employee and date
+    public AttendanceIndex getAttendanceIndex() throws IOException, GeneralSecurityException {
+        return getSnapshot().getAttendance();
+    }
+
+    // The current data snapshot, loaded on first use; never blocks once one is loaded
+    public PayrollSnapshot getSnapshot() throws IOException, GeneralSecurityException {
+        PayrollSnapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (buildLock) {
+                current = snapshot.get();
+                if (current == null) {
+                    current = buildSnapshot(deductionTables);
+                    snapshot.set(current);
+                }
+            }
+        }
+        return current;
+    }
+
+    // The current data snapshot, or null if none has been loaded yet; never loads one
+    public PayrollSnapshot getLoadedSnapshot() {
+        return snapshot.get();
+    }
+
+    /*
+     * Re-reads employee details, attendance and the deduction matrices into a new snapshot and
+     * publishes it. Readers keep using the old snapshot until the swap and never see a mix of both.
+     */
+    public PayrollSnapshot refresh() throws IOException, GeneralSecurityException {
+        synchronized (buildLock) {
+            // The first load uses the warm-up; every later one fetches the matrices again
+            DeductionTablesWarmup tables = snapshot.get() == null ? deductionTables : DeductionTablesWarmup.refetch(dataSource);
+            // Older matrix versions may have changed too, so every compiled rule set goes
+            deductionRules.invalidate();
+            PayrollSnapshot next = buildSnapshot(tables);
+            snapshot.set(next);
+            return next;
+        }
+    }
+
+    /*
+     * Payroll for the hours worked between two dates (both included) instead of the latest work week,
+     * e.g. a back-dated week or an audit of a past period. Deductions are still the weekly shares,
+     * under the rules in force on the last day of the period. The employees are the snapshot's with
+     * queued rows laid over them, like getAllEmployees(), so the employee sheet is not read again.
+     */
+    public PayrollRun runPayroll(LocalDate from, LocalDate to) throws IOException, GeneralSecurityException {
+        PayrollSnapshot current = getSnapshot();
+        AttendanceIndex attendance = current.getAttendance();
+        if (!attendance.covers(from, to)) {
+            // Older than the snapshot keeps: one pass over the sheet for just that period
+            AttendanceIndex.Builder period = AttendanceIndex.Builder.between(from, to);
+            attendanceProcessor.streamRows(AttendanceProcessor.DEFAULT_CHUNK_ROWS, period::accept);
+            attendance = period.build();
+        }
+        Map<Integer, List<Object>> queued = writeQueue.rowsOver(current);
+        List<Employee> employees = queued.isEmpty() ? current.getEmployees().getEmployees() : withQueuedRows(current, queued);
+        return payrollEngine.run(employees, attendance, from, to, deductionRules.tablesFor(to, current.getMatrices()));
+    }
+
+    private PayrollSnapshot buildSnapshot(DeductionTablesWarmup warmup) throws IOException, GeneralSecurityException {
+        // The data is as of the start of the build; writes queued after that are still laid over it
+        Instant loadedAt = Instant.now();
+        // Attendance is streamed in chunks, so the whole log never has to fit in one range
+        List<List<Object>> rawData = dataSource.fetchEmployeeData();
+
+        // First point where deductions are needed: wait for the warm-up if it is still running
+        PayrollRun run;
+        AttendanceIndex attendance;
+        DeductionTables tables;
+        if (incrementalPayroll != null) {
+            // One pass over the sheet for both, so the hours and the index always agree
+            AttendanceIndex.Builder index = AttendanceIndex.Builder.recent();
+            incrementalPayroll.updateAttendance(attendanceProcessor, index::accept);
+            attendance = index.build();
+            tables = deductionRules.tablesFor(periodEndOf(attendance), warmup);
+            run = incrementalPayroll.run(rawData, tables);
+        } else {
+            AttendanceProcessor.Attendance read = attendanceProcessor.readAttendance();
+            attendance = read.getIndex();
+            tables = deductionRules.tablesFor(periodEndOf(attendance), warmup);
+            run = payrollEngine.run(rawData, read.getWeeklyHours(), tables);
+        }
+        for (RowError error : run.getErrors()) {
+            System.out.println(error);
+        }
+        PayrollSnapshot built = new PayrollSnapshot(new EmployeeIndex(EmployeeStore.of(run.getEmployees())), tables, warmup, attendance, loadedAt);
+        recordInLedger(built);
+        return built;
+    }
+
+    // Last day of the week the snapshot computes, which picks its deduction rules (today if there is no attendance)
+    private static LocalDate periodEndOf(AttendanceIndex attendance) {
+        LocalDate weekEnd = attendance.latestWeekEnd();
+        return weekEnd == null ? LocalDate.now() : weekEnd;
+    }
+
+    /*
+     * Adds the snapshot's week to the ledger the first time it is computed after it has ended.
+     * Refreshes during the week, or later ones with late attendance, write nothing; corrections
+     * go in through closePayroll(). A failure there does not stop the payroll.
+     */
+    private void recordInLedger(PayrollSnapshot built) {
+        if (ledger == null || built.getWeekStart() == null
+                || !built.getWeekEnd().isBefore(LocalDate.now()) || ledger.hasRun(built.getWeekStart(), built.getWeekEnd())) {
+            return;
+        }
         try {
-            // Use the pre-fetched matrices to calculate deductions.
-            DeductionService.calculateAllDeductions(employee, sssMatrix, philHealthMatrix, pagIbigMatrix, withHoldingTaxMatrix);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Error calculating deductions: " + e.getMessage());
+            ledger.record(built.getWeekStart(), built.getWeekEnd(), built.getEmployees().getStore());
+        } catch (IOException e) {
+            System.out.println("Could not record the payroll in the ledger: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Records the current snapshot's week in the ledger even if it is already there, e.g. after
+     * corrections; the new run supersedes the old one. Returns false if nothing was written
+     * (same figures as the recorded run, or no week to record). Throws IllegalStateException
+     * when the ledger is turned off or the week has not ended yet.
+     */
+    public boolean closePayroll() throws IOException, GeneralSecurityException {
+        if (ledger == null) {
+            throw new IllegalStateException("The payroll ledger is not turned on");
         }
+        PayrollSnapshot current = getSnapshot();
+        if (current.getWeekStart() == null) {
+            return false;
+        }
+        if (!current.getWeekEnd().isBefore(LocalDate.now())) {
+            throw new IllegalStateException("The week ending " + current.getWeekEnd() + " has not ended yet");
+        }
+        return ledger.record(current.getWeekStart(), current.getWeekEnd(), current.getEmployees().getStore());
+    }
+
+    // Releases the ledger's files and lock before the program exits; nothing is recorded after this
+    public void closeLedger() {
+        if (ledger == null) {
+            return;
+        }
+        try {
+            ledger.close();
+        } catch (IOException e) {
+            System.out.println("Error closing the payroll ledger: " + e.getMessage());
+        }
+    }
 
+    // Creates an Employee object from raw data, with its hours and gross wage (deductions not applied)
+    static Employee createEmployee(List<Object> row, Map<Integer, Double> hoursMap) {
+        RowParser parser = new RowParser();
+        Employee employee = parser.parseEmployee(row, hoursMap);
+        if (employee == null) {
+            throw new IllegalArgumentException(parser.describeErrors());
+        }
         return employee;
     }
 }
@@ -270,189 +799,182 @@ class EmployeeService {
 // ===== Deduction Layer =====
 /*
  * DeductionService: Handles deductions
+ * All amounts are computed in centavos (see Centavos for the rounding rules) on compiled
+ * ContributionTables. The double/List-based overloads are kept for one-off calculations.
+ * The constants below are the standard DeductionFormula; rule sets with other effective
+ * dates bring their own (see DeductionRules), and overloads without a formula use these.
  */
 class DeductionService {
+    // Pag-IBIG employee contribution cap, per month
+    static final long PAGIBIG_CAP_CENTAVOS = Centavos.fromPesos(100);
+
+    // PhilHealth premium rate (3%) and the employee's share of it (50%)
+    static final long PHILHEALTH_RATE_MICROS = Centavos.percentToMicros(3);
+    static final long PHILHEALTH_EMPLOYEE_SHARE = 2;
+
+    // Monthly amounts are split into 4 weekly ones
+    static final long WEEKS_PER_MONTH = 4;
+
+    private static final PayrollMetrics.Timer SSS_TIMER = PayrollMetrics.timer("deduction.sss");
+    private static final PayrollMetrics.Timer PHILHEALTH_TIMER = PayrollMetrics.timer("deduction.philhealth");
+    private static final PayrollMetrics.Timer PAGIBIG_TIMER = PayrollMetrics.timer("deduction.pagibig");
+    private static final PayrollMetrics.Timer TAX_TIMER = PayrollMetrics.timer("deduction.tax");
+    private static final LongAdder TAX_BRACKET_MISSES = PayrollMetrics.counter("deduction.tax.bracketMisses");
+
     // Calculate SSS Deduction based on employee data and the SSS matrix.
     public static double calculateSssDeduction(Employee employee, List<List<Object>> sssMatrix) {
-        
-        double monthlySalary = employee.getBasicSalary();
-        
-        for (List<Object> row : sssMatrix) {
-            String lowerBoundStr = row.get(0).toString().replace(",", "").trim();
-            String upperBoundStr = row.get(1).toString().replace(",", "").trim();
-            
-            double lowerBound = lowerBoundStr.isEmpty() ? 0 : Double.parseDouble(lowerBoundStr);
-            double upperBound = upperBoundStr.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(upperBoundStr);
-            
-            if (lowerBound <= monthlySalary && monthlySalary <= upperBound) {
-                double deduction = Double.parseDouble(row.get(2).toString().replace(",", "").trim());
-                
-                return deduction;
-            }
-                  
-        }
-        return 0.0;
+        return calculateSssDeduction(employee.getBasicSalary(), ContributionTable.compile(sssMatrix));
+    }
+
+    public static double calculateSssDeduction(double monthlySalary, ContributionTable sssTable) {
+        return Centavos.toPesos(calculateSssDeductionCentavos(Centavos.fromPesos(monthlySalary), sssTable));
     }
-    
 
+    public static long calculateSssDeductionCentavos(long monthlySalary, ContributionTable sssTable) {
+        int row = sssTable.find(monthlySalary);
+        if (row < 0) {
+            return 0;
+        }
+        return sssTable.rateCentavos(row);
+    }
     
     // Calculate PhilHealth Deduction based on employee data and the PhilHealth matrix.
     public static double calculatePhilHealthDeduction(Employee employee, List<List<Object>> phMatrix) {
-        
-        double monthlySalary = employee.getBasicSalary();
-        
-        for (List<Object> row : phMatrix) {
-            String lowerBoundStr = row.get(0).toString().replace(",", "").trim();
-            String upperBoundStr = row.get(1).toString().replace(",", "").trim();
-            
-            double lowerBound = lowerBoundStr.isEmpty() ? 0 : Double.parseDouble(lowerBoundStr);
-            double upperBound = upperBoundStr.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(upperBoundStr);
-            
-            if (lowerBound <= monthlySalary && monthlySalary <= upperBound) {
-                
-                int bracket = Integer.parseInt(row.get(4).toString().trim());
-            
-                switch (bracket) {
-                    case 1 -> {
-                        // Fixed monthly premium
-                        double deduction = Double.parseDouble(row.get(3).toString().replace(",", "").trim());
-                        
-                        // Monthly premium contributions are equally shared between the employee and employer.
-                        deduction = deduction * 0.5;
-
-                        return deduction;        
-                    }
-                    case 2 -> {
-                        // The 3% premium rate of Philhealth matrix
-                        double deduction = monthlySalary * 0.03;
+        return calculatePhilHealthDeduction(employee.getBasicSalary(), ContributionTable.compile(phMatrix));
+    }
 
-                        // Monthly premium contributions are equally shared between the employee and employer.
-                        deduction = deduction * 0.5;
-                        return deduction;
+    public static double calculatePhilHealthDeduction(double monthlySalary, ContributionTable phTable) {
+        return Centavos.toPesos(calculatePhilHealthDeductionCentavos(Centavos.fromPesos(monthlySalary), phTable));
+    }
 
-                    }
-                    case 3 -> {
-                        // Fixed monthly premium 
-                        double deduction = Double.parseDouble(row.get(3).toString().replace(",", "").trim());
-                        
-                        // Monthly premium contributions are equally shared between the employee and employer.
-                        deduction = deduction * 0.5;
-
-                        return deduction;
-                    }
-                    default -> {
+    public static long calculatePhilHealthDeductionCentavos(long monthlySalary, ContributionTable phTable) {
+        return calculatePhilHealthDeductionCentavos(monthlySalary, phTable, DeductionFormula.STANDARD);
+    }
 
-                        // Handle unexpected bracket values if needed.
+    public static long calculatePhilHealthDeductionCentavos(long monthlySalary, ContributionTable phTable, DeductionFormula formula) {
+        int row = phTable.find(monthlySalary);
+        if (row < 0) {
+            return 0;
+        }
 
-                        return 0.0;
-                    }
-                }
-            }
-            
-           
+        long premium;
+        switch (phTable.bracketType(row)) {
+            // Fixed monthly premium
+            case 1, 3 -> premium = phTable.fixed(row);
+            // The premium rate of Philhealth matrix (3% in the standard formula)
+            case 2 -> premium = Centavos.applyRate(monthlySalary, formula.getPhilHealthRateMicros());
+            // Handle unexpected bracket values if needed.
+            default -> premium = 0;
         }
-        return 0.0;
+
+        // Monthly premium contributions are equally shared between the employee and employer.
+        return Centavos.divide(premium, formula.getPhilHealthEmployeeShare());
     }
     
     // Calculate Pag-IBIG Deduction based on employee data and the Pag-IBIG matrix.
     public static double calculatePagIbigDeduction(Employee employee, List<List<Object>> pagIbigMatrix) {
-        
-        double monthlySalary = employee.getBasicSalary();
-        
-        for (List<Object> row : pagIbigMatrix) {
-            String lowerBoundStr = row.get(0).toString().replace(",", "").trim();
-            String upperBoundStr = row.get(1).toString().replace(",", "").trim();
-            
-            double lowerBound = lowerBoundStr.isEmpty() ? 0 : Double.parseDouble(lowerBoundStr);
-            double upperBound = upperBoundStr.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(upperBoundStr);
-            
-            if (lowerBound <= monthlySalary && monthlySalary <= upperBound) {
-                double percentageValue = Double.parseDouble(row.get(2).toString().trim());
-                percentageValue = percentageValue * 0.01;
-                
-                double deduction = monthlySalary * percentageValue;
-                
-                // Max cap for contribution is 100
-                if (deduction > 100) {
-                    deduction = 100;
-                }
-                
-                return deduction;
-            }
+        return calculatePagIbigDeduction(employee.getBasicSalary(), ContributionTable.compile(pagIbigMatrix));
+    }
+
+    public static double calculatePagIbigDeduction(double monthlySalary, ContributionTable pagIbigTable) {
+        return Centavos.toPesos(calculatePagIbigDeductionCentavos(Centavos.fromPesos(monthlySalary), pagIbigTable));
+    }
+
+    public static long calculatePagIbigDeductionCentavos(long monthlySalary, ContributionTable pagIbigTable) {
+        return calculatePagIbigDeductionCentavos(monthlySalary, pagIbigTable, DeductionFormula.STANDARD);
+    }
+
+    public static long calculatePagIbigDeductionCentavos(long monthlySalary, ContributionTable pagIbigTable, DeductionFormula formula) {
+        int row = pagIbigTable.find(monthlySalary);
+        if (row < 0) {
+            return 0;
         }
-       
-        return 0.0;
+
+        long deduction = Centavos.applyRate(monthlySalary, pagIbigTable.rateMicros(row));
+
+        // Max cap for contribution (100 in the standard formula)
+        return Math.min(deduction, formula.getPagIbigCapCentavos());
     }
     
     // Adjusted tax deduction calculation to accept taxable wage
     public static double calculateTaxDeduction(Employee employee, List<List<Object>> taxMatrix, double taxableWage) {
-        double monthlyTaxable = taxableWage * 4; // Convert to monthly taxable amount
-
-        for (List<Object> row : taxMatrix) {
-            String lowerBoundStr = row.get(0).toString().replace(",", "").trim();
-            String upperBoundStr = row.get(1).toString().replace(",", "").trim();
-
-            double lowerBound = lowerBoundStr.isEmpty() ? 0 : Double.parseDouble(lowerBoundStr);
-            double upperBound = upperBoundStr.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(upperBoundStr);
+        return calculateTaxDeduction(ContributionTable.compile(taxMatrix), taxableWage);
+    }
 
-            if (monthlyTaxable >= lowerBound && monthlyTaxable <= upperBound) {
-                double percentageValue = Double.parseDouble(row.get(2).toString().trim());
-                double fixedDeduction = Double.parseDouble(row.get(3).toString().replace(",", "").trim());
+    public static double calculateTaxDeduction(ContributionTable taxTable, double taxableWage) {
+        return Centavos.toPesos(calculateTaxDeductionCentavos(taxTable, Centavos.fromPesos(taxableWage)));
+    }
 
-                double percentage = percentageValue / 100;
-                double excess = monthlyTaxable - lowerBound;
+    // Monthly withholding tax for a weekly taxable wage
+    public static long calculateTaxDeductionCentavos(ContributionTable taxTable, long taxableWage) {
+        return calculateTaxDeductionCentavos(taxTable, taxableWage, DeductionFormula.STANDARD);
+    }
 
-                double percentageDeduction = excess * percentage;
-                
-                double totalMonthlyDeduction = fixedDeduction + percentageDeduction;
+    public static long calculateTaxDeductionCentavos(ContributionTable taxTable, long taxableWage, DeductionFormula formula) {
+        long monthlyTaxable = taxableWage * formula.getWeeksPerMonth(); // Convert to monthly taxable amount
 
-                return totalMonthlyDeduction;
-            }
+        int row = taxTable.find(monthlyTaxable);
+        if (row < 0) {
+            recordTaxBracketMiss();
+            return 0;
         }
 
-        System.out.println("No matching tax bracket found. Returning 0 deduction.");
-        return 0.0;
+        long excess = monthlyTaxable - taxTable.lower(row);
+        return taxTable.fixed(row) + Centavos.applyRate(excess, taxTable.rateMicros(row));
     }
 
     
     /*
      * Aggregates all deduction calculations.
-     * This method can update the Employee object or return an object with a detailed breakdown.
-     * For now, it simply prints the calculated values.
+     * Sets the weekly deductions and the resulting net wage on the Employee object.
      */
     public static void calculateAllDeductions(Employee employee, List<List<Object>> sssMatrix, List<List<Object>> philHealthMatrix, List<List<Object>> pagIbigMatrix, List<List<Object>> withHoldingTaxMatrix) {
+        calculateAllDeductions(employee, DeductionTables.compile(sssMatrix, philHealthMatrix, pagIbigMatrix, withHoldingTaxMatrix));
+    }
+
+    public static void calculateAllDeductions(Employee employee, DeductionTables tables) {
+        long monthlySalary = employee.getBasicSalaryCentavos();
+        DeductionFormula formula = tables.getFormula();
+        long weeks = formula.getWeeksPerMonth();
     
-        // Calculate deductions using respective methods
-        double sssDeduction = calculateSssDeduction(employee, sssMatrix);
-        double philHealthDeduction = calculatePhilHealthDeduction(employee, philHealthMatrix);
-        double pagIbigDeduction = calculatePagIbigDeduction(employee, pagIbigMatrix);
-        
-//        System.out.println("MONTHLY SSS Deduction: " + sssDeduction);
-//        System.out.println("MONTHLY PhilHealth Deduction: " + philHealthDeduction);
-//        System.out.println("MONTHLY Pag-IBIG Deduction: " + pagIbigDeduction);
-        
-        sssDeduction = sssDeduction / 4;
-        philHealthDeduction = philHealthDeduction / 4;
-        pagIbigDeduction = pagIbigDeduction / 4;
-        
-//        System.out.println("WEEKLY SSS Deduction: " + sssDeduction);
-//        System.out.println("WEEKLY PhilHealth Deduction: " + philHealthDeduction);
-//        System.out.println("WEEKLY Pag-IBIG Deduction: " + pagIbigDeduction);
+        // Calculate deductions using respective methods, then split them into weekly amounts
+        long start = PayrollMetrics.start();
+        long sssDeduction = Centavos.divide(calculateSssDeductionCentavos(monthlySalary, tables.getSss()), weeks);
+        start = lap(SSS_TIMER, start);
+        long philHealthDeduction = Centavos.divide(calculatePhilHealthDeductionCentavos(monthlySalary, tables.getPhilHealth(), formula), weeks);
+        start = lap(PHILHEALTH_TIMER, start);
+        long pagIbigDeduction = Centavos.divide(calculatePagIbigDeductionCentavos(monthlySalary, tables.getPagIbig(), formula), weeks);
+        start = lap(PAGIBIG_TIMER, start);
         
         // Calculate taxable wage || Gross - Deductions before proceeding to withHoldingTax
-        double taxableWage = employee.getWeeklyGrossWage() - sssDeduction - philHealthDeduction - pagIbigDeduction;
+        long taxableWage = employee.getWeeklyGrossCentavos() - sssDeduction - philHealthDeduction - pagIbigDeduction;
 
         // Calculate tax deduction using taxable wage instead of gross wage
-        double taxDeduction = calculateTaxDeduction(employee, withHoldingTaxMatrix, taxableWage) / 4;
-//        System.out.println("Total Weekly Deduction: " + taxDeduction);
+        long taxDeduction = Centavos.divide(calculateTaxDeductionCentavos(tables.getWithHoldingTax(), taxableWage, formula), weeks);
+        lap(TAX_TIMER, start);
 
-        // Calculate net wage
-        double netWage = taxableWage - taxDeduction;
-        employee.setWeeklyNetWage(netWage);
-        
-        // Debugging prints
-//        System.out.println("TAXABLE WAGE: " + taxableWage);
-//        System.out.println("Net Weekly Wage: " + netWage);
+        // Net wage = taxable wage - tax
+        employee.setWeeklyDeductions(sssDeduction, philHealthDeduction, pagIbigDeduction, taxDeduction);
+    }
+
+    // A taxable wage outside every tax bracket, taxed at 0; only counted (deduction.tax.bracketMisses)
+    static void recordTaxBracketMiss() {
+        TAX_BRACKET_MISSES.increment();
+    }
+
+    // Several at once, e.g. the lanes of one vector (shared with VectorDeductionKernel)
+    static void recordTaxBracketMisses(int count) {
+        TAX_BRACKET_MISSES.add(count);
+    }
+
+    // Records the time since start and returns the new start, so consecutive steps share one clock read
+    private static long lap(PayrollMetrics.Timer timer, long start) {
+        if (!PayrollMetrics.ENABLED) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        timer.recordNanos(now - start);
+        return now;
     }
 }
 
@@ -467,22 +989,172 @@ class GoogleSheetsHandler {
     private static final String SPREADSHEET_ID = "1bvtvlsjnS-jW8tZ6Sf7pajeM8c1-XZexLrVw3M9dBlE"; // Sheet's ID
     
     // List of variables for the need sheets to play with
-    private static final String EMPLOYEE_RANGE = "Employee Details!A2:S35";
+    // Open-ended, so rows appended by EmployeeWriteQueue are read back
+    private static final String EMPLOYEE_SHEET = "Employee Details";
+    private static final String EMPLOYEE_RANGE = EMPLOYEE_SHEET + "!A2:S";
+    private static final String EMPLOYEE_NUMBER_RANGE = EMPLOYEE_SHEET + "!A2:A";
+    private static final int EMPLOYEE_FIRST_ROW = 2;
+
+    // Written cells are stored as typed, so they read back exactly as they were sent
+    private static final String VALUE_INPUT_OPTION = "RAW";
     private static final String ATTENDANCE_RANGE = "Attendance Record!A2:F5169";
+
+    // Streaming reads start below the header and have no fixed end row
+    static final int ATTENDANCE_FIRST_ROW = 2;
+    private static final String ATTENDANCE_SHEET = "Attendance Record";
+    static final String ATTENDANCE_STREAM_RANGE = ATTENDANCE_SHEET + "!A" + ATTENDANCE_FIRST_ROW + ":F";
    
     private static final String SSS_RANGE = "SSS Matrix!A1:C45";
     private static final String PHILHEALTH_RANGE = "Philhealth Matrix!A1:E6";
     private static final String PAGIBIG_RANGE = "Pag-ibig Matrix!A1:E6";
     private static final String WITHHOLDINGTAX_RANGE = "Withholding Tax Matrix!A1:D6";
      
+    private static final String CREDENTIALS_PATH = "src/main/resources/credentials.json";
+
+    // Set -Dmotorph.sheets.rootUrl=http://localhost:<port>/ to talk to a local stand-in (e.g. FakeSheetsServer)
+    static final String ROOT_URL_PROPERTY = "motorph.sheets.rootUrl";
+
+    // Drive is only asked for file metadata (the spreadsheet's modifiedTime)
+    private static final List<String> SCOPES = List.of(
+        "https://www.googleapis.com/auth/spreadsheets",
+        "https://www.googleapis.com/auth/drive.metadata.readonly"
+    );
+
+    // One long-lived client for the whole process. The underlying NetHttpTransport is
+    // thread-safe and keeps its connections alive, so every fetch reuses them.
+    private static volatile Sheets sheetsService;
+
+    // Drive client sharing the Sheets client's transport and credentials
+    private static volatile Drive driveService;
+
     public static Sheets getSheetsService() throws IOException, GeneralSecurityException {
-        GoogleCredentials credentials = GoogleCredentials.fromStream(new FileInputStream("src/main/resources/credentials.json"))
-                .createScoped(List.of("https://www.googleapis.com/auth/spreadsheets"));
+        Sheets service = sheetsService;
+        if (service == null) {
+            synchronized (GoogleSheetsHandler.class) {
+                service = sheetsService;
+                if (service == null) {
+                    service = buildSheetsService();
+                    sheetsService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    public static Drive getDriveService() throws IOException, GeneralSecurityException {
+        Drive service = driveService;
+        if (service == null) {
+            synchronized (GoogleSheetsHandler.class) {
+                service = driveService;
+                if (service == null) {
+                    Sheets sheets = getSheetsService();
+                    Drive.Builder builder = new Drive.Builder(sheets.getRequestFactory().getTransport(), JSON_FACTORY,
+                            sheets.getRequestFactory().getInitializer())
+                            .setApplicationName(APPLICATION_NAME);
+                    String rootUrl = rootUrl();
+                    if (rootUrl != null) {
+                        builder.setRootUrl(rootUrl);
+                    }
+                    service = builder.build();
+                    driveService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    private static Sheets buildSheetsService() throws IOException, GeneralSecurityException {
+        String rootUrl = rootUrl();
 
-        return new Sheets.Builder(GoogleNetHttpTransport.newTrustedTransport(), JSON_FACTORY, new HttpCredentialsAdapter(credentials))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        // A local stand-in needs no credentials
+        HttpRequestInitializer initializer = request -> { };
+        if (rootUrl == null) {
+            GoogleCredentials credentials;
+            try (FileInputStream in = new FileInputStream(CREDENTIALS_PATH)) {
+                credentials = GoogleCredentials.fromStream(in).createScoped(SCOPES);
+            }
+            initializer = new HttpCredentialsAdapter(credentials);
+        }
+
+        Sheets.Builder builder = new Sheets.Builder(GoogleNetHttpTransport.newTrustedTransport(), JSON_FACTORY, initializer)
+                .setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null) {
+            builder.setRootUrl(rootUrl);
+        }
+        return builder.build();
+    }
+
+    private static String rootUrl() {
+        String rootUrl = System.getProperty(ROOT_URL_PROPERTY);
+        if (rootUrl == null) {
+            return null;
+        }
+        return rootUrl.endsWith("/") ? rootUrl : rootUrl + "/";
+    }
+
+    // Last change to the spreadsheet (epoch millis), from its Drive metadata
+    public static long fetchModifiedTime() throws IOException, GeneralSecurityException {
+        DateTime modifiedTime = SheetsFetchGate.SHARED.fetch("drive:modifiedTime", () -> {
+            long start = PayrollMetrics.start();
+            DateTime time = getDriveService().files().get(SPREADSHEET_ID)
+                    .setFields("modifiedTime")
+                    .execute()
+                    .getModifiedTime();
+            PayrollMetrics.timer("fetch.drive.modifiedTime").record(start);
+            return time;
+        });
+        if (modifiedTime == null) {
+            throw new IOException("Drive returned no modifiedTime for the spreadsheet");
+        }
+        return modifiedTime.getValue();
+    }
+
+    // A1 range for each sheet
+    static String rangeOf(DataSheet sheet) {
+        return switch (sheet) {
+            case EMPLOYEE_DETAILS -> EMPLOYEE_RANGE;
+            case ATTENDANCE_RECORD -> ATTENDANCE_RANGE;
+            case SSS_MATRIX -> SSS_RANGE;
+            case PHILHEALTH_MATRIX -> PHILHEALTH_RANGE;
+            case PAGIBIG_MATRIX -> PAGIBIG_RANGE;
+            case WITHHOLDING_TAX_MATRIX -> WITHHOLDINGTAX_RANGE;
+        };
     }
+
+    // The sheet's cell range on another tab, where a dated version of a matrix is kept
+    static String matrixRange(DataSheet sheet, String title) {
+        String range = rangeOf(sheet);
+        return title + range.substring(range.indexOf('!'));
+    }
+
+    // Pulls several ranges in a single values().batchGet round trip
+    public static Map<DataSheet, List<List<Object>>> batchFetch(Collection<DataSheet> sheets) throws IOException, GeneralSecurityException {
+        List<DataSheet> order = new ArrayList<>(sheets);
+        List<String> ranges = new ArrayList<>(order.size());
+        for (DataSheet sheet : order) {
+            ranges.add(rangeOf(sheet));
+        }
+
+        BatchGetValuesResponse response = SheetsFetchGate.SHARED.fetch("batchGet:" + String.join("|", ranges), () -> {
+            long start = PayrollMetrics.start();
+            BatchGetValuesResponse batch = getSheetsService().spreadsheets().values()
+                    .batchGet(SPREADSHEET_ID)
+                    .setRanges(ranges)
+                    .execute();
+            PayrollMetrics.timer("fetch.batchGet").record(start);
+            return batch;
+        });
+
+        // Value ranges come back in the same order as requested
+        List<ValueRange> valueRanges = response.getValueRanges();
+        Map<DataSheet, List<List<Object>>> result = new EnumMap<>(DataSheet.class);
+        for (int i = 0; i < order.size(); i++) {
+            List<List<Object>> values = valueRanges.get(i).getValues();
+            result.put(order.get(i), values == null ? new ArrayList<>() : values);
+        }
+        return result;
+    }
+
     
     ////////////////////////////////////////////////////////////////////////////
     // Boilerplate code that retrives and packs the dataset to be used later ///
@@ -490,113 +1162,338 @@ class GoogleSheetsHandler {
    
     // "Employee Details" sheet
     public static List<List<Object>> fetchEmployeeData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, EMPLOYEE_RANGE).execute();
-        return response.getValues();
+        return getValues(EMPLOYEE_RANGE);
     }
 
     // "Attendance Record" sheet
     public static List<List<Object>> fetchAttendanceData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, ATTENDANCE_RANGE).execute();
-        return response.getValues();
+        return getValues(ATTENDANCE_RANGE);
+    }
+    
+    // "Attendance Record" rows [firstRow, firstRow + rowCount), used for chunked streaming
+    public static List<List<Object>> fetchAttendanceRows(int firstRow, int rowCount) throws IOException, GeneralSecurityException {
+        String range = ATTENDANCE_SHEET + "!A" + firstRow + ":F" + (firstRow + rowCount - 1);
+        return SheetsFetchGate.SHARED.fetch(range, () -> {
+            long start = PayrollMetrics.start();
+            ValueRange response = getSheetsService().spreadsheets().values().get(SPREADSHEET_ID, range).execute();
+            // All chunks under one name, whatever their rows
+            PayrollMetrics.timer("fetch." + ATTENDANCE_STREAM_RANGE).record(start);
+            return response.getValues();
+        });
+    }
+
+    // One values().get round trip, timed per range and shared with concurrent callers of the same range
+    private static List<List<Object>> getValues(String range) throws IOException, GeneralSecurityException {
+        return SheetsFetchGate.SHARED.fetch(range, () -> {
+            long start = PayrollMetrics.start();
+            ValueRange response = getSheetsService().spreadsheets().values().get(SPREADSHEET_ID, range).execute();
+            PayrollMetrics.timer("fetch." + range).record(start);
+            return response.getValues();
+        });
     }
     
+    // Sheet row of every employee number in "Employee Details" (the first one if a number repeats)
+    public static Map<Integer, Integer> fetchEmployeeSheetRows() throws IOException, GeneralSecurityException {
+        List<List<Object>> column = getValues(EMPLOYEE_NUMBER_RANGE);
+        Map<Integer, Integer> sheetRows = new HashMap<>();
+        if (column != null) {
+            for (int i = 0; i < column.size(); i++) {
+                long number = RowParser.parseLong(RowParser.cell(column.get(i), 0));
+                if (number != RowParser.INVALID && number == (int) number) {
+                    sheetRows.putIfAbsent((int) number, EMPLOYEE_FIRST_ROW + i);
+                }
+            }
+        }
+        return sheetRows;
+    }
+
+    // New "Employee Details" rows, below the last one, in a single values().append call
+    public static void appendEmployeeRows(List<List<Object>> rows) throws IOException, GeneralSecurityException {
+        ValueRange body = new ValueRange().setMajorDimension("ROWS").setValues(rows);
+        SheetsFetchGate.SHARED.write(false, () -> {
+            long start = PayrollMetrics.start();
+            AppendValuesResponse response = getSheetsService().spreadsheets().values()
+                    .append(SPREADSHEET_ID, EMPLOYEE_RANGE, body)
+                    .setValueInputOption(VALUE_INPUT_OPTION)
+                    .setInsertDataOption("INSERT_ROWS")
+                    .execute();
+            PayrollMetrics.timer("write.append").record(start);
+            return response;
+        });
+    }
+
+    // Whole "Employee Details" rows by sheet row number, all in a single values().batchUpdate call
+    public static void updateEmployeeRows(Map<Integer, List<Object>> rowsBySheetRow) throws IOException, GeneralSecurityException {
+        List<ValueRange> data = new ArrayList<>(rowsBySheetRow.size());
+        for (Map.Entry<Integer, List<Object>> entry : rowsBySheetRow.entrySet()) {
+            int sheetRow = entry.getKey();
+            data.add(new ValueRange().setRange(EMPLOYEE_SHEET + "!A" + sheetRow + ":S" + sheetRow)
+                    .setMajorDimension("ROWS")
+                    .setValues(List.of(entry.getValue())));
+        }
+        BatchUpdateValuesRequest body = new BatchUpdateValuesRequest().setValueInputOption(VALUE_INPUT_OPTION).setData(data);
+        // Overwriting the same cells twice does no harm, so server errors are retried as well
+        SheetsFetchGate.SHARED.write(true, () -> {
+            long start = PayrollMetrics.start();
+            BatchUpdateValuesResponse response = getSheetsService().spreadsheets().values()
+                    .batchUpdate(SPREADSHEET_ID, body)
+                    .execute();
+            PayrollMetrics.timer("write.batchUpdate").record(start);
+            return response;
+        });
+    }
+
     // "SSS Raw Matrix" sheet
     public static List<List<Object>> fetchSssMatrixData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, SSS_RANGE).execute();
-        return response.getValues();
+        return getValues(SSS_RANGE);
     }
     // "Pag-Ibig Tax Raw Matrix" sheet
     public static List<List<Object>> fetchPagIbigMatrixData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, PAGIBIG_RANGE).execute();
-        return response.getValues();
+        return getValues(PAGIBIG_RANGE);
     }
     // "Philhealth Tax Raw Matrix" sheet
     public static List<List<Object>> fetchPhilHealthMatrixData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, PHILHEALTH_RANGE).execute();
-        return response.getValues();
+        return getValues(PHILHEALTH_RANGE);
     }
     // "Withholding Tax Raw Matrix" sheet
     public static List<List<Object>> fetchWithHoldingTaxMatrixData() throws IOException, GeneralSecurityException {
-        Sheets service = getSheetsService();
-        ValueRange response = service.spreadsheets().values().get(SPREADSHEET_ID, WITHHOLDINGTAX_RANGE).execute();
-        return response.getValues();
+        return getValues(WITHHOLDINGTAX_RANGE);
+    }
+    // One version of a matrix, e.g. "SSS Matrix 2023" with the same cells as "SSS Matrix"
+    public static List<List<Object>> fetchMatrixData(DataSheet sheet, String title) throws IOException, GeneralSecurityException {
+        return getValues(matrixRange(sheet, title));
     }
 }
 
 /*
  * AttendanceProcessor: Processes attendance records and computes hours worked.
+ * Hours are summed for the latest completed working week (Monday to Friday of the week
+ * before the latest date in the data), in a single pass over the records.
  */
 class AttendanceProcessor {
-    public static Map<Integer, Double> calculateHoursWorked() {
-        Map<Integer, Double> totalHoursMap = new HashMap<>();
-        
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("H:mm"); 
-        
-        LocalDate latestDate = null;
+    // Rows per chunk when streaming, override with -Dmotorph.attendance.chunkRows
+    static final int DEFAULT_CHUNK_ROWS = Integer.getInteger("motorph.attendance.chunkRows", 5000);
+
+    // Chunks fetched ahead of the aggregation; bounds the memory used by the pipeline
+    private static final int CHUNKS_IN_FLIGHT = 2;
+
+    // Marks the end of the stream in the chunk queue
+    private static final List<List<Object>> END_OF_STREAM = new ArrayList<>();
+
+    private final DataSource dataSource;
+
+    public AttendanceProcessor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
+    // Streams the whole attendance sheet, whatever its length
+    public Map<Integer, Double> calculateHoursWorked() {
+        return calculateHoursWorked(DEFAULT_CHUNK_ROWS);
+    }
+
+    /*
+     * Streaming mode: a background thread fetches the attendance sheet chunk by chunk while
+     * this thread parses and aggregates the previous chunk. At most CHUNKS_IN_FLIGHT chunks
+     * are waiting at any time, so memory stays bounded however long the log grows.
+     */
+    public Map<Integer, Double> calculateHoursWorked(int chunkRows) {
+        long start = PayrollMetrics.start();
+        WeeklyHours weeklyHours = new WeeklyHours();
         try {
-            List<List<Object>> data = GoogleSheetsHandler.fetchAttendanceData();
-            
-            if (data == null || data.isEmpty()) {
-                System.out.println("No attendance data found.");
-                return totalHoursMap;
-            }
-   
-            // Find the latest date in the data, to be used to find the latest week
-            for (List<Object> row : data) {
-                try {
-                    LocalDate date = LocalDate.parse(row.get(3).toString(), DateTimeFormatter.ofPattern("MM/dd/yyyy"));
-                    if (latestDate == null || date.isAfter(latestDate)) {
-                        latestDate = date;
+            streamRows(chunkRows, weeklyHours::accept);
+        } catch (IOException e) {
+            System.out.println("Error fetching attendance data: " + e.getMessage());
+            return new HashMap<>();
+        }
+        Map<Integer, Double> totals = weeklyHours.totals();
+        PayrollMetrics.timer("attendance.aggregate").record(start);
+        PayrollMetrics.add("attendance.rows", weeklyHours.rows);
+        return totals;
+    }
+
+    /*
+     * The streaming pipeline on its own: hands every attendance row, in sheet order, to the
+     * row consumer on the calling thread. Throws if the sheet could not be read to the end
+     * (a failed chunk fetch or an interrupt), so a partial read is never taken for the whole log.
+     */
+    void streamRows(int chunkRows, Consumer<List<Object>> rowConsumer) throws IOException {
+        BlockingQueue<List<List<Object>>> queue = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+        AtomicReference<Exception> fetchError = new AtomicReference<>();
+
+        Thread fetcher = Thread.ofPlatform().daemon().name("attendance-fetcher").start(() -> {
+            try {
+                dataSource.streamAttendanceData(chunkRows, chunk -> {
+                    try {
+                        queue.put(chunk);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Attendance streaming interrupted", e);
                     }
-                } catch (Exception e) {
-                    System.out.println("Error parsing date for row: " + row);
-                    e.printStackTrace();
+                });
+            } catch (Exception e) {
+                fetchError.set(e);
+            } finally {
+                try {
+                    queue.put(END_OF_STREAM);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
-            
-            // Determine the start and end of the latest completed working week
-            LocalDate latestWeekStart = latestDate.with(DayOfWeek.MONDAY).minusWeeks(1);
-            LocalDate latestWeekEnd = latestDate.with(DayOfWeek.FRIDAY).minusWeeks(1);
+        });
+
+        try {
+            while (true) {
+                List<List<Object>> chunk = queue.take();
+                if (chunk == END_OF_STREAM) {
+                    break;
+                }
+                for (List<Object> row : chunk) {
+                    rowConsumer.accept(row);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attendance processing interrupted");
+        } finally {
+            // Also when the consumer throws, so the fetcher is not left blocked on a full queue
+            fetcher.interrupt();
+        }
 
-            // Calculate hours worked within that week
+        Exception error = fetchError.get();
+        if (error instanceof IOException ioError) {
+            throw ioError;
+        }
+        if (error != null) {
+            throw new IOException(error.getMessage(), error);
+        }
+    }
+
+    /*
+     * Attendance: The latest work week's hours (as calculateHoursWorked() gives them) and the
+     * index of every record, from one pass over the sheet.
+     */
+    static final class Attendance {
+        private final Map<Integer, Double> weeklyHours;
+        private final AttendanceIndex index;
+
+        Attendance(Map<Integer, Double> weeklyHours, AttendanceIndex index) {
+            this.weeklyHours = weeklyHours;
+            this.index = index;
+        }
+
+        public Map<Integer, Double> getWeeklyHours() { return weeklyHours; }
+        public AttendanceIndex getIndex() { return index; }
+    }
+
+    // Streams the sheet once, feeding the weekly totals and the attendance index together
+    public Attendance readAttendance() throws IOException {
+        long start = PayrollMetrics.start();
+        WeeklyHours weeklyHours = new WeeklyHours();
+        AttendanceIndex.Builder index = AttendanceIndex.Builder.recent();
+        streamRows(DEFAULT_CHUNK_ROWS, row -> {
+            weeklyHours.accept(row);
+            index.accept(row);
+        });
+        Map<Integer, Double> totals = weeklyHours.totals();
+        PayrollMetrics.timer("attendance.aggregate").record(start);
+        PayrollMetrics.add("attendance.rows", weeklyHours.rows);
+        return new Attendance(totals, index.build());
+    }
+
+    // Same as above, for attendance rows that were already fetched (e.g. in a batch)
+    public Map<Integer, Double> calculateHoursWorked(List<List<Object>> data) {
+        WeeklyHours weeklyHours = new WeeklyHours();
+        if (data != null) {
             for (List<Object> row : data) {
-                try {
-                    int employeeNumber = Integer.parseInt(row.get(0).toString());
-                    LocalDate date = LocalDate.parse(row.get(3).toString(), DateTimeFormatter.ofPattern("MM/dd/yyyy"));
-                    String timeInStr = row.get(4).toString();
-                    String timeOutStr = row.get(5).toString();
+                weeklyHours.accept(row);
+            }
+        }
+        return weeklyHours.totals();
+    }
 
-                    if (!date.isBefore(latestWeekStart) && !date.isAfter(latestWeekEnd)) {
-                        LocalTime timeIn = LocalTime.parse(timeInStr, timeFormatter);
-                        LocalTime timeOut = LocalTime.parse(timeOutStr, timeFormatter);
+    /*
+     * WeeklyHours: Single-pass aggregation of the latest completed working week.
+     * The week to report is only known once the latest date is, so hours are kept per day
+     * for the 14 days up to the latest date seen so far (the target week always falls
+     * inside them). Older days are dropped as newer dates arrive.
+     */
+    private static final class WeeklyHours {
+        private static final int WINDOW_DAYS = 14;
+
+        private final long[] windowDay = new long[WINDOW_DAYS];
+        private final List<Map<Integer, Double>> windowHours = new ArrayList<>(WINDOW_DAYS);
+        private long latestDay = Long.MIN_VALUE;
+        private long rows = 0;
+
+        WeeklyHours() {
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                windowDay[i] = Long.MIN_VALUE;
+                windowHours.add(new HashMap<>());
+            }
+        }
 
-                        double hoursWorked = Duration.between(timeIn, timeOut).toMinutes() / 60.0;
-                        hoursWorked = Math.round(hoursWorked * 100.0) / 100.0;
+        void accept(List<Object> row) {
+            rows++;
+            long day = RowParser.parseEpochDay(RowParser.cell(row, RowParser.ATTENDANCE_DATE));
+            if (day == RowParser.INVALID) {
+                PayrollMetrics.increment("rows.malformed.attendance");
+                System.out.println("Error parsing date for row: " + row);
+                return;
+            }
 
-                        totalHoursMap.put(employeeNumber, totalHoursMap.getOrDefault(employeeNumber, 0.0) + hoursWorked);
-                    }
+            if (day > latestDay) {
+                latestDay = day;
+            }
+            if (day <= latestDay - WINDOW_DAYS) {
+                return; // too old to be in the reported week
+            }
 
-                } catch (Exception e) {
-                    System.out.println("Error processing employee data for row: " + row);
-                    e.printStackTrace();
-                }
+            long employeeNumber = RowParser.parseLong(RowParser.cell(row, RowParser.ATTENDANCE_EMPLOYEE_NUMBER));
+            long timeIn = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_IN));
+            long timeOut = RowParser.parseMinutes(RowParser.cell(row, RowParser.ATTENDANCE_TIME_OUT));
+            if (employeeNumber == RowParser.INVALID || employeeNumber != (int) employeeNumber
+                    || timeIn == RowParser.INVALID || timeOut == RowParser.INVALID) {
+                PayrollMetrics.increment("rows.malformed.attendance");
+                System.out.println("Error processing employee data for row: " + row);
+                return;
             }
-        } catch (Exception e) {
-            System.out.println("Error fetching attendance data: " + e.getMessage());
+
+            double hoursWorked = (timeOut - timeIn) / 60.0;
+            hoursWorked = Math.round(hoursWorked * 100.0) / 100.0;
+
+            int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+            if (windowDay[slot] != day) {
+                // The slot still holds a day that has left the window
+                windowDay[slot] = day;
+                windowHours.get(slot).clear();
+            }
+            windowHours.get(slot).merge((int) employeeNumber, hoursWorked, Double::sum);
         }
 
-    return totalHoursMap;
-}
+        Map<Integer, Double> totals() {
+            Map<Integer, Double> totalHoursMap = new HashMap<>();
+            if (rows == 0 || latestDay == Long.MIN_VALUE) {
+                System.out.println("No attendance data found.");
+                return totalHoursMap;
+            }
+
+            // Determine the start and end of the latest completed working week
+            LocalDate latestDate = LocalDate.ofEpochDay(latestDay);
+            long weekStart = latestDate.with(DayOfWeek.MONDAY).minusWeeks(1).toEpochDay();
+            long weekEnd = latestDate.with(DayOfWeek.FRIDAY).minusWeeks(1).toEpochDay();
+
+            for (long day = weekStart; day <= weekEnd; day++) {
+                int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+                if (windowDay[slot] == day) {
+                    windowHours.get(slot).forEach((employeeNumber, hours) -> totalHoursMap.merge(employeeNumber, hours, Double::sum));
+                }
+            }
+            return totalHoursMap;
+        }
+    }
 
     // For Debugging Purposes
-    public static void printAttendanceProcessor() {
+    public void printAttendanceProcessor() {
         Map<Integer, Double> totalHoursMap = calculateHoursWorked(); // Directly call the method and get the data
 
         if (totalHoursMap.isEmpty()) {
@@ -614,6 +1511,7 @@ class AttendanceProcessor {
 // ===== Model Layer =====
 /*
  * Employee: Represents an employee with personal and payroll details.
+ * Money is held in centavos and hours in centi-hours; the double getters are for display.
  */
 class Employee {
     private int employeeNumber;
@@ -634,10 +1532,14 @@ class Employee {
     private int phoneAllowance;
     private int clothingAllowance;
     private int grossSemiMonthlyRate;
-    private double hourlyRate;
-    private double hoursWorked;
-    private double weeklyGrossWage;
-    private double weeklyNetWage;
+    private long hourlyRateCentavos;
+    private long centiHoursWorked;
+    private long weeklyGrossCentavos;
+    private long weeklySssCentavos;
+    private long weeklyPhilHealthCentavos;
+    private long weeklyPagIbigCentavos;
+    private long weeklyTaxCentavos;
+    private long weeklyNetCentavos;
 
     public Employee(int employeeNumber, String lastName, String firstName, LocalDate birthday,
                     String address, String phoneNumber, String sssNumber, String philhealthNumber,
@@ -662,10 +1564,7 @@ class Employee {
         this.phoneAllowance = phoneAllowance;
         this.clothingAllowance = clothingAllowance;
         this.grossSemiMonthlyRate = grossSemiMonthlyRate;
-        this.hourlyRate = hourlyRate;
-        this.hoursWorked = 0.0;
-        this.weeklyGrossWage = 0.0;
-        this.weeklyNetWage = 0.0;
+        this.hourlyRateCentavos = Centavos.fromPesos(hourlyRate);
     }
 
     // Getters
@@ -673,24 +1572,70 @@ class Employee {
     public String getLastName() { return lastName; }
     public String getFirstName() { return firstName; }
     public LocalDate getBirthday() { return birthday; }
+    public String getAddress() { return address; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public String getSssNumber() { return sssNumber; }
+    public String getPhilhealthNumber() { return philhealthNumber; }
+    public String getTinNumber() { return tinNumber; }
+    public String getPagIbigNumber() { return pagIbigNumber; }
+    public String getStatus() { return status; }
+    public String getPosition() { return position; }
+    public String getImmediateSupervisor() { return immediateSupervisor; }
     public int getBasicSalary() { return basicSalary; }
-    public double getHourlyRate() { return hourlyRate; }
-    public double getHoursWorked() { return hoursWorked; }
-    public double getWeeklyGrossWage() { return weeklyGrossWage; }
-    public double getWeeklyNetWage() { return weeklyNetWage; }
+    public int getRiceSubsidy() { return riceSubsidy; }
+    public int getPhoneAllowance() { return phoneAllowance; }
+    public int getClothingAllowance() { return clothingAllowance; }
+    public int getGrossSemiMonthlyRate() { return grossSemiMonthlyRate; }
+    public double getHourlyRate() { return Centavos.toPesos(hourlyRateCentavos); }
+    public double getHoursWorked() { return centiHoursWorked / (double) Centavos.CENTI_HOURS_PER_HOUR; }
+    public double getWeeklyGrossWage() { return Centavos.toPesos(weeklyGrossCentavos); }
+    public double getWeeklyNetWage() { return Centavos.toPesos(weeklyNetCentavos); }
+
+    // Fixed-point getters used by the payroll pipeline
+    public long getBasicSalaryCentavos() { return Centavos.fromPesos((long) basicSalary); }
+    public long getHourlyRateCentavos() { return hourlyRateCentavos; }
+    public long getCentiHoursWorked() { return centiHoursWorked; }
+    public long getWeeklyGrossCentavos() { return weeklyGrossCentavos; }
+    public long getWeeklySssCentavos() { return weeklySssCentavos; }
+    public long getWeeklyPhilHealthCentavos() { return weeklyPhilHealthCentavos; }
+    public long getWeeklyPagIbigCentavos() { return weeklyPagIbigCentavos; }
+    public long getWeeklyTaxCentavos() { return weeklyTaxCentavos; }
+    public long getWeeklyNetCentavos() { return weeklyNetCentavos; }
 
     public void setHoursWorked(double hoursWorked) {
-        this.hoursWorked = hoursWorked;
+        setCentiHoursWorked(Centavos.centiHours(hoursWorked));
+    }
+
+    public void setCentiHoursWorked(long centiHoursWorked) {
+        this.centiHoursWorked = centiHoursWorked;
         calculateWeeklyGrossWage();
     }
 
     private void calculateWeeklyGrossWage() {
-        this.weeklyGrossWage = this.hoursWorked * this.hourlyRate;
-//        System.out.println("Weekly Gross Wage Calculated: " + this.weeklyGrossWage);
+        this.weeklyGrossCentavos = Centavos.wage(centiHoursWorked, hourlyRateCentavos);
+    }
+
+    // Sets the weekly deductions; net wage = gross - all four
+    public void setWeeklyDeductions(long sss, long philHealth, long pagIbig, long tax) {
+        this.weeklySssCentavos = sss;
+        this.weeklyPhilHealthCentavos = philHealth;
+        this.weeklyPagIbigCentavos = pagIbig;
+        this.weeklyTaxCentavos = tax;
+        this.weeklyNetCentavos = weeklyGrossCentavos - sss - philHealth - pagIbig - tax;
     }
 
     public void setWeeklyNetWage(double weeklyNetWage) {
-        this.weeklyNetWage = weeklyNetWage;
-//        System.out.println("Weekly Net Wage Set: " + this.weeklyNetWage);
+        this.weeklyNetCentavos = Centavos.fromPesos(weeklyNetWage);
     }
-}
\ No newline at end of file
+
+    // Puts back amounts computed earlier, as stored by EmployeeStore; nothing is recalculated
+    void restorePayroll(long centiHours, long gross, long sss, long philHealth, long pagIbig, long tax, long net) {
+        this.centiHoursWorked = centiHours;
+        this.weeklyGrossCentavos = gross;
+        this.weeklySssCentavos = sss;
+        this.weeklyPhilHealthCentavos = philHealth;
+        this.weeklyPagIbigCentavos = pagIbig;
+        this.weeklyTaxCentavos = tax;
+        this.weeklyNetCentavos = net;
+    }
+}
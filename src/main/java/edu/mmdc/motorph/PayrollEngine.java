@@ -0,0 +1,276 @@
+package edu.mmdc.motorph;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// ===== Service Layer =====
+/*
+ * PayrollEngine: Batch payroll run over all "Employee Details" rows.
+ * The rows are split across a fork-join pool; every row is parsed and given its hours and
+ * gross wage, then each task runs its rows through DeductionKernel as one batch (see
+ * computeDeductions). Results are written back by
+ * row position, so the output order is always the sheet order whatever the parallelism.
+ * Bad rows are collected as RowErrors instead of being printed from the worker threads.
+ */
+class PayrollEngine {
+    // Rows handled by one task before it stops splitting
+    private static final int ROWS_PER_TASK = 256;
+
+    // Worker count, override with -Dmotorph.payroll.parallelism
+    static final int DEFAULT_PARALLELISM = Integer.getInteger("motorph.payroll.parallelism",
+            Runtime.getRuntime().availableProcessors());
+
+    private final ForkJoinPool pool;
+
+    private static final PayrollMetrics.Timer RUN_TIMER = PayrollMetrics.timer("payroll.run");
+    private static final PayrollMetrics.Timer PARSE_TIMER = PayrollMetrics.timer("parse.employee");
+    private static final PayrollMetrics.Timer DEDUCTIONS_TIMER = PayrollMetrics.timer("deduction.all");
+
+    public PayrollEngine() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public PayrollEngine(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    public int getParallelism() { return pool.getParallelism(); }
+
+    public PayrollRun run(List<List<Object>> rows, Map<Integer, Double> hoursMap, DeductionTables tables) {
+        long start = PayrollMetrics.start();
+        int count = rows == null ? 0 : rows.size();
+        Employee[] employees = new Employee[count];
+        RowError[] errors = new RowError[count];
+        computeAll(rows, hoursMap, tables, employees, errors);
+        RUN_TIMER.record(start);
+
+        // Collect in row order
+        List<Employee> computed = new ArrayList<>(count);
+        List<List<Object>> computedRows = new ArrayList<>(count);
+        List<RowError> rowErrors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (employees[i] != null) {
+                computed.add(employees[i]);
+                computedRows.add(rows.get(i));
+            }
+            if (errors[i] != null) {
+                rowErrors.add(errors[i]);
+            }
+        }
+        return new PayrollRun(computed, computedRows, rowErrors);
+    }
+
+    /*
+     * Payroll of employees that are already parsed, e.g. a snapshot's with queued rows laid over
+     * them, for the hours they worked between two dates (both included). Nothing is fetched or
+     * parsed, so the run has no sheet rows. The employees are given new hours and deductions.
+     */
+    public PayrollRun run(List<Employee> employees, AttendanceIndex attendance, LocalDate from, LocalDate to,
+                          DeductionTables tables) {
+        long start = PayrollMetrics.start();
+        int count = employees.size();
+        Employee[] computed = new Employee[count];
+        RowError[] errors = new RowError[count];
+        for (int i = 0; i < count; i++) {
+            Employee employee = employees.get(i);
+            employee.setCentiHoursWorked(attendance.centiHoursBetween(employee.getEmployeeNumber(), from, to));
+            computed[i] = employee;
+        }
+        computeDeductions(null, tables, computed, errors, 0, count);
+        RUN_TIMER.record(start);
+
+        List<RowError> rowErrors = new ArrayList<>();
+        for (RowError error : errors) {
+            if (error != null) {
+                rowErrors.add(error);
+            }
+        }
+        return new PayrollRun(List.of(computed), List.of(), rowErrors);
+    }
+
+    // Computes every row into the arrays, by row position (same length as rows)
+    void computeAll(List<List<Object>> rows, Map<Integer, Double> hoursMap, DeductionTables tables,
+                    Employee[] employees, RowError[] errors) {
+        int count = rows == null ? 0 : rows.size();
+        if (count == 0) {
+            return;
+        }
+        PayrollTask task = new PayrollTask(rows, hoursMap, tables, employees, errors, 0, count);
+        if (count <= ROWS_PER_TASK) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Parses one employee with its hours and gross wage; deductions come later, per batch
+    static void parseRow(RowParser parser, List<Object> row, int rowIndex, Map<Integer, Double> hoursMap,
+                         Employee[] employees, RowError[] errors) {
+        long start = PayrollMetrics.start();
+        Employee employee = parser.parseEmployee(row, hoursMap);
+        if (employee == null) {
+            PayrollMetrics.increment("rows.malformed.employee");
+            errors[rowIndex] = new RowError(rowIndex, row, "Error processing employee data: " + parser.describeErrors(),
+                    parser.getErrors());
+            return;
+        }
+        PARSE_TIMER.record(start);
+        employees[rowIndex] = employee;
+    }
+
+    /*
+     * Deductions and net wage of the parsed employees in [from, to), gathered into primitive
+     * columns and computed by DeductionKernel in one pass. rows may be null when the employees
+     * did not come from sheet rows; errors then only carry the employee number.
+     */
+    static void computeDeductions(List<List<Object>> rows, DeductionTables tables, Employee[] employees,
+                                  RowError[] errors, int from, int to) {
+        int capacity = to - from;
+        long[] monthlySalaries = new long[capacity];
+        long[] weeklyGross = new long[capacity];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (employees[i] != null) {
+                monthlySalaries[count] = employees[i].getBasicSalaryCentavos();
+                weeklyGross[count] = employees[i].getWeeklyGrossCentavos();
+                count++;
+            }
+        }
+
+        long start = PayrollMetrics.start();
+        long[] sss = new long[capacity];
+        long[] philHealth = new long[capacity];
+        long[] pagIbig = new long[capacity];
+        long[] tax = new long[capacity];
+        try {
+            DeductionKernel.compute(tables, monthlySalaries, weeklyGross, sss, philHealth, pagIbig, tax, count);
+        } catch (Exception e) {
+            // A failed deduction still leaves the employees in the run, with no net wage
+            for (int i = from; i < to; i++) {
+                if (employees[i] != null) {
+                    PayrollMetrics.increment("deduction.errors");
+                    List<Object> row = rows == null ? List.of(employees[i].getEmployeeNumber()) : rows.get(i);
+                    errors[i] = new RowError(i, row, "Error calculating deductions: " + e);
+                }
+            }
+            return;
+        }
+        DEDUCTIONS_TIMER.record(start);
+
+        int next = 0;
+        for (int i = from; i < to; i++) {
+            if (employees[i] != null) {
+                employees[i].setWeeklyDeductions(sss[next], philHealth[next], pagIbig[next], tax[next]);
+                next++;
+            }
+        }
+    }
+
+    /*
+     * PayrollTask: Splits the row range in halves until it is small enough to compute directly.
+     * ForkJoinTask is Serializable, but these tasks only live within one run and are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class PayrollTask extends RecursiveAction {
+        private final List<List<Object>> rows;
+        private final Map<Integer, Double> hoursMap;
+        private final DeductionTables tables;
+        private final Employee[] employees;
+        private final RowError[] errors;
+        private final int from;
+        private final int to;
+
+        PayrollTask(List<List<Object>> rows, Map<Integer, Double> hoursMap, DeductionTables tables,
+                    Employee[] employees, RowError[] errors, int from, int to) {
+            this.rows = rows;
+            this.hoursMap = hoursMap;
+            this.tables = tables;
+            this.employees = employees;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                RowParser parser = new RowParser();
+                for (int i = from; i < to; i++) {
+                    parseRow(parser, rows.get(i), i, hoursMap, employees, errors);
+                }
+                computeDeductions(rows, tables, employees, errors, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                new PayrollTask(rows, hoursMap, tables, employees, errors, from, middle),
+                new PayrollTask(rows, hoursMap, tables, employees, errors, middle, to)
+            );
+        }
+    }
+}
+
+/*
+ * PayrollRun: Result of a batch payroll run, in sheet order.
+ */
+final class PayrollRun {
+    private final List<Employee> employees;
+    private final List<List<Object>> rows;
+    private final List<RowError> errors;
+
+    PayrollRun(List<Employee> employees, List<List<Object>> rows, List<RowError> errors) {
+        this.employees = Collections.unmodifiableList(employees);
+        this.rows = Collections.unmodifiableList(rows);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    // Computed employees, in sheet order
+    public List<Employee> getEmployees() { return employees; }
+
+    // The sheet row of each computed employee, same order as getEmployees(); empty for a run over parsed employees
+    public List<List<Object>> getRows() { return rows; }
+
+    public List<RowError> getErrors() { return errors; }
+}
+
+/*
+ * RowError: A row that could not be processed, with its position in the sheet data.
+ */
+final class RowError {
+    private final int rowIndex;
+    private final List<Object> row;
+    private final String message;
+    private final List<FieldError> fieldErrors;
+
+    RowError(int rowIndex, List<Object> row, String message) {
+        this(rowIndex, row, message, List.of());
+    }
+
+    RowError(int rowIndex, List<Object> row, String message, List<FieldError> fieldErrors) {
+        this.rowIndex = rowIndex;
+        this.row = row;
+        this.message = message;
+        this.fieldErrors = fieldErrors;
+    }
+
+    public int getRowIndex() { return rowIndex; }
+    public List<Object> getRow() { return row; }
+    public String getMessage() { return message; }
+
+    // The bad cells, when the row could not be parsed
+    public List<FieldError> getFieldErrors() { return fieldErrors; }
+
+    @Override
+    public String toString() {
+        return message + " (row " + (rowIndex + 1) + "): " + row;
+    }
+}
@@ -0,0 +1,323 @@
+package edu.mmdc.motorph;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// ===== Presentation Layer =====
+/*
+ * PayrollHttpServer: Read-only JSON front-end for HR staff and internal tools, on the JDK's
+ * built-in HTTP server with one virtual thread per request.
+ * Every request reads the current PayrollSnapshot, loaded before the server starts, so any
+ * number of requests can run at once without fetching from Google Sheets (a payslip for a
+ * period under other deduction rules fetches that version's matrices once, on first use).
+ *
+ *   GET /employees/{number}                       personal and employment details
+ *   GET /payroll                                  every employee's weekly payroll
+ *   GET /payslip/{number}[?from=...&to=...]       payslip for the computed week, or for the
+ *                                                 hours between two ISO dates (both included)
+ *                                                 with the DeductionRules in force on the last day
+ *   GET /ledger/{number}[?year=YYYY]              year-to-date totals and weekly history from the
+ *                                                 PayrollLedger (default: the computed week's year)
+ *   GET /health                                   snapshot size, age and staleness
+ *
+ * Start with: MotorPH --serve [port]   (or -Dmotorph.http.port=<port>; binds to localhost
+ * unless -Dmotorph.http.host says otherwise). With -Dmotorph.refresh.seconds the snapshot is
+ * rebuilt in the background (see SnapshotRefresher) and swapped in between requests.
+ */
+class PayrollHttpServer {
+    static final int DEFAULT_PORT = Integer.getInteger("motorph.http.port", 8080);
+    static final String DEFAULT_HOST = System.getProperty("motorph.http.host", "localhost");
+
+    // Enough for any single-employee document; the payroll listing is pre-rendered
+    private static final int RESPONSE_BUFFER_SIZE = 1024;
+
+    private static final PayrollMetrics.Timer EMPLOYEE_TIMER = PayrollMetrics.timer("http.employees");
+    private static final PayrollMetrics.Timer PAYROLL_TIMER = PayrollMetrics.timer("http.payroll");
+    private static final PayrollMetrics.Timer PAYSLIP_TIMER = PayrollMetrics.timer("http.payslip");
+    private static final PayrollMetrics.Timer LEDGER_TIMER = PayrollMetrics.timer("http.ledger");
+
+    private final AtomicReference<PayrollSnapshot> snapshot;
+    // Background refresh, if any; only used to report staleness
+    private volatile SnapshotRefresher refresher;
+    // Payroll history, if the ledger is turned on
+    private volatile PayrollLedger ledger;
+    // Effective-dated deduction rules for payslips of other periods (the snapshot's tables if null)
+    private volatile DeductionRules deductionRules;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PayrollHttpServer(PayrollSnapshot snapshot) {
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    // Loads the data, starts the server and returns; the server's threads keep the JVM running
+    static void serve(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        try {
+            EmployeeService service = new EmployeeService(DataSource.fromSystemProperties());
+            long start = System.nanoTime();
+            PayrollSnapshot loaded = service.getSnapshot();
+            StartupTimer.record("snapshot loaded", start);
+
+            PayrollHttpServer httpServer = new PayrollHttpServer(loaded);
+            httpServer.ledger = service.getLedger();
+            httpServer.deductionRules = service.getDeductionRules();
+            SnapshotRefresher refresher = SnapshotRefresher.startIfEnabled(service);
+            if (refresher != null) {
+                refresher.addListener(httpServer::setSnapshot);
+                httpServer.refresher = refresher;
+            }
+            httpServer.start(DEFAULT_HOST, port);
+            Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(() -> {
+                httpServer.stop();
+                service.closeLedger();
+            }));
+            System.out.println("Loaded " + loaded.getEmployees().size() + " employees (week "
+                    + loaded.getWeekStart() + " to " + loaded.getWeekEnd() + ")");
+            System.out.println("Payroll service listening on http://" + DEFAULT_HOST + ":" + httpServer.getPort() + "/");
+            StartupTimer.printReportIfEnabled();
+        } catch (IOException | GeneralSecurityException e) {
+            System.out.println("Could not start the payroll service: " + e.getMessage());
+        }
+    }
+
+    public void start(String host, int port) throws IOException {
+        // Headers and body go out as separate writes; with Nagle on, the body waits for the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/employees/", timed(EMPLOYEE_TIMER, this::handleEmployee));
+        server.createContext("/payroll", timed(PAYROLL_TIMER, this::handlePayroll));
+        server.createContext("/payslip/", timed(PAYSLIP_TIMER, this::handlePayslip));
+        server.createContext("/ledger/", timed(LEDGER_TIMER, this::handleLedger));
+        server.createContext("/health", this::handleHealth);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public PayrollSnapshot getSnapshot() { return snapshot.get(); }
+
+    // Serves the given snapshot from the next request on; requests already running keep the old one
+    public void setSnapshot(PayrollSnapshot next) {
+        snapshot.set(next);
+    }
+
+    // ===== Handlers =====
+
+    // /employees/{number}
+    private void handleEmployee(HttpExchange exchange) throws IOException {
+        Employee employee = snapshot.get().getEmployees().get(employeeNumberOf(exchange, "/employees/"));
+        if (employee == null) {
+            sendError(exchange, 404, "No employee with that number");
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(RESPONSE_BUFFER_SIZE);
+        try (PayrollReportWriter writer = new PayrollReportWriter(Channels.newChannel(out), RESPONSE_BUFFER_SIZE)) {
+            writer.writeProfileJson(employee);
+        }
+        send(exchange, 200, out.toByteArray());
+    }
+
+    // /payroll
+    private void handlePayroll(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/payroll")) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        send(exchange, 200, snapshot.get().payrollJson());
+    }
+
+    // /payslip/{number}, optionally ?from=YYYY-MM-DD&to=YYYY-MM-DD
+    private void handlePayslip(HttpExchange exchange) throws IOException {
+        PayrollSnapshot current = snapshot.get();
+        int employeeNumber = employeeNumberOf(exchange, "/payslip/");
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        String from = queryParameter(rawQuery, "from");
+        String to = queryParameter(rawQuery, "to");
+
+        LocalDate periodStart = current.getWeekStart();
+        LocalDate periodEnd = current.getWeekEnd();
+        Employee employee;
+        if (from == null && to == null) {
+            // The snapshot already holds this week's figures
+            employee = current.getEmployees().get(employeeNumber);
+        } else {
+            periodStart = from == null ? periodStart : parseDate(from);
+            periodEnd = to == null ? periodEnd : parseDate(to);
+            if (periodStart == null || periodEnd == null || periodEnd.isBefore(periodStart)) {
+                throw new IllegalArgumentException("Invalid pay period");
+            }
+            DeductionRules rules = deductionRules;
+            employee = rules == null ? current.payslip(employeeNumber, periodStart, periodEnd)
+                    : current.payslip(employeeNumber, periodStart, periodEnd, tablesFor(rules, periodEnd, current));
+        }
+        if (employee == null) {
+            sendError(exchange, 404, "No employee with that number");
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(RESPONSE_BUFFER_SIZE);
+        try (PayrollReportWriter writer = new PayrollReportWriter(Channels.newChannel(out), RESPONSE_BUFFER_SIZE)) {
+            writer.writePayslipJson(employee, periodStart, periodEnd);
+        }
+        send(exchange, 200, out.toByteArray());
+    }
+
+    // /ledger/{number}, optionally ?year=YYYY
+    private void handleLedger(HttpExchange exchange) throws IOException {
+        PayrollLedger history = ledger;
+        if (history == null) {
+            sendError(exchange, 404, "The payroll ledger is not turned on");
+            return;
+        }
+        int employeeNumber = employeeNumberOf(exchange, "/ledger/");
+        String yearText = queryParameter(exchange.getRequestURI().getRawQuery(), "year");
+        int year;
+        if (yearText != null) {
+            long parsed = RowParser.parseLong(yearText);
+            if (parsed == RowParser.INVALID || parsed < 1 || parsed > 9999) {
+                throw new IllegalArgumentException("Invalid year: " + yearText);
+            }
+            year = (int) parsed;
+        } else {
+            LocalDate weekEnd = snapshot.get().getWeekEnd();
+            year = (weekEnd == null ? LocalDate.now() : weekEnd).getYear();
+        }
+
+        List<PayrollLedger.Entry> entries = new ArrayList<>();
+        for (PayrollLedger.Entry entry : history.history(employeeNumber)) {
+            if (entry.getPeriodEnd().getYear() == year) {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty() && snapshot.get().getEmployees().get(employeeNumber) == null) {
+            sendError(exchange, 404, "No employee with that number");
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(RESPONSE_BUFFER_SIZE);
+        try (PayrollReportWriter writer = new PayrollReportWriter(Channels.newChannel(out), RESPONSE_BUFFER_SIZE)) {
+            writer.writeLedgerJson(employeeNumber, year, history.yearToDate(employeeNumber, year), entries);
+        }
+        send(exchange, 200, out.toByteArray());
+    }
+
+    // /health: "stale" once background refreshes have failed for longer than the staleness limit
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        PayrollSnapshot current = snapshot.get();
+        SnapshotRefresher background = refresher;
+        boolean stale = background != null && background.isStale();
+        long ageSeconds = Duration.between(current.getLoadedAt(), Instant.now()).toSeconds();
+        send(exchange, 200, ("{\"status\":\"" + (stale ? "stale" : "ok") + "\",\"employees\":" + current.getEmployees().size()
+                + ",\"loaded_at\":\"" + current.getLoadedAt() + "\",\"age_seconds\":" + ageSeconds + "}")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // GET only; bad input becomes a 400 and anything unexpected a 500, always as a JSON error
+    private static HttpHandler timed(PayrollMetrics.Timer timer, HttpHandler handler) {
+        return exchange -> {
+            long start = PayrollMetrics.start();
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Only GET is supported");
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                // The details stay in the server's output, not in the response
+                PayrollMetrics.increment("http.errors");
+                System.out.println("Error handling " + exchange.getRequestURI() + ": " + e);
+                sendError(exchange, 500, "Internal server error");
+            } finally {
+                timer.record(start);
+            }
+        };
+    }
+
+    // ===== Helpers =====
+
+    private static int employeeNumberOf(HttpExchange exchange, String prefix) {
+        String path = exchange.getRequestURI().getPath();
+        long number = RowParser.parseLong(path.substring(prefix.length()));
+        if (number == RowParser.INVALID || number != (int) number) {
+            throw new IllegalArgumentException("Invalid employee number");
+        }
+        return (int) number;
+    }
+
+    // Standard matrices come from the snapshot's own, so nothing is fetched again for them
+    private static DeductionTables tablesFor(DeductionRules rules, LocalDate periodEnd, PayrollSnapshot current) throws IOException {
+        try {
+            return rules.tablesFor(periodEnd, current.getMatrices());
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not fetch the deduction matrices: " + e.getMessage(), e);
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+    }
+
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(RESPONSE_BUFFER_SIZE);
+        try (PayrollReportWriter writer = new PayrollReportWriter(Channels.newChannel(out), RESPONSE_BUFFER_SIZE)) {
+            writer.writeErrorJson(status, message);
+        }
+        send(exchange, status, out.toByteArray());
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
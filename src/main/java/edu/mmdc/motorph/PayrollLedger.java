@@ -0,0 +1,522 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ===== Data Access Layer =====
+/*
+ * PayrollLedger: Append-only history of computed payslips, for year-to-date totals, 13th-month
+ * pay and annual tax reconciliation without recomputing anything from attendance.
+ *
+ * payroll.ledger holds fixed 64-byte records after a 64-byte header, one per employee and pay
+ * period; a run's records are appended as one block, sorted by employee number:
+ *   int employee number, int period start, int period end (epoch days), int centi-hours,
+ *   long gross, SSS, PhilHealth, Pag-IBIG, withholding tax, net (centavos)
+ * payroll.ledger.index is the period index: after a 16-byte header, one 32-byte entry per run:
+ *   int period start, int period end, long first record, int record count, int unused, long recordedAt
+ * Records are written and forced to disk before their index entry, so a run is only visible
+ * once complete; on open, records past the last indexed run (a crash mid-append) are cut off.
+ *
+ * Recording a period again appends a new run that supersedes the old one (corrections keep
+ * their history on disk); recording identical figures is skipped. Reads go through read-only
+ * memory mappings of the ledger, and a per-employee lookup is a binary search in each run.
+ *
+ * One process at a time: open() takes an exclusive lock on the index file, held until close(),
+ * and fails if another process (or another ledger in this one) holds it, so a CLI run and a
+ * --serve process on the same folder cannot append over each other's records.
+ *
+ * Turned on with -Dmotorph.ledgerDir=<folder>; EmployeeService then records each week it computes
+ * once the week has ended, and only the first time (EmployeeService.closePayroll() records it again).
+ */
+final class PayrollLedger implements AutoCloseable {
+    static final String LEDGER_DIR_PROPERTY = "motorph.ledgerDir";
+
+    static final String LEDGER_FILE = "payroll.ledger";
+    static final String INDEX_FILE = "payroll.ledger.index";
+
+    private static final int MAGIC = 0x4D504C47;       // "MPLG"
+    private static final int INDEX_MAGIC = 0x4D504C49; // "MPLI"
+    private static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 32;
+
+    // Record field offsets
+    private static final int EMPLOYEE_NUMBER = 0;
+    private static final int PERIOD_START = 4;
+    private static final int PERIOD_END = 8;
+    private static final int CENTI_HOURS = 12;
+    private static final int GROSS = 16;
+    private static final int SSS = 24;
+    private static final int PHILHEALTH = 32;
+    private static final int PAGIBIG = 40;
+    private static final int TAX = 48;
+    private static final int NET = 56;
+
+    // 16M records (1 GiB) per mapping, so a ledger of any size can be mapped
+    private static final int SEGMENT_SHIFT = 24;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final Path dir;
+    private final FileChannel ledger;
+    private final FileChannel index;
+
+    // Everything readers need, replaced as a whole after each append
+    private volatile View view;
+
+    private PayrollLedger(Path dir, FileChannel ledger, FileChannel index) {
+        this.dir = dir;
+        this.ledger = ledger;
+        this.index = index;
+    }
+
+    // The ledger from the system properties, or null when it is turned off
+    static PayrollLedger fromSystemProperties() {
+        String dir = System.getProperty(LEDGER_DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        try {
+            return open(Path.of(dir));
+        } catch (IOException e) {
+            System.out.println("Payroll ledger unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Opens (or creates) the ledger in the folder, dropping any run that was not completely written
+    static PayrollLedger open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel ledger = FileChannel.open(dir.resolve(LEDGER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(dir.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock(index, dir);
+            checkHeader(ledger, dir.resolve(LEDGER_FILE), MAGIC, HEADER_SIZE);
+            checkHeader(index, dir.resolve(INDEX_FILE), INDEX_MAGIC, INDEX_HEADER_SIZE);
+            PayrollLedger payrollLedger = new PayrollLedger(dir, ledger, index);
+            payrollLedger.recover();
+            return payrollLedger;
+        } catch (IOException | RuntimeException e) {
+            ledger.close();
+            index.close();
+            throw e;
+        }
+    }
+
+    // Releases the files and the lock; reads of runs already loaded keep working, record() fails
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            ledger.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    public Path getDir() { return dir; }
+
+    // Runs on disk, superseded ones included
+    public int runCount() { return view.allRuns; }
+
+    // Pay periods with a current run
+    public int periodCount() { return view.runs.length; }
+
+    public long recordCount() { return view.recordCount; }
+
+    // True if the period has a run
+    public boolean hasRun(LocalDate periodStart, LocalDate periodEnd) {
+        return view.runOf((int) periodStart.toEpochDay(), (int) periodEnd.toEpochDay()) != null;
+    }
+
+    /*
+     * Appends the computed payroll of every employee in the store for the period.
+     * Returns false, writing nothing, if the period's current run has the very same figures.
+     */
+    public synchronized boolean record(LocalDate periodStart, LocalDate periodEnd, EmployeeStore employees) throws IOException {
+        long start = PayrollMetrics.start();
+        int from = (int) periodStart.toEpochDay();
+        int to = (int) periodEnd.toEpochDay();
+
+        Integer[] order = new Integer[employees.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Stable, so duplicated employee numbers keep their sheet order
+        Arrays.sort(order, Comparator.comparingInt(employees::employeeNumber));
+
+        ByteBuffer records = ByteBuffer.allocate(order.length * RECORD_SIZE);
+        for (int row : order) {
+            records.putInt(employees.employeeNumber(row))
+                    .putInt(from)
+                    .putInt(to)
+                    .putInt((int) employees.centiHoursWorked(row))
+                    .putLong(employees.weeklyGrossCentavos(row))
+                    .putLong(employees.weeklySssCentavos(row))
+                    .putLong(employees.weeklyPhilHealthCentavos(row))
+                    .putLong(employees.weeklyPagIbigCentavos(row))
+                    .putLong(employees.weeklyTaxCentavos(row))
+                    .putLong(employees.weeklyNetCentavos(row));
+        }
+        records.flip();
+
+        View current = view;
+        Run previous = current.runOf(from, to);
+        if (previous != null && previous.count == order.length && current.sameRecords(previous.first, records)) {
+            PayrollMetrics.increment("ledger.unchanged");
+            return false;
+        }
+
+        long first = current.recordCount;
+        writeFully(ledger, records, HEADER_SIZE + first * RECORD_SIZE);
+        ledger.force(false);
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+                .putInt(from).putInt(to).putLong(first).putInt(order.length).putInt(0).putLong(System.currentTimeMillis());
+        entry.flip();
+        writeFully(index, entry, INDEX_HEADER_SIZE + (long) current.allRuns * INDEX_ENTRY_SIZE);
+        index.force(false);
+
+        loadView();
+        PayrollMetrics.timer("ledger.record").record(start);
+        PayrollMetrics.add("ledger.records", order.length);
+        return true;
+    }
+
+    // The employee's payslips, one per recorded period (latest run), oldest first
+    public List<Entry> history(int employeeNumber) {
+        View current = view;
+        List<Entry> entries = new ArrayList<>();
+        for (Run run : current.runs) {
+            long record = current.find(run, employeeNumber);
+            if (record >= 0) {
+                entries.add(current.entry(record));
+            }
+        }
+        return entries;
+    }
+
+    // The employee's totals over the periods that end in the given year
+    public Totals yearToDate(int employeeNumber, int year) {
+        View current = view;
+        int from = (int) LocalDate.of(year, 1, 1).toEpochDay();
+        int to = (int) LocalDate.of(year, 12, 31).toEpochDay();
+        Totals totals = new Totals();
+        for (Run run : current.runs) {
+            if (run.end < from || run.end > to) {
+                continue;
+            }
+            long record = current.find(run, employeeNumber);
+            if (record >= 0) {
+                current.addTo(totals, record);
+            }
+        }
+        return totals;
+    }
+
+    /*
+     * Every employee's totals over the periods ending between the two dates (both included),
+     * e.g. a whole year for 13th-month pay and the annual tax reconciliation. A sequential scan
+     * of the mapped runs.
+     */
+    public Map<Integer, Totals> totalsBetween(LocalDate from, LocalDate to) {
+        View current = view;
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        Map<Integer, Totals> totals = new HashMap<>();
+        for (Run run : current.runs) {
+            if (run.end < first || run.end > last) {
+                continue;
+            }
+            for (long record = run.first; record < run.first + run.count; record++) {
+                current.addTo(totals.computeIfAbsent(current.intAt(record, EMPLOYEE_NUMBER), ignored -> new Totals()), record);
+            }
+        }
+        return totals;
+    }
+
+    // ===== Opening =====
+
+    // Held until the index channel is closed
+    private static void lock(FileChannel index, Path dir) throws IOException {
+        FileLock lock;
+        try {
+            lock = index.tryLock();
+        } catch (OverlappingFileLockException e) {
+            throw new IOException("The payroll ledger in " + dir + " is already open");
+        }
+        if (lock == null) {
+            throw new IOException("The payroll ledger in " + dir + " is in use by another MotorPH process");
+        }
+    }
+
+    // Writes the header of a new file, or checks the one that is there
+    private static void checkHeader(FileChannel channel, Path file, int magic, int headerSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        if (channel.size() == 0) {
+            header.putInt(magic).putShort(VERSION).putShort((short) RECORD_SIZE);
+            header.clear();
+            writeFully(channel, header, 0);
+            channel.force(true);
+            return;
+        }
+        if (channel.size() < headerSize) {
+            throw new IOException(file + " is damaged");
+        }
+        channel.read(header, 0);
+        if (header.getInt(0) != magic || header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE) {
+            throw new IOException(file + " is not a version " + VERSION + " payroll ledger");
+        }
+    }
+
+    // Cuts off index entries whose records are missing and records no index entry covers
+    private void recover() throws IOException {
+        long records = (ledger.size() - HEADER_SIZE) / RECORD_SIZE;
+        int entries = (int) ((index.size() - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE);
+        ByteBuffer all = ByteBuffer.allocate(entries * INDEX_ENTRY_SIZE);
+        readFully(index, all, INDEX_HEADER_SIZE);
+
+        int valid = 0;
+        long end = 0;
+        for (int i = 0; i < entries; i++) {
+            long first = all.getLong(i * INDEX_ENTRY_SIZE + 8);
+            int count = all.getInt(i * INDEX_ENTRY_SIZE + 16);
+            if (first != end || first + count > records) {
+                break;
+            }
+            end = first + count;
+            valid++;
+        }
+        if (valid < entries || end < records || ledger.size() != HEADER_SIZE + end * RECORD_SIZE) {
+            System.out.println("Payroll ledger: dropping " + (entries - valid) + " incomplete runs and "
+                    + (records - end) + " unindexed records");
+            index.truncate(INDEX_HEADER_SIZE + (long) valid * INDEX_ENTRY_SIZE);
+            ledger.truncate(HEADER_SIZE + end * RECORD_SIZE);
+        }
+        loadView();
+    }
+
+    // Reads the index and maps the ledger for the readers
+    private void loadView() throws IOException {
+        int entries = (int) ((index.size() - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE);
+        ByteBuffer all = ByteBuffer.allocate(entries * INDEX_ENTRY_SIZE);
+        readFully(index, all, INDEX_HEADER_SIZE);
+
+        // Later runs of a period supersede earlier ones
+        Map<Long, Run> latest = new LinkedHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            int at = i * INDEX_ENTRY_SIZE;
+            Run run = new Run(all.getInt(at), all.getInt(at + 4), all.getLong(at + 8), all.getInt(at + 16));
+            latest.put(((long) run.start << 32) | (run.end & 0xFFFFFFFFL), run);
+        }
+        Run[] runs = latest.values().toArray(new Run[0]);
+        Arrays.sort(runs, Comparator.comparingInt((Run run) -> run.start).thenComparingInt(run -> run.end));
+
+        long recordCount = (ledger.size() - HEADER_SIZE) / RECORD_SIZE;
+        int segmentCount = (int) ((recordCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            long firstRecord = (long) s << SEGMENT_SHIFT;
+            long records = Math.min(recordCount - firstRecord, 1L << SEGMENT_SHIFT);
+            segments[s] = ledger.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRecord * RECORD_SIZE, records * RECORD_SIZE);
+        }
+        view = new View(runs, entries, segments, recordCount);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the payroll ledger index");
+            }
+            position += read;
+        }
+    }
+
+    /*
+     * Run: One recorded pay period, a block of records sorted by employee number.
+     */
+    private static final class Run {
+        final int start;
+        final int end;
+        final long first;
+        final int count;
+
+        Run(int start, int end, long first, int count) {
+            this.start = start;
+            this.end = end;
+            this.first = first;
+            this.count = count;
+        }
+    }
+
+    /*
+     * View: The current runs and the mapped records, immutable once built.
+     * Only absolute reads are used on the shared buffers, so any number of threads can read.
+     */
+    private static final class View {
+        final Run[] runs;
+        final int allRuns;
+        final MappedByteBuffer[] segments;
+        final long recordCount;
+
+        View(Run[] runs, int allRuns, MappedByteBuffer[] segments, long recordCount) {
+            this.runs = runs;
+            this.allRuns = allRuns;
+            this.segments = segments;
+            this.recordCount = recordCount;
+        }
+
+        Run runOf(int start, int end) {
+            for (Run run : runs) {
+                if (run.start == start && run.end == end) {
+                    return run;
+                }
+            }
+            return null;
+        }
+
+        int intAt(long record, int offset) {
+            return segments[(int) (record >>> SEGMENT_SHIFT)].getInt((int) (record & SEGMENT_MASK) * RECORD_SIZE + offset);
+        }
+
+        long longAt(long record, int offset) {
+            return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) (record & SEGMENT_MASK) * RECORD_SIZE + offset);
+        }
+
+        // First record of the employee in the run, or -1
+        long find(Run run, int employeeNumber) {
+            long low = run.first;
+            long high = run.first + run.count;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (intAt(mid, EMPLOYEE_NUMBER) < employeeNumber) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low < run.first + run.count && intAt(low, EMPLOYEE_NUMBER) == employeeNumber ? low : -1;
+        }
+
+        boolean sameRecords(long first, ByteBuffer records) {
+            for (int at = 0; at < records.limit(); at += 8) {
+                if (longAt(first + at / RECORD_SIZE, at % RECORD_SIZE) != records.getLong(at)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Entry entry(long record) {
+            return new Entry(intAt(record, EMPLOYEE_NUMBER), LocalDate.ofEpochDay(intAt(record, PERIOD_START)),
+                    LocalDate.ofEpochDay(intAt(record, PERIOD_END)), intAt(record, CENTI_HOURS),
+                    longAt(record, GROSS), longAt(record, SSS), longAt(record, PHILHEALTH),
+                    longAt(record, PAGIBIG), longAt(record, TAX), longAt(record, NET));
+        }
+
+        void addTo(Totals totals, long record) {
+            totals.periods++;
+            totals.centiHours += intAt(record, CENTI_HOURS);
+            totals.gross += longAt(record, GROSS);
+            totals.sss += longAt(record, SSS);
+            totals.philHealth += longAt(record, PHILHEALTH);
+            totals.pagIbig += longAt(record, PAGIBIG);
+            totals.tax += longAt(record, TAX);
+            totals.net += longAt(record, NET);
+        }
+    }
+
+    /*
+     * Entry: One employee's payslip for one recorded period. Amounts in centavos.
+     */
+    static final class Entry {
+        private final int employeeNumber;
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final long centiHours;
+        private final long gross;
+        private final long sss;
+        private final long philHealth;
+        private final long pagIbig;
+        private final long tax;
+        private final long net;
+
+        Entry(int employeeNumber, LocalDate periodStart, LocalDate periodEnd, long centiHours,
+              long gross, long sss, long philHealth, long pagIbig, long tax, long net) {
+            this.employeeNumber = employeeNumber;
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.centiHours = centiHours;
+            this.gross = gross;
+            this.sss = sss;
+            this.philHealth = philHealth;
+            this.pagIbig = pagIbig;
+            this.tax = tax;
+            this.net = net;
+        }
+
+        public int getEmployeeNumber() { return employeeNumber; }
+        public LocalDate getPeriodStart() { return periodStart; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public long getCentiHours() { return centiHours; }
+        public long getGrossCentavos() { return gross; }
+        public long getSssCentavos() { return sss; }
+        public long getPhilHealthCentavos() { return philHealth; }
+        public long getPagIbigCentavos() { return pagIbig; }
+        public long getTaxCentavos() { return tax; }
+        public long getNetCentavos() { return net; }
+    }
+
+    /*
+     * Totals: Sums over several periods. Amounts in centavos.
+     */
+    static final class Totals {
+        private int periods;
+        private long centiHours;
+        private long gross;
+        private long sss;
+        private long philHealth;
+        private long pagIbig;
+        private long tax;
+        private long net;
+
+        public int getPeriods() { return periods; }
+        public long getCentiHours() { return centiHours; }
+        public long getGrossCentavos() { return gross; }
+        public long getSssCentavos() { return sss; }
+        public long getPhilHealthCentavos() { return philHealth; }
+        public long getPagIbigCentavos() { return pagIbig; }
+        public long getTaxCentavos() { return tax; }
+        public long getNetCentavos() { return net; }
+
+        // One twelfth of the basic pay earned (gross is hours times the hourly rate, allowances excluded)
+        public long getThirteenthMonthCentavos() {
+            return Centavos.divide(gross, 12);
+        }
+    }
+}
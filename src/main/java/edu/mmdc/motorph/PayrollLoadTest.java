@@ -0,0 +1,201 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// ===== Development Tools =====
+/*
+ * PayrollLoadTest: Closed-loop load generator for PayrollHttpServer.
+ * Each client is a virtual thread that sends one request, waits for the answer and sends the
+ * next, for the given number of seconds. Requests are mostly employee lookups and payslips,
+ * with a few period payslips and full payroll listings, for employee numbers taken from the
+ * server's own /payroll. Prints throughput and latency percentiles per kind of request.
+ *
+ * Usage: PayrollLoadTest [base url] [clients] [seconds]
+ *        (defaults: http://localhost:8080/ 64 10)
+ */
+class PayrollLoadTest {
+    private static final Pattern EMPLOYEE_NUMBER = Pattern.compile("\"employee_number\":(\\d+)");
+    private static final Pattern PERIOD = Pattern.compile("\"period_start\":\"([0-9-]+)\",\"period_end\":\"([0-9-]+)\"");
+
+    // Kinds of request, in the order of REQUEST_MIX
+    private static final String[] KINDS = { "employee", "payslip", "payslip period", "payroll" };
+    // Cumulative share of each kind, in per mille
+    private static final int[] REQUEST_MIX = { 600, 940, 990, 1000 };
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:" + PayrollHttpServer.DEFAULT_PORT + "/";
+        if (!baseUrl.endsWith("/")) {
+            baseUrl += "/";
+        }
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        int[] employeeNumbers = employeeNumbers(http, baseUrl);
+        if (employeeNumbers.length == 0) {
+            System.out.println("The server returned no employees.");
+            return;
+        }
+        // Period payslips cover the server's week and the week before it
+        String period = periodQuery(http, baseUrl, employeeNumbers[0]);
+        System.out.println("Running " + clients + " clients for " + seconds + " s against " + baseUrl
+                + " (" + employeeNumbers.length + " employees)");
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<Latencies[]>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                final String base = baseUrl;
+                results.add(executor.submit(() -> runClient(http, base, employeeNumbers, period, deadline)));
+            }
+        }
+
+        Latencies[] totals = new Latencies[KINDS.length];
+        for (int k = 0; k < KINDS.length; k++) {
+            totals[k] = new Latencies();
+        }
+        for (Future<Latencies[]> result : results) {
+            Latencies[] client = result.get();
+            for (int k = 0; k < KINDS.length; k++) {
+                totals[k].addAll(client[k]);
+            }
+        }
+        printReport(totals, seconds);
+    }
+
+    private static Latencies[] runClient(HttpClient http, String baseUrl, int[] employeeNumbers, String period, long deadline) {
+        Latencies[] latencies = new Latencies[KINDS.length];
+        for (int k = 0; k < KINDS.length; k++) {
+            latencies[k] = new Latencies();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int roll = random.nextInt(1000);
+            int kind = 0;
+            while (roll >= REQUEST_MIX[kind]) {
+                kind++;
+            }
+            int employeeNumber = employeeNumbers[random.nextInt(employeeNumbers.length)];
+            String path = switch (kind) {
+                case 0 -> "employees/" + employeeNumber;
+                case 1 -> "payslip/" + employeeNumber;
+                case 2 -> "payslip/" + employeeNumber + period;
+                default -> "payroll";
+            };
+
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200) {
+                    latencies[kind].add(System.nanoTime() - start);
+                } else {
+                    latencies[kind].errors++;
+                }
+            } catch (IOException e) {
+                latencies[kind].errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return latencies;
+    }
+
+    private static int[] employeeNumbers(HttpClient http, String baseUrl) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "payroll")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET /payroll returned " + response.statusCode());
+        }
+        Matcher matcher = EMPLOYEE_NUMBER.matcher(response.body());
+        int[] numbers = new int[16];
+        int count = 0;
+        while (matcher.find()) {
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+            }
+            numbers[count++] = Integer.parseInt(matcher.group(1));
+        }
+        return Arrays.copyOf(numbers, count);
+    }
+
+    private static String periodQuery(HttpClient http, String baseUrl, int employeeNumber) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "payslip/" + employeeNumber)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = PERIOD.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IOException("GET /payslip/" + employeeNumber + " returned " + response.statusCode());
+        }
+        return "?from=" + LocalDate.parse(matcher.group(1)).minusWeeks(1) + "&to=" + matcher.group(2);
+    }
+
+    private static void printReport(Latencies[] totals, int seconds) {
+        long requests = 0;
+        long errors = 0;
+        System.out.printf("%-16s %10s %8s %10s %10s %10s %10s%n", "request", "ok", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (int k = 0; k < KINDS.length; k++) {
+            Latencies latencies = totals[k];
+            latencies.sort();
+            requests += latencies.size;
+            errors += latencies.errors;
+            System.out.printf("%-16s %10d %8d %10.2f %10.2f %10.2f %10.2f%n", KINDS[k], latencies.size, latencies.errors,
+                    latencies.percentile(50) / 1e6, latencies.percentile(90) / 1e6,
+                    latencies.percentile(99) / 1e6, latencies.percentile(100) / 1e6);
+        }
+        System.out.printf("Total: %d ok, %d errors, %.0f requests/s%n", requests, errors, requests / (double) seconds);
+    }
+
+    /*
+     * Latencies: Growable array of request durations in nanoseconds, plus a failure count.
+     */
+    private static final class Latencies {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long duration) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = duration;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+
+        void sort() {
+            Arrays.sort(nanos, 0, size);
+        }
+
+        // Exact percentile (0-100) of the sorted durations
+        long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(size * percentile / 100.0);
+            return nanos[Math.max(0, Math.min(size, rank) - 1)];
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package edu.mmdc.motorph;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+// ===== Diagnostics =====
+/*
+ * PayrollMetrics: Process-wide counters and timers for the payroll hot paths.
+ * Counters are LongAdders and timers add into log2 buckets of nanoseconds, so recording from
+ * the fork-join workers costs a few nanoseconds and never blocks. Hot paths keep their
+ * Timer/counter in a static field instead of looking it up by name on every call.
+ *
+ * Names are dotted: fetch.<range>, parse.*, attendance.*, deduction.*, rows.malformed.*,
+ * snapshot.*, incremental.*.
+ *
+ * Everything is exposed as the MXBean edu.mmdc.motorph:type=PayrollMetrics (jconsole, jcmd),
+ * and can be printed periodically:
+ *   -Dmotorph.metrics=false              turns recording off
+ *   -Dmotorph.metrics.dumpSeconds=<n>    prints dump() every n seconds
+ *   -Dmotorph.metrics.dumpFile=<file>    appends the dumps to a file instead of stderr
+ */
+final class PayrollMetrics implements PayrollMetricsMXBean {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("motorph.metrics", "true"));
+
+    static final String OBJECT_NAME = "edu.mmdc.motorph:type=PayrollMetrics";
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    private static final PayrollMetrics INSTANCE = new PayrollMetrics();
+
+    static {
+        if (ENABLED) {
+            register();
+            startDumps();
+        }
+    }
+
+    private PayrollMetrics() {
+    }
+
+    // ===== Recording =====
+
+    static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, ignored -> new LongAdder());
+    }
+
+    static void increment(String name) {
+        if (ENABLED) {
+            counter(name).increment();
+        }
+    }
+
+    static void add(String name, long amount) {
+        if (ENABLED) {
+            counter(name).add(amount);
+        }
+    }
+
+    // Start time for Timer.record(); 0 when recording is off
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /*
+     * Timer: Count, total, maximum and a log2 histogram of durations in nanoseconds.
+     * Bucket i holds durations in [2^(i-1), 2^i), so percentiles are reported as the
+     * bucket's upper bound (within a factor of 2).
+     */
+    static final class Timer {
+        private static final int BUCKETS = 64;
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer(String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        // Records the time since startNanos (from PayrollMetrics.start())
+        void record(long startNanos) {
+            if (ENABLED) {
+                recordNanos(System.nanoTime() - startNanos);
+            }
+        }
+
+        void recordNanos(long nanos) {
+            long duration = Math.max(nanos, 0);
+            count.increment();
+            totalNanos.add(duration);
+            maxNanos.accumulate(duration);
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(duration))].increment();
+        }
+
+        String getName() { return name; }
+        long getCount() { return count.sum(); }
+        long getTotalNanos() { return totalNanos.sum(); }
+        long getMaxNanos() { return maxNanos.get(); }
+
+        long getMeanNanos() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalNanos() / n;
+        }
+
+        // Upper bound of the bucket holding the given percentile (0-100), capped at the maximum
+        long percentileNanos(double percentile) {
+            long n = getCount();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(1L << Math.min(i, 62), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    // ===== Reporting =====
+
+    static PayrollMetrics getInstance() { return INSTANCE; }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.sum()));
+        return counters;
+    }
+
+    @Override
+    public Map<String, Long> getTimerCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> counts.put(name, timer.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getTimerTotalMillis() {
+        Map<String, Long> totals = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> totals.put(name, timer.getTotalNanos() / 1_000_000));
+        return totals;
+    }
+
+    @Override
+    public Map<String, Long> getTimerMeanMicros() {
+        Map<String, Long> means = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> means.put(name, timer.getMeanNanos() / 1_000));
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getTimerP99Micros() {
+        Map<String, Long> p99 = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> p99.put(name, timer.percentileNanos(99) / 1_000));
+        return p99;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder("PayrollMetrics ").append(Instant.now()).append('\n');
+        text.append(String.format("  %-44s %10s %12s %12s %12s %12s%n", "timer", "count", "total ms", "mean us", "p99 us", "max us"));
+        for (Timer timer : new TreeMap<>(TIMERS).values()) {
+            text.append(String.format("  %-44s %10d %12.1f %12.2f %12.2f %12.2f%n", timer.getName(), timer.getCount(),
+                timer.getTotalNanos() / 1e6, timer.getMeanNanos() / 1e3, timer.percentileNanos(99) / 1e3, timer.getMaxNanos() / 1e3));
+        }
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            text.append(String.format("  %-44s %10d%n", counter.getKey(), counter.getValue()));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        TIMERS.values().forEach(Timer::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            System.out.println("Could not register payroll metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    private static void startDumps() {
+        long seconds = Long.getLong("motorph.metrics.dumpSeconds", 0);
+        if (seconds <= 0) {
+            return;
+        }
+        String dumpFile = System.getProperty("motorph.metrics.dumpFile");
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable ->
+                Thread.ofPlatform().daemon().name("metrics-dump").unstarted(runnable));
+        dumper.scheduleAtFixedRate(() -> writeDump(dumpFile), seconds, seconds, TimeUnit.SECONDS);
+        // One last dump on the way out, so short runs are covered too
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(() -> writeDump(dumpFile)));
+    }
+
+    private static void writeDump(String dumpFile) {
+        if (dumpFile == null) {
+            System.err.print(INSTANCE.dump());
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(dumpFile, true))) {
+            out.print(INSTANCE.dump());
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + dumpFile + ": " + e.getMessage());
+        }
+    }
+}
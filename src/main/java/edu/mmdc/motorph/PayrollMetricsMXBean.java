@@ -0,0 +1,18 @@
+package edu.mmdc.motorph;
+
+import java.util.Map;
+
+// ===== Diagnostics =====
+/*
+ * PayrollMetricsMXBean: JMX view of PayrollMetrics.
+ * Public only because JMX requires management interfaces to be.
+ */
+public interface PayrollMetricsMXBean {
+    Map<String, Long> getCounters();
+    Map<String, Long> getTimerCounts();
+    Map<String, Long> getTimerTotalMillis();
+    Map<String, Long> getTimerMeanMicros();
+    Map<String, Long> getTimerP99Micros();
+    String dump();
+    void reset();
+}
@@ -0,0 +1,355 @@
+package edu.mmdc.motorph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+// ===== Presentation Layer =====
+/*
+ * PayrollReportWriter: Streams computed payroll results to a CSV or JSON file.
+ * Rows are encoded straight into one reusable direct buffer that is drained to a FileChannel
+ * whenever it fills up. Numbers are written digit by digit (amounts as pesos with two
+ * decimals), so the export never goes through String.format.
+ */
+class PayrollReportWriter implements AutoCloseable {
+    enum Format { CSV, JSON }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    static final String[] COLUMNS = {
+        "employee_number", "last_name", "first_name", "hours_worked", "hourly_rate", "weekly_gross",
+        "sss", "philhealth", "pagibig", "withholding_tax", "weekly_net"
+    };
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+
+    public PayrollReportWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // Small heap buffer, for short in-memory documents such as one HTTP response
+    PayrollReportWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    // Picks the format from the file extension (.json, anything else is CSV)
+    static Format formatOf(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".json") ? Format.JSON : Format.CSV;
+    }
+
+    public static void export(Path file, List<Employee> employees) throws IOException {
+        export(file, employees, formatOf(file));
+    }
+
+    public static void export(Path file, List<Employee> employees, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             PayrollReportWriter writer = new PayrollReportWriter(channel)) {
+            if (format == Format.JSON) {
+                writer.writeJson(employees);
+            } else {
+                writer.writeCsv(employees);
+            }
+        }
+    }
+
+    public void writeCsv(List<Employee> employees) throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            putAscii(COLUMNS[i]);
+        }
+        put((byte) '\n');
+
+        for (Employee employee : employees) {
+            putLong(employee.getEmployeeNumber());
+            put((byte) ',');
+            putCsvText(employee.getLastName());
+            put((byte) ',');
+            putCsvText(employee.getFirstName());
+            put((byte) ',');
+            putCentavos(employee.getCentiHoursWorked());
+            put((byte) ',');
+            putCentavos(employee.getHourlyRateCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklyGrossCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklySssCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklyPhilHealthCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklyPagIbigCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklyTaxCentavos());
+            put((byte) ',');
+            putCentavos(employee.getWeeklyNetCentavos());
+            put((byte) '\n');
+        }
+    }
+
+    public void writeJson(List<Employee> employees) throws IOException {
+        put((byte) '[');
+        for (int i = 0; i < employees.size(); i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            put((byte) '\n');
+            writeJson(employees.get(i));
+        }
+        putAscii("\n]\n");
+    }
+
+    // One employee as a JSON object; also used by the HTTP front-end
+    public void writeJson(Employee employee) throws IOException {
+        putAscii("{\"employee_number\":");
+        putLong(employee.getEmployeeNumber());
+        putAscii(",\"last_name\":");
+        putJsonText(employee.getLastName());
+        putAscii(",\"first_name\":");
+        putJsonText(employee.getFirstName());
+        putAscii(",\"hours_worked\":");
+        putCentavos(employee.getCentiHoursWorked());
+        putAscii(",\"hourly_rate\":");
+        putCentavos(employee.getHourlyRateCentavos());
+        putAscii(",\"weekly_gross\":");
+        putCentavos(employee.getWeeklyGrossCentavos());
+        putAscii(",\"sss\":");
+        putCentavos(employee.getWeeklySssCentavos());
+        putAscii(",\"philhealth\":");
+        putCentavos(employee.getWeeklyPhilHealthCentavos());
+        putAscii(",\"pagibig\":");
+        putCentavos(employee.getWeeklyPagIbigCentavos());
+        putAscii(",\"withholding_tax\":");
+        putCentavos(employee.getWeeklyTaxCentavos());
+        putAscii(",\"weekly_net\":");
+        putCentavos(employee.getWeeklyNetCentavos());
+        put((byte) '}');
+    }
+
+    // Personal and employment details of one employee, without the payroll figures
+    public void writeProfileJson(Employee employee) throws IOException {
+        putAscii("{\"employee_number\":");
+        putLong(employee.getEmployeeNumber());
+        putAscii(",\"last_name\":");
+        putJsonText(employee.getLastName());
+        putAscii(",\"first_name\":");
+        putJsonText(employee.getFirstName());
+        putAscii(",\"birthday\":");
+        putJsonText(employee.getBirthday().toString());
+        putAscii(",\"address\":");
+        putJsonText(employee.getAddress());
+        putAscii(",\"phone_number\":");
+        putJsonText(employee.getPhoneNumber());
+        putAscii(",\"status\":");
+        putJsonText(employee.getStatus());
+        putAscii(",\"position\":");
+        putJsonText(employee.getPosition());
+        putAscii(",\"immediate_supervisor\":");
+        putJsonText(employee.getImmediateSupervisor());
+        putAscii(",\"basic_salary\":");
+        putLong(employee.getBasicSalary());
+        putAscii(",\"hourly_rate\":");
+        putCentavos(employee.getHourlyRateCentavos());
+        put((byte) '}');
+    }
+
+    // A payslip: the pay period (ISO dates) around the employee's payroll object
+    public void writePayslipJson(Employee employee, LocalDate periodStart, LocalDate periodEnd) throws IOException {
+        putAscii("{\"period_start\":");
+        putJsonText(periodStart.toString());
+        putAscii(",\"period_end\":");
+        putJsonText(periodEnd.toString());
+        putAscii(",\"payroll\":");
+        writeJson(employee);
+        put((byte) '}');
+    }
+
+    // An HTTP error body, {"error":{"code":404,"message":"..."}}
+    public void writeErrorJson(int status, String message) throws IOException {
+        putAscii("{\"error\":{\"code\":");
+        putLong(status);
+        putAscii(",\"message\":");
+        putJsonText(message == null ? "" : message);
+        putAscii("}}");
+    }
+
+    // Year-to-date totals and the weekly history of one employee, from the PayrollLedger
+    public void writeLedgerJson(int employeeNumber, int year, PayrollLedger.Totals totals, List<PayrollLedger.Entry> history) throws IOException {
+        putAscii("{\"employee_number\":");
+        putLong(employeeNumber);
+        putAscii(",\"year\":");
+        putLong(year);
+        putAscii(",\"year_to_date\":{\"periods\":");
+        putLong(totals.getPeriods());
+        putAscii(",\"hours_worked\":");
+        putCentavos(totals.getCentiHours());
+        putAscii(",\"gross\":");
+        putCentavos(totals.getGrossCentavos());
+        putAscii(",\"sss\":");
+        putCentavos(totals.getSssCentavos());
+        putAscii(",\"philhealth\":");
+        putCentavos(totals.getPhilHealthCentavos());
+        putAscii(",\"pagibig\":");
+        putCentavos(totals.getPagIbigCentavos());
+        putAscii(",\"withholding_tax\":");
+        putCentavos(totals.getTaxCentavos());
+        putAscii(",\"net\":");
+        putCentavos(totals.getNetCentavos());
+        putAscii(",\"thirteenth_month\":");
+        putCentavos(totals.getThirteenthMonthCentavos());
+        putAscii("},\"history\":[");
+        for (int i = 0; i < history.size(); i++) {
+            PayrollLedger.Entry entry = history.get(i);
+            if (i > 0) {
+                put((byte) ',');
+            }
+            putAscii("{\"period_start\":");
+            putJsonText(entry.getPeriodStart().toString());
+            putAscii(",\"period_end\":");
+            putJsonText(entry.getPeriodEnd().toString());
+            putAscii(",\"hours_worked\":");
+            putCentavos(entry.getCentiHours());
+            putAscii(",\"weekly_gross\":");
+            putCentavos(entry.getGrossCentavos());
+            putAscii(",\"sss\":");
+            putCentavos(entry.getSssCentavos());
+            putAscii(",\"philhealth\":");
+            putCentavos(entry.getPhilHealthCentavos());
+            putAscii(",\"pagibig\":");
+            putCentavos(entry.getPagIbigCentavos());
+            putAscii(",\"withholding_tax\":");
+            putCentavos(entry.getTaxCentavos());
+            putAscii(",\"weekly_net\":");
+            putCentavos(entry.getNetCentavos());
+            put((byte) '}');
+        }
+        putAscii("]}");
+    }
+
+    // ===== Low-level encoding =====
+
+    void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    void putAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put((byte) text.charAt(i));
+        }
+    }
+
+    // UTF-8 text; ASCII goes byte by byte, anything else is encoded per string
+    void putText(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                putBytes(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            put((byte) c);
+        }
+    }
+
+    void putLong(long value) throws IOException {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (length > 0) {
+            put(digits[--length]);
+        }
+    }
+
+    // Fixed-point hundredths as "1234.56"
+    void putCentavos(long hundredths) throws IOException {
+        long value = hundredths;
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        putLong(value / 100);
+        put((byte) '.');
+        long cents = value % 100;
+        put((byte) ('0' + cents / 10));
+        put((byte) ('0' + cents % 10));
+    }
+
+    void putCsvText(String text) throws IOException {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            putText(text);
+            return;
+        }
+        put((byte) '"');
+        putText(text.replace("\"", "\"\""));
+        put((byte) '"');
+    }
+
+    void putJsonText(String text) throws IOException {
+        put((byte) '"');
+        int plainFrom = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                putText(text.substring(plainFrom, i));
+                put((byte) '\\');
+                switch (c) {
+                    case '"' -> put((byte) '"');
+                    case '\\' -> put((byte) '\\');
+                    case '\n' -> put((byte) 'n');
+                    case '\r' -> put((byte) 'r');
+                    case '\t' -> put((byte) 't');
+                    default -> {
+                        putAscii("u00");
+                        put((byte) Character.forDigit(c >> 4, 16));
+                        put((byte) Character.forDigit(c & 0xF, 16));
+                    }
+                }
+                plainFrom = i + 1;
+            }
+        }
+        putText(plainFrom == 0 ? text : text.substring(plainFrom));
+        put((byte) '"');
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            put(b);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,105 @@
+package edu.mmdc.motorph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// ===== Service Layer =====
+/*
+ * PayrollSnapshot: One loaded data set, frozen for concurrent readers.
+ * Holds the computed employees (EmployeeIndex over its EmployeeStore), the compiled deduction
+ * tables, the warm-up of the standard matrices they came from (other periods' rule sets reuse
+ * them, see DeductionRules) and the attendance index, so answering a request never touches Google Sheets. Nothing
+ * in it changes once built (see EmployeeService.refresh()); a newer snapshot replaces it as a whole.
+ *
+ * The full payroll listing is the same for every request, so its JSON is rendered once, on
+ * first use, and served from that byte array afterwards.
+ */
+final class PayrollSnapshot {
+    private final EmployeeIndex employees;
+    private final DeductionTables tables;
+    private final DeductionTablesWarmup matrices;
+    private final AttendanceIndex attendance;
+    private final Instant loadedAt;
+
+    private volatile byte[] payrollJson;
+
+    PayrollSnapshot(EmployeeIndex employees, DeductionTables tables, DeductionTablesWarmup matrices, AttendanceIndex attendance,
+            Instant loadedAt) {
+        this.employees = employees;
+        this.tables = tables;
+        this.matrices = matrices;
+        this.attendance = attendance;
+        this.loadedAt = loadedAt;
+    }
+
+    public EmployeeIndex getEmployees() { return employees; }
+    public DeductionTables getTables() { return tables; }
+    public DeductionTablesWarmup getMatrices() { return matrices; }
+    public AttendanceIndex getAttendance() { return attendance; }
+    public Instant getLoadedAt() { return loadedAt; }
+
+    // First and last day of the week the computed payroll covers
+    public LocalDate getWeekStart() { return attendance.latestWeekStart(); }
+    public LocalDate getWeekEnd() { return attendance.latestWeekEnd(); }
+
+    /*
+     * The employee's payslip for the hours worked between two dates (both included), with the
+     * weekly deductions recomputed for those hours. Returns null if there is no such employee.
+     * The employee is a fresh copy, so the snapshot itself is never modified. Throws
+     * IllegalArgumentException for a period older than the attendance the snapshot keeps.
+     */
+    public Employee payslip(int employeeNumber, LocalDate from, LocalDate to) {
+        return payslip(employeeNumber, from, to, tables);
+    }
+
+    // The same, with the deductions from other tables, e.g. those in force during a back-dated period
+    public Employee payslip(int employeeNumber, LocalDate from, LocalDate to, DeductionTables periodTables) {
+        Employee employee = employees.get(employeeNumber);
+        if (employee == null) {
+            return null;
+        }
+        if (!attendance.covers(from, to)) {
+            throw new IllegalArgumentException("Attendance is only kept for the last " + AttendanceIndex.HISTORY_DAYS + " days");
+        }
+        employee.setCentiHoursWorked(attendance.centiHoursBetween(employeeNumber, from, to));
+        DeductionService.calculateAllDeductions(employee, periodTables);
+        return employee;
+    }
+
+    /*
+     * A new or changed "Employee Details" row as this snapshot would compute it: hours of the
+     * snapshot's week and weekly deductions from its tables. Throws IllegalArgumentException for a bad row.
+     */
+    public Employee employeeOf(List<Object> row) {
+        Employee employee = EmployeeService.createEmployee(row, Map.of());
+        LocalDate weekStart = getWeekStart();
+        if (weekStart != null) {
+            employee.setCentiHoursWorked(attendance.centiHoursBetween(employee.getEmployeeNumber(), weekStart, getWeekEnd()));
+        }
+        DeductionService.calculateAllDeductions(employee, tables);
+        return employee;
+    }
+
+    // JSON array of every employee's payroll, as exported by PayrollReportWriter
+    public byte[] payrollJson() {
+        byte[] json = payrollJson;
+        if (json == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256 * Math.max(1, employees.size()));
+            try (PayrollReportWriter writer = new PayrollReportWriter(Channels.newChannel(out))) {
+                writer.writeJson(employees.getEmployees());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            json = out.toByteArray();
+            // Rendering twice under a race gives the same bytes, so no lock is needed
+            payrollJson = json;
+        }
+        return json;
+    }
+}
@@ -0,0 +1,362 @@
+package edu.mmdc.motorph;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// ===== Service Layer =====
+/*
+ * RowParser: Parses sheet cells straight from their characters.
+ * Numbers with thousands separators ("90,000"), MM/dd/yyyy dates and H:mm times are read
+ * digit by digit from the cell's CharSequence, without replace()/substring() copies or
+ * java.time parsers, and a bad value is reported by a sentinel instead of an exception.
+ *
+ * An instance parses "Employee Details" rows and collects the FieldErrors of the last row;
+ * it is reused row after row, so a clean row allocates only the Employee (and its birthday).
+ * Instances are not thread-safe; use one per thread.
+ */
+final class RowParser {
+    // Returned by the static parsers for a missing or invalid value
+    static final long INVALID = Long.MIN_VALUE;
+
+    // "Employee Details" columns
+    static final int EMPLOYEE_NUMBER = 0;
+    static final int LAST_NAME = 1;
+    static final int FIRST_NAME = 2;
+    static final int BIRTHDAY = 3;
+    static final int ADDRESS = 4;
+    static final int PHONE_NUMBER = 5;
+    static final int SSS_NUMBER = 6;
+    static final int PHILHEALTH_NUMBER = 7;
+    static final int TIN_NUMBER = 8;
+    static final int PAGIBIG_NUMBER = 9;
+    static final int STATUS = 10;
+    static final int POSITION = 11;
+    static final int IMMEDIATE_SUPERVISOR = 12;
+    static final int BASIC_SALARY = 13;
+    static final int RICE_SUBSIDY = 14;
+    static final int PHONE_ALLOWANCE = 15;
+    static final int CLOTHING_ALLOWANCE = 16;
+    static final int GROSS_SEMI_MONTHLY_RATE = 17;
+    static final int HOURLY_RATE = 18;
+
+    static final String[] EMPLOYEE_COLUMNS = {
+        "Employee #", "Last Name", "First Name", "Birthday", "Address", "Phone Number", "SSS #",
+        "Philhealth #", "TIN #", "Pag-ibig #", "Status", "Position", "Immediate Supervisor",
+        "Basic Salary", "Rice Subsidy", "Phone Allowance", "Clothing Allowance",
+        "Gross Semi-monthly Rate", "Hourly Rate"
+    };
+
+    // "Attendance Record" columns
+    static final int ATTENDANCE_EMPLOYEE_NUMBER = 0;
+    static final int ATTENDANCE_DATE = 3;
+    static final int ATTENDANCE_TIME_IN = 4;
+    static final int ATTENDANCE_TIME_OUT = 5;
+
+    private static final int[] DAYS_IN_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private final List<FieldError> errors = new ArrayList<>();
+
+    /*
+     * Parses an "Employee Details" row, with its hours from the hours map (deductions not applied).
+     * Returns null if any field is missing or invalid; getErrors() then lists every bad field.
+     */
+    public Employee parseEmployee(List<Object> row, Map<Integer, Double> hoursMap) {
+        errors.clear();
+        int employeeNumber = intField(row, EMPLOYEE_NUMBER);
+        String lastName = textField(row, LAST_NAME);
+        String firstName = textField(row, FIRST_NAME);
+        long birthday = dateField(row, BIRTHDAY);
+        String address = textField(row, ADDRESS);
+        String phoneNumber = textField(row, PHONE_NUMBER);
+        String sssNumber = textField(row, SSS_NUMBER);
+        String philhealthNumber = textField(row, PHILHEALTH_NUMBER);
+        String tinNumber = textField(row, TIN_NUMBER);
+        String pagIbigNumber = textField(row, PAGIBIG_NUMBER);
+        String status = textField(row, STATUS);
+        String position = textField(row, POSITION);
+        String immediateSupervisor = textField(row, IMMEDIATE_SUPERVISOR);
+        int basicSalary = intField(row, BASIC_SALARY);
+        int riceSubsidy = intField(row, RICE_SUBSIDY);
+        int phoneAllowance = intField(row, PHONE_ALLOWANCE);
+        int clothingAllowance = intField(row, CLOTHING_ALLOWANCE);
+        int grossSemiMonthlyRate = intField(row, GROSS_SEMI_MONTHLY_RATE);
+        long hourlyRateCentavos = centavosField(row, HOURLY_RATE);
+        if (!errors.isEmpty()) {
+            return null;
+        }
+
+        Employee employee = new Employee(employeeNumber, lastName, firstName, LocalDate.ofEpochDay(birthday),
+            address, phoneNumber, sssNumber, philhealthNumber, tinNumber, pagIbigNumber, status, position,
+            immediateSupervisor, basicSalary, riceSubsidy, phoneAllowance, clothingAllowance, grossSemiMonthlyRate,
+            Centavos.toPesos(hourlyRateCentavos));
+        employee.setHoursWorked(hoursMap.getOrDefault(employeeNumber, 0.0));
+        return employee;
+    }
+
+    // The bad fields of the last parsed row (empty if it was valid)
+    public List<FieldError> getErrors() {
+        return errors.isEmpty() ? List.of() : Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    // e.g. "Basic Salary: 'abc' is not a whole number; Birthday: missing"
+    public String describeErrors() {
+        StringBuilder text = new StringBuilder();
+        for (FieldError error : errors) {
+            if (text.length() > 0) {
+                text.append("; ");
+            }
+            text.append(error);
+        }
+        return text.toString();
+    }
+
+    private String textField(List<Object> row, int column) {
+        Object cell = column < row.size() ? row.get(column) : null;
+        if (cell == null) {
+            errors.add(new FieldError(column, null, "missing"));
+            return null;
+        }
+        return cell.toString();
+    }
+
+    private int intField(List<Object> row, int column) {
+        CharSequence text = cell(row, column);
+        long value = parseLong(text);
+        if (value == INVALID || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            errors.add(new FieldError(column, text, text == null ? "missing" : "is not a whole number"));
+            return 0;
+        }
+        return (int) value;
+    }
+
+    private long centavosField(List<Object> row, int column) {
+        CharSequence text = cell(row, column);
+        long value = parseCentavos(text);
+        if (value == INVALID) {
+            errors.add(new FieldError(column, text, text == null ? "missing" : "is not an amount"));
+            return 0;
+        }
+        return value;
+    }
+
+    private long dateField(List<Object> row, int column) {
+        CharSequence text = cell(row, column);
+        long value = parseEpochDay(text);
+        if (value == INVALID) {
+            errors.add(new FieldError(column, text, text == null ? "missing" : "is not a MM/dd/yyyy date"));
+            return 0;
+        }
+        return value;
+    }
+
+    // ===== Cell parsers =====
+
+    // The cell's characters, or null if the row has no such cell
+    static CharSequence cell(List<Object> row, int column) {
+        if (column >= row.size()) {
+            return null;
+        }
+        Object cell = row.get(column);
+        if (cell == null) {
+            return null;
+        }
+        return cell instanceof CharSequence text ? text : cell.toString();
+    }
+
+    /*
+     * Whole number with optional sign and thousands separators ("90,000", "-1,500").
+     * Commas are accepted between digits only; surrounding spaces are ignored.
+     */
+    static long parseLong(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int end = trimEnd(text);
+        int start = trimStart(text, end);
+        int digitsFrom = skipSign(text, start, end);
+        long value = parseDigits(text, digitsFrom, end);
+        if (value == INVALID) {
+            return INVALID;
+        }
+        return isNegative(text, start, end) ? -value : value;
+    }
+
+    /*
+     * Peso amount to centavos ("535.71" -> 53571, "1,234.5" -> 123450, "-.5" -> -50).
+     * Digits past the second decimal round the centavos half up (away from zero).
+     */
+    static long parseCentavos(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int end = trimEnd(text);
+        int start = trimStart(text, end);
+        int digitsFrom = skipSign(text, start, end);
+        int point = digitsFrom;
+        while (point < end && text.charAt(point) != '.') {
+            point++;
+        }
+        if (point == digitsFrom && point + 1 >= end) {
+            return INVALID; // no digits at all
+        }
+
+        long pesos = point == digitsFrom ? 0 : parseDigits(text, digitsFrom, point);
+        if (pesos == INVALID || pesos > (Long.MAX_VALUE - Centavos.PER_PESO) / Centavos.PER_PESO) {
+            return INVALID;
+        }
+        long centavos = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        for (int i = point + 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            if (decimals < 2) {
+                centavos = centavos * 10 + (c - '0');
+            } else if (decimals == 2) {
+                roundUp = c >= '5';
+            }
+            decimals++;
+        }
+        for (; decimals < 2; decimals++) {
+            centavos *= 10;
+        }
+
+        long magnitude = pesos * Centavos.PER_PESO + centavos + (roundUp ? 1 : 0);
+        return isNegative(text, start, end) ? -magnitude : magnitude;
+    }
+
+    // Digits with thousands separators in [from, to), INVALID if there are none or anything else
+    private static long parseDigits(CharSequence text, int from, int to) {
+        long value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    return INVALID;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+            } else if (c != ',' || digits == 0 || i + 1 == to) {
+                return INVALID;
+            }
+        }
+        return digits == 0 ? INVALID : value;
+    }
+
+    private static int skipSign(CharSequence text, int start, int end) {
+        return start < end && (text.charAt(start) == '-' || text.charAt(start) == '+') ? start + 1 : start;
+    }
+
+    private static boolean isNegative(CharSequence text, int start, int end) {
+        return start < end && text.charAt(start) == '-';
+    }
+
+    /*
+     * MM/dd/yyyy to an epoch day. A day past the end of its month is moved back to the
+     * month's last day, as the MM/dd/yyyy DateTimeFormatter does in its default (smart) mode.
+     */
+    static long parseEpochDay(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int end = trimEnd(text);
+        int i = trimStart(text, end);
+        if (end - i != 10 || text.charAt(i + 2) != '/' || text.charAt(i + 5) != '/') {
+            return INVALID;
+        }
+        int month = digits(text, i, 2);
+        int day = digits(text, i + 3, 2);
+        int year = digits(text, i + 6, 4);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || year < 0) {
+            return INVALID;
+        }
+        int lastDay = month == 2 && !isLeapYear(year) ? 28 : DAYS_IN_MONTH[month - 1];
+        return LocalDate.of(year, month, Math.min(day, lastDay)).toEpochDay();
+    }
+
+    // H:mm (or HH:mm) to minutes since midnight, INVALID if it is not a time of day
+    static long parseMinutes(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int end = trimEnd(text);
+        int i = trimStart(text, end);
+        int colon = end - 3;
+        if (colon <= i || colon - i > 2 || text.charAt(colon) != ':') {
+            return INVALID;
+        }
+        int hour = digits(text, i, colon - i);
+        int minute = digits(text, colon + 1, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        return hour * 60L + minute;
+    }
+
+    // Exactly count digits from the given position, -1 if any is not a digit
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    private static int trimStart(CharSequence text, int end) {
+        int i = 0;
+        while (i < end && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
+
+/*
+ * FieldError: One invalid or missing cell of a row.
+ */
+final class FieldError {
+    private final int column;
+    private final String value;
+    private final String problem;
+
+    FieldError(int column, CharSequence value, String problem) {
+        this.column = column;
+        this.value = value == null ? null : value.toString();
+        this.problem = problem;
+    }
+
+    public int getColumn() { return column; }
+    public String getValue() { return value; }
+    public String getProblem() { return problem; }
+
+    public String getField() {
+        return column < RowParser.EMPLOYEE_COLUMNS.length ? RowParser.EMPLOYEE_COLUMNS[column] : "column " + (column + 1);
+    }
+
+    @Override
+    public String toString() {
+        return value == null ? getField() + ": " + problem : getField() + ": '" + value + "' " + problem;
+    }
+}
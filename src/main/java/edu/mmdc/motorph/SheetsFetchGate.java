@@ -0,0 +1,257 @@
+package edu.mmdc.motorph;
+
+import com.google.api.client.http.HttpResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+// ===== Data Access Layer =====
+/*
+ * SheetsFetchGate: Every outbound Google Sheets/Drive call goes through here (see GoogleSheetsHandler).
+ *
+ *  - Single flight: callers asking for a range that is already being downloaded wait for that
+ *    download and share its rows (which nobody modifies) instead of starting their own.
+ *  - Bounded concurrency: at most maxConcurrent calls are on the wire at once; the rest queue.
+ *  - Backoff: 429 (quota) and 5xx answers are retried with full-jitter exponential backoff,
+ *    or after the server's Retry-After when it sends one.
+ *  - Circuit breaker: after breakerFailures calls in a row fail for good, calls fail at once
+ *    for breakerOpenSeconds (so CachingDataSource falls back to its snapshots without waiting);
+ *    then one trial call is let through, and its outcome closes or reopens the circuit.
+ *
+ * Writes (see write()) share the limit and the breaker but are never coalesced.
+ *
+ *   -Dmotorph.fetch.maxConcurrent=<n>        (default 4)
+ *   -Dmotorph.fetch.maxAttempts=<n>          tries per call, the first included (default 5)
+ *   -Dmotorph.fetch.backoffMillis=<n>        first backoff ceiling, doubled per retry (default 250)
+ *   -Dmotorph.fetch.maxBackoffMillis=<n>     (default 16000)
+ *   -Dmotorph.fetch.breakerFailures=<n>      (default 5)
+ *   -Dmotorph.fetch.breakerOpenSeconds=<n>   (default 30)
+ */
+final class SheetsFetchGate {
+    /*
+     * Fetch: One outbound call.
+     */
+    @FunctionalInterface
+    interface Fetch<T> {
+        T execute() throws IOException, GeneralSecurityException;
+    }
+
+    enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    static final SheetsFetchGate SHARED = new SheetsFetchGate(
+            Integer.getInteger("motorph.fetch.maxConcurrent", 4),
+            Integer.getInteger("motorph.fetch.maxAttempts", 5),
+            Long.getLong("motorph.fetch.backoffMillis", 250),
+            Long.getLong("motorph.fetch.maxBackoffMillis", 16_000),
+            Integer.getInteger("motorph.fetch.breakerFailures", 5),
+            Long.getLong("motorph.fetch.breakerOpenSeconds", 30) * 1000);
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final int breakerFailures;
+    private final long breakerOpenMillis;
+
+    // Circuit breaker state, guarded by this
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialRunning;
+
+    SheetsFetchGate(int maxConcurrent, int maxAttempts, long backoffMillis, long maxBackoffMillis,
+                    int breakerFailures, long breakerOpenMillis) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(1, backoffMillis);
+        this.maxBackoffMillis = Math.max(this.backoffMillis, maxBackoffMillis);
+        this.breakerFailures = Math.max(1, breakerFailures);
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+    /*
+     * Runs the fetch, or joins the one already running under the same key (a range, or the
+     * ranges of a batch). Followers get the leader's result or exception.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fetch(String key, Fetch<T> fetch) throws IOException, GeneralSecurityException {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            PayrollMetrics.increment("fetch.coalesced");
+            return (T) await(running);
+        }
+        try {
+            T result = guarded(fetch, true);
+            mine.complete(result);
+            return result;
+        } catch (IOException | GeneralSecurityException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Later callers start a fresh download; this is not a cache
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /*
+     * Runs a write. Only 429s (rejected before anything was written) are retried, unless the
+     * write is idempotent, since a 5xx may come back for a write that was applied.
+     */
+    public <T> T write(boolean idempotent, Fetch<T> write) throws IOException, GeneralSecurityException {
+        return guarded(write, idempotent);
+    }
+
+    public synchronized CircuitState getState() { return state; }
+
+    // Breaker check, then the attempts, each holding one concurrency permit
+    private <T> T guarded(Fetch<T> fetch, boolean retryServerErrors) throws IOException, GeneralSecurityException {
+        boolean trial = admit();
+        boolean succeeded = false;
+        try {
+            T result = withRetries(fetch, retryServerErrors);
+            succeeded = true;
+            return result;
+        } catch (HttpResponseException e) {
+            // Other 4xx answers (bad range, no access) say nothing about the service's health
+            succeeded = !isTransient(e.getStatusCode());
+            throw e;
+        } finally {
+            recordOutcome(trial, succeeded);
+        }
+    }
+
+    private <T> T withRetries(Fetch<T> fetch, boolean retryServerErrors) throws IOException, GeneralSecurityException {
+        for (int attempt = 1; ; attempt++) {
+            HttpResponseException failure;
+            acquirePermit();
+            try {
+                return fetch.execute();
+            } catch (HttpResponseException e) {
+                boolean retryable = e.getStatusCode() == 429 || (retryServerErrors && isTransient(e.getStatusCode()));
+                if (!retryable || attempt >= maxAttempts) {
+                    throw e;
+                }
+                failure = e;
+            } finally {
+                permits.release();
+            }
+            // The permit is given back while backing off, so other ranges can go ahead
+            PayrollMetrics.increment(failure.getStatusCode() == 429 ? "fetch.throttled" : "fetch.serverErrors");
+            PayrollMetrics.increment("fetch.retries");
+            sleep(backoff(attempt, failure));
+        }
+    }
+
+    // Full jitter: uniform in [0, min(max, base * 2^(attempt-1))), unless the server says how long to wait
+    private long backoff(int attempt, HttpResponseException e) {
+        Long retryAfterSeconds = retryAfterSeconds(e);
+        if (retryAfterSeconds != null) {
+            return Math.min(maxBackoffMillis, retryAfterSeconds * 1000);
+        }
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling);
+    }
+
+    private static Long retryAfterSeconds(HttpResponseException e) {
+        String retryAfter = e.getHeaders() == null ? null : e.getHeaders().getRetryAfter();
+        if (retryAfter == null) {
+            return null;
+        }
+        long seconds = RowParser.parseLong(retryAfter.trim());
+        return seconds == RowParser.INVALID || seconds < 0 ? null : seconds;
+    }
+
+    private static boolean isTransient(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    // ===== Circuit breaker =====
+
+    // Throws while the circuit is open; returns true if this call is the half-open trial
+    private synchronized boolean admit() throws IOException {
+        if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= breakerOpenMillis) {
+            state = CircuitState.HALF_OPEN;
+        }
+        if (state == CircuitState.CLOSED) {
+            return false;
+        }
+        if (state == CircuitState.HALF_OPEN && !trialRunning) {
+            trialRunning = true;
+            return true;
+        }
+        PayrollMetrics.increment("fetch.breaker.rejected");
+        long retryInSeconds = Math.max(1, (breakerOpenMillis - (System.currentTimeMillis() - openedAt)) / 1000);
+        throw new IOException("Google Sheets requests suspended after " + consecutiveFailures
+                + " failures in a row; retrying in " + retryInSeconds + " s");
+    }
+
+    private synchronized void recordOutcome(boolean trial, boolean succeeded) {
+        if (trial) {
+            trialRunning = false;
+        }
+        if (succeeded) {
+            consecutiveFailures = 0;
+            state = CircuitState.CLOSED;
+            return;
+        }
+        PayrollMetrics.increment("fetch.failures");
+        consecutiveFailures++;
+        if (trial || (state == CircuitState.CLOSED && consecutiveFailures >= breakerFailures)) {
+            if (state != CircuitState.OPEN) {
+                PayrollMetrics.increment("fetch.breaker.trips");
+            }
+            state = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    // ===== Helpers =====
+
+    private void acquirePermit() throws InterruptedIOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to fetch from Google Sheets");
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off from Google Sheets");
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> running) throws IOException, GeneralSecurityException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a Google Sheets download");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof GeneralSecurityException security) {
+                throw security;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package edu.mmdc.motorph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// ===== Data Access Layer =====
+/*
+ * SnapshotCache: Keeps the last download of each sheet range in a compact binary file, so a
+ * run can start from local disk when the spreadsheet has not changed since.
+ * Every snapshot is stamped with the spreadsheet's Drive modifiedTime at download time.
+ *
+ * File layout (one file per range, written to a temp file and then moved into place):
+ *   int magic, short version, UTF range, long modifiedTime (epoch millis), long savedAt
+ *   per row: int cell count, then each cell as UTF
+ *   int -1 (end of rows)
+ * A file from another version or for another range is treated as missing.
+ */
+class SnapshotCache {
+    // Set -Dmotorph.snapshotDir=<folder> to change where snapshots are kept
+    static final String SNAPSHOT_DIR_PROPERTY = "motorph.snapshotDir";
+
+    // Set -Dmotorph.snapshots=false to always download from Google Sheets
+    static final String SNAPSHOTS_PROPERTY = "motorph.snapshots";
+
+    private static final int MAGIC = 0x4D50534E; // "MPSN"
+    private static final short VERSION = 1;
+    private static final int END_OF_ROWS = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Returned by modifiedTime() when there is no usable snapshot
+    static final long NONE = -1;
+
+    private final Path dir;
+
+    public SnapshotCache(Path dir) {
+        this.dir = dir;
+    }
+
+    // The snapshot folder from the system properties, or null when snapshots are turned off
+    static SnapshotCache fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty(SNAPSHOTS_PROPERTY, "true"))) {
+            return null;
+        }
+        String dir = System.getProperty(SNAPSHOT_DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) {
+            return new SnapshotCache(Path.of(System.getProperty("user.home"), ".motorph", "snapshots"));
+        }
+        return new SnapshotCache(Path.of(dir));
+    }
+
+    public Path getDir() { return dir; }
+
+    // "Attendance Record!A2:F" -> "Attendance_Record_A2_F.snapshot"
+    Path fileOf(String range) {
+        return dir.resolve(range.replaceAll("[^A-Za-z0-9-]", "_") + ".snapshot");
+    }
+
+    /*
+     * Header of a saved snapshot.
+     */
+    static final class Header {
+        private final long modifiedTime;
+        private final long savedAt;
+
+        Header(long modifiedTime, long savedAt) {
+            this.modifiedTime = modifiedTime;
+            this.savedAt = savedAt;
+        }
+
+        public long getModifiedTime() { return modifiedTime; }
+        public long getSavedAt() { return savedAt; }
+    }
+
+    // The header of the range's snapshot, or null if there is none
+    public Header header(String range) {
+        try (DataInputStream in = open(range)) {
+            return in == null ? null : readHeader(in, range);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // The modifiedTime the range's snapshot was saved with, or NONE
+    public long modifiedTime(String range) {
+        Header header = header(range);
+        return header == null ? NONE : header.getModifiedTime();
+    }
+
+    // All rows of the range's snapshot, or null if there is no readable snapshot
+    public List<List<Object>> read(String range) {
+        List<List<Object>> rows = new ArrayList<>();
+        try {
+            return stream(range, Integer.MAX_VALUE, rows::addAll) ? rows : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Hands the snapshot's rows to the consumer in chunks of at most chunkRows rows.
+     * Returns false, without calling the consumer, if there is no snapshot for the range.
+     * Snapshots are moved into place only once complete, so a file that ends early is damaged
+     * and reported as an IOException.
+     */
+    public boolean stream(String range, int chunkRows, Consumer<List<List<Object>>> chunkConsumer) throws IOException {
+        try (DataInputStream in = open(range)) {
+            if (in == null || readHeader(in, range) == null) {
+                return false;
+            }
+            List<List<Object>> chunk = new ArrayList<>();
+            int cellCount;
+            while ((cellCount = in.readInt()) != END_OF_ROWS) {
+                List<Object> row = new ArrayList<>(cellCount);
+                for (int i = 0; i < cellCount; i++) {
+                    row.add(in.readUTF());
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkRows) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+            return true;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + fileOf(range) + " is damaged", e);
+        }
+    }
+
+    public void write(String range, long modifiedTime, List<List<Object>> rows) throws IOException {
+        try (Writer writer = writer(range, modifiedTime)) {
+            writer.writeRows(rows);
+            writer.commit();
+        }
+    }
+
+    // Starts a snapshot that is written row by row; it replaces the old one only on commit()
+    public Writer writer(String range, long modifiedTime) throws IOException {
+        Files.createDirectories(dir);
+        return new Writer(range, modifiedTime);
+    }
+
+    /*
+     * Writer: Appends rows to a temp file and moves it over the snapshot on commit().
+     * Closing without committing discards the temp file and leaves the old snapshot as it was.
+     */
+    final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path temp;
+        private final DataOutputStream out;
+        private boolean done;
+
+        private Writer(String range, long modifiedTime) throws IOException {
+            this.target = fileOf(range);
+            this.temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(range);
+            out.writeLong(modifiedTime);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        public void writeRows(List<List<Object>> rows) throws IOException {
+            if (rows == null) {
+                return;
+            }
+            for (List<Object> row : rows) {
+                out.writeInt(row.size());
+                for (Object cell : row) {
+                    out.writeUTF(cell == null ? "" : cell.toString());
+                }
+            }
+        }
+
+        public void commit() throws IOException {
+            out.writeInt(END_OF_ROWS);
+            out.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!done) {
+                done = true;
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private DataInputStream open(String range) throws IOException {
+        try {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(fileOf(range)), BUFFER_SIZE));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, String range) throws IOException {
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION || !in.readUTF().equals(range)) {
+                return null;
+            }
+            return new Header(in.readLong(), in.readLong());
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
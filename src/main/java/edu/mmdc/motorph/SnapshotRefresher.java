@@ -0,0 +1,120 @@
+package edu.mmdc.motorph;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// ===== Service Layer =====
+/*
+ * SnapshotRefresher: Rebuilds the service's data snapshot in the background at a fixed delay.
+ * Each run calls EmployeeService.refresh() on the refresher thread, which builds a complete new
+ * PayrollSnapshot (employees, attendance, freshly compiled deduction tables) and publishes it
+ * with one atomic swap; readers carry on with the old snapshot meanwhile and never wait.
+ * Listeners (e.g. the HTTP server) are handed every new snapshot.
+ *
+ * When a refresh fails the old snapshot stays in place. Once it is older than the staleness
+ * limit it is reported as stale (once per stale spell, and on /health) but still served.
+ *   -Dmotorph.refresh.seconds=<n>          refresh every n seconds (0, the default, turns it off)
+ *   -Dmotorph.refresh.maxStaleSeconds=<n>  staleness limit (default: three refresh intervals)
+ */
+final class SnapshotRefresher implements AutoCloseable {
+    static final long INTERVAL_SECONDS = Long.getLong("motorph.refresh.seconds", 0);
+    static final long MAX_STALE_SECONDS = Long.getLong("motorph.refresh.maxStaleSeconds", 3 * INTERVAL_SECONDS);
+
+    private static final PayrollMetrics.Timer REFRESH_TIMER = PayrollMetrics.timer("snapshot.refresh");
+
+    private final EmployeeService service;
+    private final Duration interval;
+    private final Duration maxStaleness;
+    private final List<Consumer<PayrollSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Exception lastError;
+    private volatile boolean staleReported;
+
+    public SnapshotRefresher(EmployeeService service, Duration interval, Duration maxStaleness) {
+        this.service = service;
+        this.interval = interval;
+        this.maxStaleness = maxStaleness;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+                Thread.ofPlatform().daemon().name("snapshot-refresher").unstarted(runnable));
+    }
+
+    // A started refresher with the configured interval, or null when refreshing is off
+    static SnapshotRefresher startIfEnabled(EmployeeService service) {
+        if (INTERVAL_SECONDS <= 0) {
+            return null;
+        }
+        SnapshotRefresher refresher = new SnapshotRefresher(service, Duration.ofSeconds(INTERVAL_SECONDS),
+                Duration.ofSeconds(Math.max(MAX_STALE_SECONDS, INTERVAL_SECONDS)));
+        refresher.start();
+        return refresher;
+    }
+
+    public void addListener(Consumer<PayrollSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshNow, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * One refresh on the calling thread. Returns false if it failed, in which case the current
+     * snapshot is kept. Never throws, so a failure does not cancel the schedule.
+     */
+    public boolean refreshNow() {
+        long start = PayrollMetrics.start();
+        try {
+            PayrollSnapshot next = service.refresh();
+            REFRESH_TIMER.record(start);
+            lastError = null;
+            staleReported = false;
+            for (Consumer<PayrollSnapshot> listener : listeners) {
+                listener.accept(next);
+            }
+            return true;
+        } catch (Exception e) {
+            PayrollMetrics.increment("snapshot.refresh.failures");
+            lastError = e;
+            reportIfStale();
+            return false;
+        }
+    }
+
+    // Age of the published snapshot, zero before the first one is loaded
+    public Duration getAge() {
+        PayrollSnapshot current = service.getLoadedSnapshot();
+        return current == null ? Duration.ZERO : Duration.between(current.getLoadedAt(), Instant.now());
+    }
+
+    public boolean isStale() {
+        return getAge().compareTo(maxStaleness) > 0;
+    }
+
+    // The error of the last refresh, or null if it succeeded
+    public Exception getLastError() { return lastError; }
+
+    public Duration getInterval() { return interval; }
+    public Duration getMaxStaleness() { return maxStaleness; }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void reportIfStale() {
+        if (isStale() && !staleReported) {
+            staleReported = true;
+            PayrollMetrics.increment("snapshot.stale");
+            System.out.println("Payroll data is " + getAge().toSeconds() + " s old; refreshing failed: "
+                    + (lastError == null ? "unknown error" : lastError.getMessage()));
+        }
+    }
+}
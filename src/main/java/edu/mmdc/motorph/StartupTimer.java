@@ -0,0 +1,68 @@
+package edu.mmdc.motorph;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// ===== Diagnostics =====
+/*
+ * StartupTimer: Records how long each startup phase took, from JVM start to the first prompt.
+ * Phases can be recorded from any thread (the matrix warm-up runs in the background).
+ * The report is printed when the program runs with -Dmotorph.startupReport=true; without it
+ * nothing is recorded at all.
+ */
+final class StartupTimer {
+    static final boolean REPORT_ENABLED = Boolean.getBoolean("motorph.startupReport");
+
+    // Wall-clock anchor: nanoTime at the moment the JVM started
+    private static final long JVM_START_NANOS = System.nanoTime()
+            - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+
+    private static final ConcurrentLinkedQueue<String> PHASES = new ConcurrentLinkedQueue<>();
+
+    private StartupTimer() {
+    }
+
+    // A point in time, measured from JVM start
+    static void mark(String phase) {
+        if (!REPORT_ENABLED) {
+            return;
+        }
+        PHASES.add(pad(phase) + "at " + millis(System.nanoTime() - JVM_START_NANOS) + " ms");
+    }
+
+    // A phase that started at startNanos (System.nanoTime) and ends now
+    static void record(String phase, long startNanos) {
+        if (!REPORT_ENABLED) {
+            return;
+        }
+        long end = System.nanoTime();
+        PHASES.add(pad(phase) + millis(end - startNanos) + " ms (ended at "
+                + millis(end - JVM_START_NANOS) + " ms)");
+    }
+
+    static String report() {
+        StringBuilder text = new StringBuilder("\nStartup timing:\n");
+        for (String phase : PHASES) {
+            text.append("  ").append(phase).append('\n');
+        }
+        return text.toString();
+    }
+
+    static void printReportIfEnabled() {
+        if (REPORT_ENABLED) {
+            System.out.print(report());
+        }
+    }
+
+    private static String millis(long nanos) {
+        return Long.toString(nanos / 1_000_000) + "." + (nanos / 100_000) % 10;
+    }
+
+    private static String pad(String phase) {
+        StringBuilder text = new StringBuilder(phase).append(':');
+        while (text.length() < 40) {
+            text.append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package edu.mmdc.motorph;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// ===== Deduction Layer =====
+/*
+ * VectorDeductionKernel: DeductionKernel on jdk.incubator.vector, one vector of employees
+ * (8 lanes of long with AVX-512, 4 with AVX2) per step. Only loaded when the module is present.
+ *
+ * Branch-free versions of the scalar steps:
+ *  - Bracket lookup: instead of ContributionTable.find's binary searches, every lane counts the
+ *    rows with lower <= amount (the candidate) and with maxUpper < amount (the first row that
+ *    reaches the amount); the tables are a few dozen rows, all broadcast from the same arrays.
+ *    The row's columns are then picked with one blend per row.
+ *  - Centavos.divide: floor division by 4 and 8 is an arithmetic shift; by a rate's 2 000 000
+ *    it is a double estimate corrected to the exact floor (the amounts are far below 2^52).
+ *  - PhilHealth's three bracket types and Pag-IBIG's cap are masks and lanewise min.
+ * Lanes left over at the end go through DeductionKernel.computeScalar.
+ */
+final class VectorDeductionKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private VectorDeductionKernel() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    // The formula's divisors must be powers of two (DeductionFormula.hasPowerOfTwoDivisors)
+    static void compute(DeductionTables tables, long[] monthlySalaries, long[] weeklyGross,
+                        long[] sss, long[] philHealth, long[] pagIbig, long[] tax, int count) {
+        DeductionFormula formula = tables.getFormula();
+        long weeks = formula.getWeeksPerMonth();
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector salary = LongVector.fromArray(SPECIES, monthlySalaries, i);
+
+            LongVector weeklySss = divide(sss(salary, tables.getSss()), weeks);
+            LongVector weeklyPhilHealth = divide(philHealth(salary, tables.getPhilHealth(), formula), weeks);
+            LongVector weeklyPagIbig = divide(pagIbig(salary, tables.getPagIbig(), formula), weeks);
+
+            LongVector taxable = LongVector.fromArray(SPECIES, weeklyGross, i)
+                    .sub(weeklySss).sub(weeklyPhilHealth).sub(weeklyPagIbig);
+            LongVector weeklyTax = divide(tax(taxable.mul(weeks), tables.getWithHoldingTax()), weeks);
+
+            weeklySss.intoArray(sss, i);
+            weeklyPhilHealth.intoArray(philHealth, i);
+            weeklyPagIbig.intoArray(pagIbig, i);
+            weeklyTax.intoArray(tax, i);
+        }
+        DeductionKernel.computeScalar(tables, monthlySalaries, weeklyGross, sss, philHealth, pagIbig, tax, bound, count);
+    }
+
+    // ===== Deductions, as in DeductionService =====
+
+    private static LongVector sss(LongVector salary, ContributionTable table) {
+        LongVector row = find(table, salary);
+        return select(table, row, ContributionTable::rateCentavos);
+    }
+
+    private static LongVector philHealth(LongVector salary, ContributionTable table, DeductionFormula formula) {
+        LongVector row = find(table, salary);
+        LongVector type = select(table, row, ContributionTable::bracketType);
+        LongVector fixed = select(table, row, ContributionTable::fixed);
+
+        // Type 1 and 3: fixed premium; 2: percentage of salary; anything else (or no row): 0
+        LongVector premium = LongVector.zero(SPECIES)
+                .blend(fixed, type.eq(1).or(type.eq(3)))
+                .blend(applyRate(salary, LongVector.broadcast(SPECIES, formula.getPhilHealthRateMicros())), type.eq(2));
+        return divide(premium, formula.getPhilHealthEmployeeShare());
+    }
+
+    private static LongVector pagIbig(LongVector salary, ContributionTable table, DeductionFormula formula) {
+        LongVector row = find(table, salary);
+        LongVector deduction = applyRate(salary, select(table, row, ContributionTable::rateMicros))
+                .min(formula.getPagIbigCapCentavos());
+        return deduction.blend(0, row.lt(0));
+    }
+
+    private static LongVector tax(LongVector monthlyTaxable, ContributionTable table) {
+        LongVector row = find(table, monthlyTaxable);
+        VectorMask<Long> missed = row.lt(0);
+        if (missed.anyTrue()) {
+            DeductionService.recordTaxBracketMisses(missed.trueCount());
+        }
+        LongVector excess = monthlyTaxable.sub(select(table, row, ContributionTable::lower));
+        LongVector amount = select(table, row, ContributionTable::fixed)
+                .add(applyRate(excess, select(table, row, ContributionTable::rateMicros)));
+        return amount.blend(0, missed);
+    }
+
+    // ===== Bracket lookup =====
+
+    /*
+     * ContributionTable.find for every lane: the first row with lower <= amount <= upper, or -1.
+     * Rows are sorted by lower bound and maxUpper is non-decreasing, so both searches are counts.
+     */
+    private static LongVector find(ContributionTable table, LongVector amount) {
+        LongVector candidate = LongVector.broadcast(SPECIES, -1);
+        LongVector first = LongVector.zero(SPECIES);
+        for (int row = 0; row < table.size(); row++) {
+            candidate = candidate.add(1, amount.compare(VectorOperators.GE, table.lower(row)));
+            first = first.add(1, amount.compare(VectorOperators.GT, table.maxUpper(row)));
+        }
+        return first.blend(-1, first.compare(VectorOperators.GT, candidate));
+    }
+
+    @FunctionalInterface
+    private interface Column {
+        long get(ContributionTable table, int row);
+    }
+
+    // The column's value in each lane's row, 0 where the row is -1
+    private static LongVector select(ContributionTable table, LongVector row, Column column) {
+        LongVector values = LongVector.zero(SPECIES);
+        for (int r = 0; r < table.size(); r++) {
+            VectorMask<Long> inRow = row.eq(r);
+            if (inRow.anyTrue()) {
+                values = values.blend(column.get(table, r), inRow);
+            }
+        }
+        return values;
+    }
+
+    // ===== Centavos arithmetic =====
+
+    // Centavos.divide for a power-of-two divisor: the floor division is an arithmetic shift,
+    // e.g. by the standard 4 weeks per month floor((2a + 4) / 8)
+    private static LongVector divide(LongVector amount, long divisor) {
+        int shift = Long.numberOfTrailingZeros(2 * divisor);
+        return amount.lanewise(VectorOperators.LSHL, 1).add(divisor).lanewise(VectorOperators.ASHR, shift);
+    }
+
+    // Centavos.applyRate: floor((2 * amount * rate + 10^6) / (2 * 10^6))
+    private static LongVector applyRate(LongVector amount, LongVector rateMicros) {
+        return floorDiv(amount.mul(rateMicros).lanewise(VectorOperators.LSHL, 1).add(Centavos.MICROS_PER_UNIT),
+                2 * Centavos.MICROS_PER_UNIT);
+    }
+
+    // Math.floorDiv by a positive constant: a double quotient, then at most one step either way
+    private static LongVector floorDiv(LongVector dividend, long divisor) {
+        DoubleVector estimate = (DoubleVector) dividend.convert(VectorOperators.L2D, 0);
+        LongVector quotient = (LongVector) estimate.div((double) divisor).convert(VectorOperators.D2L, 0);
+        LongVector remainder = dividend.sub(quotient.mul(divisor));
+        VectorMask<Long> under = remainder.lt(0);
+        quotient = quotient.sub(1, under);
+        remainder = remainder.add(divisor, under);
+        return quotient.add(1, remainder.compare(VectorOperators.GE, divisor));
+    }
+}
@@ -0,0 +1,408 @@
+package edu.mmdc.motorph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// ===== Development Tools =====
+/*
+ * WorkforceGenerator: Deterministic synthetic MotorPH data for scale testing.
+ * Writes a data folder that CsvDataSource (or FakeSheetsServer) can read:
+ *   - "Employee Details" rows in the 19-column layout createEmployee expects
+ *   - "Attendance Record" rows for every weekday of any date span
+ *   - the four contribution/tax matrices
+ * Every row is generated from (seed, row coordinates) alone, so the same arguments always
+ * give the same files and any row can be regenerated on its own. Rows are written as they
+ * are generated, so 100k employees x 2 years of attendance never sits in memory.
+ *
+ * Usage: WorkforceGenerator <output folder> <employees> <attendance days>
+ *                           [seed] [malformed rate 0..1] [first day MM/dd/yyyy]
+ */
+class WorkforceGenerator {
+    static final int FIRST_EMPLOYEE_NUMBER = 10001;
+    static final long DEFAULT_SEED = 20240603L;
+    static final LocalDate DEFAULT_FIRST_DAY = LocalDate.of(2024, 6, 3);
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private static final String EMPLOYEE_HEADER = "Employee #,Last Name,First Name,Birthday,Address,Phone Number,"
+            + "SSS #,Philhealth #,TIN #,Pag-ibig #,Status,Position,Immediate Supervisor,Basic Salary,"
+            + "Rice Subsidy,Phone Allowance,Clothing Allowance,Gross Semi-monthly Rate,Hourly Rate";
+    private static final String ATTENDANCE_HEADER = "Employee #,Last Name,First Name,Date,Log In,Log Out";
+
+    private static final String[] LAST_NAMES = { "Garcia", "Lim", "Aquino", "Reyes", "Hernandez", "Villanueva",
+        "San Jose", "Romualdez", "Atienza", "Alvaro", "Salcedo", "Lopez", "Farala", "Martinez", "Romero",
+        "Mata", "De Leon", "Rosario", "Bautista", "Lazaro", "Delos Santos", "Santos", "Del Rosario", "Tolentino" };
+    private static final String[] FIRST_NAMES = { "Manuel", "Antonio", "Bianca Sofia", "Isabella", "Eduard",
+        "Andrea Mae", "Brad", "Alice", "Rosie", "Roderick", "Anthony", "Josie", "Martha", "Leila", "Fredrick",
+        "Christian", "Selena", "Allison", "Cydney", "Mark", "Darlene", "Kolby", "Vella", "Tomas", "Jacklyn" };
+    private static final String[] CITIES = { "Makati City", "Quezon City", "Pasig City", "Taguig City",
+        "Manila", "Mandaluyong City", "Cavite", "Laguna", "Cebu City", "Davao City" };
+    private static final String[] STATUSES = { "Regular", "Regular", "Regular", "Probationary" };
+
+    /*
+     * Salary tiers (monthly basic salary), chosen so every bracket of every matrix is used:
+     * weight, lowest and highest salary. Weights add up to 1000.
+     */
+    private static final int[][] SALARY_TIERS = {
+        {   15,   1_000,     3_249 },   // below the first SSS step, Pag-IBIG 1% bracket
+        {   60,   3_250,    10_000 },   // PhilHealth fixed premium
+        {  430,  10_001,    24_999 },   // SSS steps, PhilHealth 3%, no withholding tax
+        {  300,  25_000,    59_999 },   // top SSS bracket, 20-25% tax brackets
+        {  150,  60_000,   166_000 },   // PhilHealth ceiling, 30% tax bracket
+        {   40, 170_000,   650_000 },   // 32% tax bracket
+        {    5, 700_000, 1_500_000 },   // 35% tax bracket
+    };
+    private static final String[][] POSITIONS_BY_TIER = {
+        { "Sales & Marketing", "Customer Service and Relations" },
+        { "Sales & Marketing", "Customer Service and Relations", "Supply Chain and Logistics" },
+        { "Account Rank and File", "HR Rank and File", "Accounting Rank and File", "Payroll Rank and File" },
+        { "Account Team Leader", "HR Team Leader", "Payroll Team Leader", "IT Operations and Systems" },
+        { "Account Manager", "HR Manager", "Accounting Head", "Payroll Manager" },
+        { "Chief Finance Officer", "Chief Operating Officer", "Chief Marketing Officer" },
+        { "Chief Executive Officer" },
+    };
+
+    private final long seed;
+    private final double malformedRate;
+
+    public WorkforceGenerator(long seed, double malformedRate) {
+        this.seed = seed;
+        this.malformedRate = malformedRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: WorkforceGenerator <output folder> <employees> <attendance days> "
+                    + "[seed] [malformed rate 0..1] [first day MM/dd/yyyy]");
+            return;
+        }
+        Path outputDir = Path.of(args[0]);
+        int employees = Integer.parseInt(args[1]);
+        int days = Integer.parseInt(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        double malformedRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+        LocalDate firstDay = args.length > 5 ? LocalDate.parse(args[5], DATE_FORMATTER) : DEFAULT_FIRST_DAY;
+
+        long start = System.nanoTime();
+        WorkforceGenerator generator = new WorkforceGenerator(seed, malformedRate);
+        Files.createDirectories(outputDir);
+        writeMatrices(outputDir);
+        generator.writeEmployees(outputDir.resolve(CsvDataSource.EMPLOYEE_FILE), employees);
+        long attendanceRows = generator.writeAttendance(outputDir.resolve(CsvDataSource.ATTENDANCE_FILE), employees, firstDay, days);
+
+        System.out.println("Generated " + employees + " employees and " + attendanceRows + " attendance rows in "
+                + outputDir + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+
+    // ===== Employee Details =====
+
+    public void writeEmployees(Path file, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(EMPLOYEE_HEADER);
+            out.write('\n');
+            for (int i = 0; i < count; i++) {
+                writeRow(out, employeeRow(i));
+            }
+        }
+    }
+
+    public List<List<Object>> employees(int count) {
+        List<List<Object>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(employeeRow(i));
+        }
+        return rows;
+    }
+
+    // Row i of the Employee Details sheet (employee number FIRST_EMPLOYEE_NUMBER + i)
+    public List<Object> employeeRow(int index) {
+        SplittableRandom random = random(index, -1);
+        int employeeNumber = FIRST_EMPLOYEE_NUMBER + index;
+
+        int tier = pickTier(random);
+        int salary = roundTo(random.nextInt(SALARY_TIERS[tier][1], SALARY_TIERS[tier][2] + 1), 500);
+        salary = Math.max(salary, SALARY_TIERS[tier][1]);
+        int riceSubsidy = 1_500;
+        int phoneAllowance = tier >= 4 ? 2_000 : tier >= 3 ? 1_000 : 500;
+        int clothingAllowance = tier >= 4 ? 1_000 : 500;
+        double hourlyRate = Math.round(salary / 21.0 / 8.0 * 100.0) / 100.0;
+
+        String lastName = lastNameOf(index);
+        String firstName = firstNameOf(index);
+        LocalDate birthday = LocalDate.of(1965 + random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28));
+        String[] positions = POSITIONS_BY_TIER[tier];
+
+        List<Object> row = new ArrayList<>(19);
+        row.add(Integer.toString(employeeNumber));
+        row.add(lastName);
+        row.add(firstName);
+        row.add(birthday.format(DATE_FORMATTER));
+        row.add((1 + random.nextInt(999)) + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " Street, "
+                + CITIES[random.nextInt(CITIES.length)]);
+        row.add(digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 3));
+        row.add(digits(random, 2) + "-" + digits(random, 7) + "-" + digits(random, 1));
+        row.add(digits(random, 12));
+        row.add(digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 3) + "-000");
+        row.add(digits(random, 12));
+        row.add(STATUSES[random.nextInt(STATUSES.length)]);
+        row.add(positions[random.nextInt(positions.length)]);
+        row.add(index == 0 ? "N/A" : supervisorOf(index));
+        row.add(grouped(salary));
+        row.add(grouped(riceSubsidy));
+        row.add(grouped(phoneAllowance));
+        row.add(grouped(clothingAllowance));
+        row.add(grouped(salary / 2));
+        row.add(Double.toString(hourlyRate));
+
+        if (random.nextDouble() < malformedRate) {
+            corruptEmployeeRow(row, random);
+        }
+        return row;
+    }
+
+    // Bad data of the kinds a hand-edited sheet ends up with
+    private static void corruptEmployeeRow(List<Object> row, SplittableRandom random) {
+        switch (random.nextInt(5)) {
+            case 0 -> row.set(0, "#" + row.get(0));                     // non-numeric employee number
+            case 1 -> row.set(3, "31/02/19xx");                          // unparseable birthday
+            case 2 -> row.set(13, row.get(13).toString().replace('0', 'O')); // letter O typed for zero
+            case 3 -> row.subList(10, row.size()).clear();               // truncated row
+            default -> row.set(18, "");                                  // missing hourly rate
+        }
+    }
+
+    // Employees report to an employee from the first 1% of the workforce
+    private String supervisorOf(int index) {
+        int supervisor = Math.floorMod(mix(seed, index, -2), Math.max(1, index / 100 + 1));
+        return lastNameOf(supervisor) + ", " + firstNameOf(supervisor);
+    }
+
+    private static String lastNameOf(int index) {
+        return LAST_NAMES[Math.floorMod(index * 7 + index / LAST_NAMES.length, LAST_NAMES.length)];
+    }
+
+    private String firstNameOf(int index) {
+        return FIRST_NAMES[random(index, -3).nextInt(FIRST_NAMES.length)];
+    }
+
+    // ===== Attendance Record =====
+
+    /*
+     * One row per employee per weekday from firstDay for the given number of days,
+     * with about 3% absences. Returns the number of rows written.
+     */
+    public long writeAttendance(Path file, int employeeCount, LocalDate firstDay, int days) throws IOException {
+        long rows = 0;
+        try (BufferedWriter out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), WRITE_BUFFER)) {
+            out.write(ATTENDANCE_HEADER);
+            out.write('\n');
+            for (int d = 0; d < days; d++) {
+                LocalDate date = firstDay.plusDays(d);
+                if (isWeekend(date)) {
+                    continue;
+                }
+                String dateText = date.format(DATE_FORMATTER);
+                for (int i = 0; i < employeeCount; i++) {
+                    List<Object> row = attendanceRow(i, date, dateText);
+                    if (row != null) {
+                        writeRow(out, row);
+                        rows++;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    public List<List<Object>> attendance(int employeeCount, LocalDate firstDay, int days) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int d = 0; d < days; d++) {
+            LocalDate date = firstDay.plusDays(d);
+            if (isWeekend(date)) {
+                continue;
+            }
+            String dateText = date.format(DATE_FORMATTER);
+            for (int i = 0; i < employeeCount; i++) {
+                List<Object> row = attendanceRow(i, date, dateText);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Attendance of employee i on a date, or null when absent
+    private List<Object> attendanceRow(int index, LocalDate date, String dateText) {
+        SplittableRandom random = random(index, date.toEpochDay());
+        if (random.nextInt(100) < 3) {
+            return null;
+        }
+        int timeIn = 7 * 60 + 30 + random.nextInt(90);          // 7:30 - 8:59
+        int timeOut = timeIn + 8 * 60 + random.nextInt(-30, 120); // about a 9-hour day
+
+        List<Object> row = new ArrayList<>(6);
+        row.add(Integer.toString(FIRST_EMPLOYEE_NUMBER + index));
+        row.add(lastNameOf(index));
+        row.add(firstNameOf(index));
+        row.add(dateText);
+        row.add(clock(timeIn));
+        row.add(clock(timeOut));
+
+        if (random.nextDouble() < malformedRate) {
+            switch (random.nextInt(3)) {
+                case 0 -> row.set(4, "25:99");   // impossible time
+                case 1 -> row.set(3, "");        // missing date
+                default -> row.remove(5);        // no log out
+            }
+        }
+        return row;
+    }
+
+    // ===== Matrices =====
+
+    public static void writeMatrices(Path dir) throws IOException {
+        writeMatrix(dir.resolve(CsvDataSource.SSS_FILE), sssMatrix());
+        writeMatrix(dir.resolve(CsvDataSource.PHILHEALTH_FILE), philHealthMatrix());
+        writeMatrix(dir.resolve(CsvDataSource.PAGIBIG_FILE), pagIbigMatrix());
+        writeMatrix(dir.resolve(CsvDataSource.WITHHOLDINGTAX_FILE), withHoldingTaxMatrix());
+    }
+
+    // Monthly SSS contribution: 135.00 below 3,250, then +22.50 per 500 up to 1,125.00
+    public static List<List<Object>> sssMatrix() {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(List.of("0", "3,249.99", "135.00"));
+        int contributionCentavos = 15_750;
+        for (int lower = 3_250; lower < 24_750; lower += 500) {
+            rows.add(List.of(grouped(lower), grouped(lower + 499) + ".99",
+                    grouped(contributionCentavos / 100) + centavos(contributionCentavos)));
+            contributionCentavos += 2_250;
+        }
+        rows.add(List.of("24,750", "", "1,125.00"));
+        return rows;
+    }
+
+    public static List<List<Object>> philHealthMatrix() {
+        return List.of(
+            List.of("0", "10,000", "3%", "300", "1"),
+            List.of("10,000.01", "59,999.99", "3%", "", "2"),
+            List.of("60,000", "", "3%", "1,800", "3")
+        );
+    }
+
+    public static List<List<Object>> pagIbigMatrix() {
+        return List.of(
+            List.of("1,000", "1,500", "1", "2"),
+            List.of("1,500.01", "", "2", "2")
+        );
+    }
+
+    public static List<List<Object>> withHoldingTaxMatrix() {
+        return List.of(
+            List.of("0", "20,832", "0", "0"),
+            List.of("20,833", "33,332", "20", "0"),
+            List.of("33,333", "66,666", "25", "2,500"),
+            List.of("66,667", "166,666", "30", "10,833"),
+            List.of("166,667", "666,666", "32", "40,833.33"),
+            List.of("666,667", "", "35", "200,833.33")
+        );
+    }
+
+    private static void writeMatrix(Path file, List<List<Object>> rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (List<Object> row : rows) {
+                writeRow(out, row);
+            }
+        }
+    }
+
+    // ===== Helpers =====
+
+    private static void writeRow(Writer out, List<Object> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String cell = row.get(i).toString();
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0) {
+                out.write('"');
+                out.write(cell.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(cell);
+            }
+        }
+        out.write('\n');
+    }
+
+    private SplittableRandom random(int index, long salt) {
+        return new SplittableRandom(mix(seed, index, salt));
+    }
+
+    private static long mix(long seed, long a, long b) {
+        long h = seed ^ (a * 0x9E3779B97F4A7C15L) ^ (b * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static int pickTier(SplittableRandom random) {
+        int roll = random.nextInt(1000);
+        for (int tier = 0; tier < SALARY_TIERS.length; tier++) {
+            roll -= SALARY_TIERS[tier][0];
+            if (roll < 0) {
+                return tier;
+            }
+        }
+        return SALARY_TIERS.length - 1;
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private static int roundTo(int value, int step) {
+        return (value + step / 2) / step * step;
+    }
+
+    private static String digits(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            text.append((char) ('0' + random.nextInt(10)));
+        }
+        return text.toString();
+    }
+
+    private static String clock(int minutes) {
+        int m = minutes % 60;
+        return (minutes / 60) + ":" + (m < 10 ? "0" : "") + m;
+    }
+
+    private static String grouped(int value) {
+        String plain = Integer.toString(value);
+        StringBuilder text = new StringBuilder(plain.length() + plain.length() / 3);
+        for (int i = 0; i < plain.length(); i++) {
+            if (i > 0 && (plain.length() - i) % 3 == 0) {
+                text.append(',');
+            }
+            text.append(plain.charAt(i));
+        }
+        return text.toString();
+    }
+
+    private static String centavos(int amountCentavos) {
+        int c = amountCentavos % 100;
+        return "." + (c < 10 ? "0" : "") + c;
+    }
+}
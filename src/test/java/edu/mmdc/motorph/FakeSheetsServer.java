@@ -0,0 +1,349 @@
+package edu.mmdc.motorph;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.sheets.v4.model.AppendValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesResponse;
+import com.google.api.services.sheets.v4.model.UpdateValuesResponse;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// ===== Development Tools =====
+/*
+ * FakeSheetsServer: A local stand-in for the Google Sheets values API, serving the CSV exports
+ * of a data folder. Run it, then start MotorPH with -Dmotorph.sheets.rootUrl=http://localhost:<port>/
+ * to exercise the real Sheets client (shared transport, batchGet) without credentials or network.
+ * It also answers the Drive files.get call for the spreadsheet's modifiedTime, taken from the
+ * newest CSV file; editing a CSV reloads the data and moves modifiedTime on, like editing the sheet.
+ * Writes (values:append and values:batchUpdate) are saved to the CSV files the same way.
+ *
+ * To exercise SheetsFetchGate it can also misbehave like the real service under load:
+ *   -Dmotorph.fake.latencyMillis=<n>        delay every answer by n ms
+ *   -Dmotorph.fake.quotaRequests=<n>        answer 429 RESOURCE_EXHAUSTED (with Retry-After) once n
+ *   -Dmotorph.fake.quotaWindowSeconds=<n>   requests were served in the current window (default 60)
+ *   -Dmotorph.fake.errorRate=<0..1>         answer this share of requests with 503 UNAVAILABLE
+ *
+ * It lives with the tests (mvn test-compile builds it into target/test-classes).
+ * Usage: FakeSheetsServer <data folder> [port]
+ */
+class FakeSheetsServer {
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    private static final int DEFAULT_PORT = 8089;
+
+    private final Path dataDir;
+    private volatile long latencyMillis = Long.getLong("motorph.fake.latencyMillis", 0);
+    private int quotaRequests = Integer.getInteger("motorph.fake.quotaRequests", 0);
+    private long quotaWindowMillis = Long.getLong("motorph.fake.quotaWindowSeconds", 60) * 1000;
+    private volatile double errorRate = Double.parseDouble(System.getProperty("motorph.fake.errorRate", "0"));
+
+    // Requests that reached the server, and the current quota window
+    private final AtomicLong requestCount = new AtomicLong();
+    private long windowStart;
+    private int windowRequests;
+
+    // Whole CSV files, header line included, so index 0 is sheet row 1
+    private final Map<DataSheet, List<List<Object>>> sheets = new EnumMap<>(DataSheet.class);
+    private long loadedModifiedTime;
+    private HttpServer server;
+
+    public FakeSheetsServer(Path dataDir) throws IOException {
+        this.dataDir = dataDir;
+        reloadIfChanged();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: FakeSheetsServer <data folder> [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        FakeSheetsServer fake = new FakeSheetsServer(Path.of(args[0]));
+        fake.start(port);
+        System.out.println("Fake Sheets API listening on http://localhost:" + fake.getPort() + "/");
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/v4/spreadsheets/", this::handle);
+        server.createContext("/drive/v3/files/", this::handleDrive);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public long getRequestCount() { return requestCount.get(); }
+
+    public void setLatencyMillis(long latencyMillis) { this.latencyMillis = latencyMillis; }
+    public void setErrorRate(double errorRate) { this.errorRate = errorRate; }
+
+    // At most quotaRequests requests per window (0 turns the quota off)
+    public synchronized void setQuota(int quotaRequests, long windowMillis) {
+        this.quotaRequests = quotaRequests;
+        this.quotaWindowMillis = windowMillis;
+        this.windowRequests = 0;
+    }
+
+    /*
+     * Counts the request, sleeps for the configured latency and then, if the request is to
+     * fail, sends the error and returns false. The quota counts rejected requests too, like Google's.
+     */
+    private boolean admit(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long retryAfterMillis = 0;
+        synchronized (this) {
+            if (quotaRequests > 0) {
+                long now = System.currentTimeMillis();
+                if (now - windowStart >= quotaWindowMillis) {
+                    windowStart = now;
+                    windowRequests = 0;
+                }
+                if (++windowRequests > quotaRequests) {
+                    retryAfterMillis = Math.max(1, windowStart + quotaWindowMillis - now);
+                }
+            }
+        }
+        if (retryAfterMillis > 0) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString((retryAfterMillis + 999) / 1000));
+            send(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Quota exceeded for quota metric 'Read requests'\","
+                    + "\"status\":\"RESOURCE_EXHAUSTED\"}}");
+            return false;
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            send(exchange, 503, "{\"error\":{\"code\":503,\"message\":\"The service is currently unavailable.\","
+                    + "\"status\":\"UNAVAILABLE\"}}");
+            return false;
+        }
+        return true;
+    }
+
+    // Newest last-modified time of the CSV files (epoch millis)
+    private long modifiedTime() throws IOException {
+        long newest = 0;
+        for (DataSheet sheet : DataSheet.values()) {
+            newest = Math.max(newest, Files.getLastModifiedTime(dataDir.resolve(sheet.getTitle() + ".csv")).toMillis());
+        }
+        return newest;
+    }
+
+    private synchronized long reloadIfChanged() throws IOException {
+        long modifiedTime = modifiedTime();
+        if (modifiedTime != loadedModifiedTime) {
+            for (DataSheet sheet : DataSheet.values()) {
+                sheets.put(sheet, CsvDataSource.readAll(dataDir.resolve(sheet.getTitle() + ".csv"), 0));
+            }
+            loadedModifiedTime = modifiedTime;
+        }
+        return modifiedTime;
+    }
+
+    // /drive/v3/files/{id}: only the modifiedTime field is filled in
+    private void handleDrive(HttpExchange exchange) throws IOException {
+        if (!admit(exchange)) {
+            return;
+        }
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not found\"}}");
+            return;
+        }
+        String id = exchange.getRequestURI().getPath().substring("/drive/v3/files/".length());
+        DateTime modifiedTime = new DateTime(reloadIfChanged());
+        send(exchange, 200, "{\"id\":\"" + id + "\",\"modifiedTime\":\"" + modifiedTime.toStringRfc3339() + "\"}");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!admit(exchange)) {
+            return;
+        }
+        reloadIfChanged();
+        try {
+            // /v4/spreadsheets/{id}/values/{range} or /v4/spreadsheets/{id}/values:batchGet?ranges=...
+            String path = exchange.getRequestURI().getPath();
+            int valuesAt = path.indexOf("/values");
+            if (valuesAt < 0 || !("GET".equals(exchange.getRequestMethod()) || "POST".equals(exchange.getRequestMethod()))) {
+                send(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not found\"}}");
+                return;
+            }
+
+            String rest = path.substring(valuesAt + "/values".length());
+            if ("POST".equals(exchange.getRequestMethod())) {
+                handleWrite(exchange, rest);
+            } else if (rest.startsWith(":batchGet")) {
+                List<ValueRange> valueRanges = new ArrayList<>();
+                for (String range : queryValues(exchange.getRequestURI().getRawQuery(), "ranges")) {
+                    valueRanges.add(valueRange(range));
+                }
+                send(exchange, 200, JSON_FACTORY.toString(new BatchGetValuesResponse().setValueRanges(valueRanges)));
+            } else if (rest.startsWith("/")) {
+                send(exchange, 200, JSON_FACTORY.toString(valueRange(rest.substring(1))));
+            } else {
+                send(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not found\"}}");
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":{\"code\":400,\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}}");
+        }
+    }
+
+    // /values/{range}:append and /values:batchUpdate
+    private void handleWrite(HttpExchange exchange, String rest) throws IOException {
+        if (rest.startsWith("/") && rest.endsWith(":append")) {
+            String range = rest.substring(1, rest.length() - ":append".length());
+            ValueRange body = JSON_FACTORY.fromInputStream(requestBody(exchange), ValueRange.class);
+            List<List<Object>> values = body.getValues() == null ? List.of() : body.getValues();
+            int firstRow = write(range, values, true);
+            String updatedRange = sheetOf(range).getTitle() + "!A" + firstRow;
+            send(exchange, 200, JSON_FACTORY.toString(new AppendValuesResponse().setTableRange(range)
+                    .setUpdates(new UpdateValuesResponse().setUpdatedRange(updatedRange).setUpdatedRows(values.size()))));
+        } else if (rest.startsWith(":batchUpdate")) {
+            BatchUpdateValuesRequest body = JSON_FACTORY.fromInputStream(requestBody(exchange), BatchUpdateValuesRequest.class);
+            int updatedRows = 0;
+            for (ValueRange data : body.getData()) {
+                List<List<Object>> values = data.getValues() == null ? List.of() : data.getValues();
+                write(data.getRange(), values, false);
+                updatedRows += values.size();
+            }
+            send(exchange, 200, JSON_FACTORY.toString(new BatchUpdateValuesResponse().setTotalUpdatedRows(updatedRows)));
+        } else {
+            send(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not found\"}}");
+        }
+    }
+
+    // The Google client gzips request bodies
+    private static InputStream requestBody(HttpExchange exchange) throws IOException {
+        InputStream body = exchange.getRequestBody();
+        return "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding")) ? new GZIPInputStream(body) : body;
+    }
+
+    /*
+     * Appends the rows after the sheet's last row, or writes them from the range's first row on,
+     * and saves the sheet's CSV file. Returns the sheet row of the first written row.
+     */
+    private synchronized int write(String range, List<List<Object>> values, boolean append) throws IOException {
+        DataSheet sheet = sheetOf(range);
+        // Copied, so responses being built from the old list are not disturbed
+        List<List<Object>> rows = new ArrayList<>(sheets.get(sheet));
+        int bang = range.indexOf('!');
+        int firstRow = append || bang < 0 ? rows.size() + 1 : rowOf(range.substring(bang + 1).split(":")[0], 1);
+        for (int i = 0; i < values.size(); i++) {
+            int at = firstRow - 1 + i;
+            while (rows.size() < at) {
+                rows.add(new ArrayList<>());
+            }
+            if (at < rows.size()) {
+                rows.set(at, values.get(i));
+            } else {
+                rows.add(values.get(i));
+            }
+        }
+        CsvDataSource.writeRows(dataDir.resolve(sheet.getTitle() + ".csv"), rows);
+        sheets.put(sheet, rows);
+        loadedModifiedTime = modifiedTime();
+        return firstRow;
+    }
+
+    private static DataSheet sheetOf(String range) {
+        int bang = range.indexOf('!');
+        String title = bang < 0 ? range : range.substring(0, bang);
+        if (title.startsWith("'") && title.endsWith("'") && title.length() > 1) {
+            title = title.substring(1, title.length() - 1);
+        }
+        DataSheet sheet = DataSheet.fromTitle(title);
+        if (sheet == null) {
+            throw new IllegalArgumentException("Unable to parse range: " + range);
+        }
+        return sheet;
+    }
+
+    // Serves an A1 range such as "Attendance Record!A2:F5169". Columns are not trimmed, only rows.
+    private ValueRange valueRange(String range) {
+        int bang = range.indexOf('!');
+        DataSheet sheet = sheetOf(range);
+
+        List<List<Object>> rows;
+        synchronized (this) {
+            rows = sheets.get(sheet);
+        }
+        int firstRow = 1;
+        int lastRow = rows.size();
+        if (bang >= 0) {
+            String[] cells = range.substring(bang + 1).split(":");
+            firstRow = rowOf(cells[0], 1);
+            lastRow = cells.length > 1 ? rowOf(cells[1], rows.size()) : firstRow;
+        }
+
+        int from = Math.min(Math.max(firstRow - 1, 0), rows.size());
+        int to = Math.min(lastRow, rows.size());
+        ValueRange valueRange = new ValueRange().setRange(range).setMajorDimension("ROWS");
+        if (from < to) {
+            // The real API omits "values" for an empty range
+            valueRange.setValues(new ArrayList<>(rows.subList(from, to)));
+        }
+        return valueRange;
+    }
+
+    // Row number of an A1 cell reference ("F5169" -> 5169, "F" -> fallback)
+    private static int rowOf(String cell, int fallback) {
+        int i = 0;
+        while (i < cell.length() && Character.isLetter(cell.charAt(i))) {
+            i++;
+        }
+        return i == cell.length() ? fallback : Integer.parseInt(cell.substring(i));
+    }
+
+    private static List<String> queryValues(String rawQuery, String name) {
+        List<String> values = new ArrayList<>();
+        if (rawQuery == null) {
+            return values;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                values.add(URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package edu.mmdc.motorph;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * SheetsFetchGateTest: The gate in front of the real Sheets client, against FakeSheetsServer
+ * made slow, over quota or failing. Each test has its own gate, so the shared one is untouched.
+ */
+class SheetsFetchGateTest {
+    private static final String RANGE = "SSS Matrix!A1:D3";
+
+    @TempDir
+    Path dataDir;
+
+    private FakeSheetsServer server;
+    private Sheets sheets;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        for (DataSheet sheet : DataSheet.values()) {
+            Files.writeString(dataDir.resolve(sheet.getTitle() + ".csv"), "A,B,C,D\n1,2,3,4\n5,6,7,8\n");
+        }
+        server = new FakeSheetsServer(dataDir);
+        server.start(0);
+        sheets = new Sheets.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), request -> { })
+                .setRootUrl("http://localhost:" + server.getPort() + "/")
+                .setApplicationName("SheetsFetchGateTest")
+                .build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private ValueRange get() throws IOException {
+        return sheets.spreadsheets().values().get("test", RANGE).execute();
+    }
+
+    @Test
+    void concurrentFetchesOfOneRangeShareOneRequest() throws Exception {
+        SheetsFetchGate gate = new SheetsFetchGate(4, 1, 1, 1, 5, 1000);
+        server.setLatencyMillis(500);
+        int callers = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<ValueRange>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    go.await();
+                    return gate.fetch(RANGE, this::get);
+                }));
+            }
+            go.countDown();
+            ValueRange first = results.get(0).get();
+            for (Future<ValueRange> result : results) {
+                // Followers get the leader's very rows
+                assertSame(first, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, server.getRequestCount());
+
+        // Not a cache: the next fetch goes out again
+        gate.fetch(RANGE, this::get);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void quotaErrorsWaitForRetryAfter() throws Exception {
+        // A jitter backoff of at most 1 ms would use up every attempt inside the window
+        SheetsFetchGate gate = new SheetsFetchGate(4, 3, 1, 5000, 5, 1000);
+        server.setQuota(1, 1000);
+        gate.fetch(RANGE, this::get);
+
+        long start = System.nanoTime();
+        ValueRange rows = gate.fetch(RANGE, this::get);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, rows.getValues().size());
+        // One 429, then the retry once the window has passed
+        assertEquals(3, server.getRequestCount());
+        assertTrue(elapsedMillis >= 900, "retried after " + elapsedMillis + " ms");
+        assertEquals(SheetsFetchGate.CircuitState.CLOSED, gate.getState());
+    }
+
+    @Test
+    void quotaErrorsGiveUpAfterMaxAttempts() throws Exception {
+        SheetsFetchGate gate = new SheetsFetchGate(4, 2, 1, 1, 5, 1000);
+        server.setQuota(1, 60_000);
+        gate.fetch(RANGE, this::get);
+
+        HttpResponseException e = assertThrows(HttpResponseException.class, () -> gate.fetch(RANGE, this::get));
+        assertEquals(429, e.getStatusCode());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void breakerOpensLetsOneTrialThroughAndCloses() throws Exception {
+        SheetsFetchGate gate = new SheetsFetchGate(4, 1, 1, 1, 2, 300);
+        server.setErrorRate(1);
+
+        // Two failures in a row open the circuit
+        assertThrows(HttpResponseException.class, () -> gate.fetch(RANGE, this::get));
+        assertEquals(SheetsFetchGate.CircuitState.CLOSED, gate.getState());
+        assertThrows(HttpResponseException.class, () -> gate.fetch(RANGE, this::get));
+        assertEquals(SheetsFetchGate.CircuitState.OPEN, gate.getState());
+
+        // Open: calls fail at once, without reaching the server
+        IOException rejected = assertThrows(IOException.class, () -> gate.fetch(RANGE, this::get));
+        assertFalse(rejected instanceof HttpResponseException);
+        assertEquals(2, server.getRequestCount());
+
+        // A failed trial opens the circuit again
+        Thread.sleep(350);
+        assertThrows(HttpResponseException.class, () -> gate.fetch(RANGE, this::get));
+        assertEquals(SheetsFetchGate.CircuitState.OPEN, gate.getState());
+        assertEquals(3, server.getRequestCount());
+
+        // Half open: one slow trial is on the wire and other calls are still turned away
+        Thread.sleep(350);
+        server.setErrorRate(0);
+        server.setLatencyMillis(500);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<ValueRange> trial = pool.submit(() -> gate.fetch(RANGE, this::get));
+            while (gate.getState() != SheetsFetchGate.CircuitState.HALF_OPEN) {
+                Thread.sleep(5);
+            }
+            assertThrows(IOException.class, () -> gate.fetch("Attendance Record!A1:D3",
+                    () -> sheets.spreadsheets().values().get("test", "Attendance Record!A1:D3").execute()));
+
+            // Its success closes the circuit
+            assertEquals(3, trial.get().getValues().size());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(SheetsFetchGate.CircuitState.CLOSED, gate.getState());
+        assertEquals(4, server.getRequestCount());
+        gate.fetch(RANGE, this::get);
+        assertEquals(5, server.getRequestCount());
+    }
+}
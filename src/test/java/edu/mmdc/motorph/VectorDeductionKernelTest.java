@@ -0,0 +1,162 @@
+package edu.mmdc.motorph;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * VectorDeductionKernelTest: VectorDeductionKernel.compute gives exactly the amounts of
+ * DeductionKernel.computeScalar, over generated salaries and gross wages: bracket edges, amounts
+ * no bracket matches (below the first row, in a gap, negative taxable wages), every count up to a
+ * few vectors so the leftover lanes are covered, and the power-of-two formulas the kernel takes.
+ * Needs --add-modules jdk.incubator.vector, which the surefire configuration passes.
+ */
+class VectorDeductionKernelTest {
+    private static final int UNTOUCHED = -7;
+
+    // Every divisor a power of two, as the vector kernel requires
+    private static final DeductionFormula[] FORMULAS = {
+        DeductionFormula.STANDARD,
+        new DeductionFormula(DeductionService.PHILHEALTH_RATE_MICROS, 4, DeductionService.PAGIBIG_CAP_CENTAVOS, 2),
+        new DeductionFormula(Centavos.percentToMicros(5), 1, Centavos.fromPesos(200), 8),
+    };
+
+    @BeforeAll
+    static void vectorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "jdk.incubator.vector is not added");
+    }
+
+    // The sheets' layouts: SSS from 3,250 up in steps of 500, PhilHealth's three bracket types,
+    // Pag-IBIG from 1,000 (nothing matches below it) and the withholding tax brackets from 0
+    private static List<List<Object>> sssMatrix(boolean withGap) {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(List.of("0", "3,249.99", "135.00"));
+        for (int k = 0; k < 43; k++) {
+            // The gap leaves 10,250 to 10,749.99 without a row
+            if (withGap && k == 14) {
+                continue;
+            }
+            long lower = 3_250 + 500L * k;
+            rows.add(List.of(String.valueOf(lower), (lower + 499) + ".99", String.format(Locale.ROOT, "%.2f", 157.5 + 22.5 * k)));
+        }
+        rows.add(List.of("24,750", "", "1,125.00"));
+        return rows;
+    }
+
+    private static DeductionTables tables(boolean withGap, DeductionFormula formula) {
+        return new DeductionTables(
+                ContributionTable.compile(sssMatrix(withGap)),
+                ContributionTable.compile(List.of(
+                        List.<Object>of("0", "10,000", "3%", "300", "1"),
+                        List.<Object>of("10,000.01", "59,999.99", "3%", "", "2"),
+                        List.<Object>of("60,000", "", "3%", "1,800", "3"))),
+                ContributionTable.compile(List.of(
+                        List.<Object>of("1,000", "1,500", "1", "2"),
+                        List.<Object>of("1,500.01", "", "2", "2"))),
+                ContributionTable.compile(List.of(
+                        List.<Object>of("0", "20,832", "0", "0"),
+                        List.<Object>of("20,833", "33,332", "20", "0"),
+                        List.<Object>of("33,333", "66,666", "25", "2,500"),
+                        List.<Object>of("66,667", "166,666", "30", "10,833"),
+                        List.<Object>of("166,667", "666,666", "32", "40,833.33"),
+                        List.<Object>of("666,667", "", "35", "200,833.33"))),
+                formula);
+    }
+
+    // Salaries (centavos) around bracket edges, inside gaps, below every table, and anywhere up to 2M pesos
+    private static long salary(Random random) {
+        return switch (random.nextInt(6)) {
+            case 0 -> Centavos.fromPesos(random.nextInt(0, 200) * 250L) + random.nextInt(-2, 3);
+            case 1 -> Centavos.fromPesos(10_250) + random.nextLong(0, 50_000);
+            case 2 -> random.nextLong(0, Centavos.fromPesos(1_000));
+            case 3 -> Centavos.fromPesos(60_000) + random.nextInt(-2, 3);
+            default -> random.nextLong(0, Centavos.fromPesos(2_000_000));
+        };
+    }
+
+    // Weekly gross wages, including ones below the deductions (negative taxable wage) and zero
+    private static long weeklyGross(Random random, long monthlySalary) {
+        return switch (random.nextInt(4)) {
+            case 0 -> 0;
+            case 1 -> random.nextLong(0, Centavos.fromPesos(500));
+            default -> random.nextLong(0, Math.max(1, monthlySalary / 2));
+        };
+    }
+
+    private static void assertSameAsScalar(DeductionTables tables, long[] salaries, long[] gross, int count) {
+        int length = salaries.length;
+        long[][] vector = new long[4][length];
+        long[][] scalar = new long[4][length];
+        for (int k = 0; k < 4; k++) {
+            Arrays.fill(vector[k], UNTOUCHED);
+            Arrays.fill(scalar[k], UNTOUCHED);
+        }
+        VectorDeductionKernel.compute(tables, salaries, gross, vector[0], vector[1], vector[2], vector[3], count);
+        DeductionKernel.computeScalar(tables, salaries, gross, scalar[0], scalar[1], scalar[2], scalar[3], 0, count);
+        String[] names = {"SSS", "PhilHealth", "Pag-IBIG", "tax"};
+        for (int k = 0; k < 4; k++) {
+            // Also checks that nothing past count was written
+            assertArrayEquals(scalar[k], vector[k], names[k] + " with " + count + " employees");
+        }
+    }
+
+    @Test
+    void matchesScalarOnGeneratedInputs() {
+        Random random = new Random(20240603);
+        for (DeductionFormula formula : FORMULAS) {
+            for (boolean withGap : new boolean[] {false, true}) {
+                DeductionTables tables = tables(withGap, formula);
+                int count = 20_011;
+                long[] salaries = new long[count];
+                long[] gross = new long[count];
+                for (int i = 0; i < count; i++) {
+                    salaries[i] = salary(random);
+                    gross[i] = weeklyGross(random, salaries[i]);
+                }
+                assertSameAsScalar(tables, salaries, gross, count);
+            }
+        }
+    }
+
+    @Test
+    void matchesScalarForEveryTailLength() {
+        Random random = new Random(7);
+        int lanes = VectorDeductionKernel.lanes();
+        DeductionTables tables = tables(true, DeductionFormula.STANDARD);
+        for (int count = 0; count <= 3 * lanes + 1; count++) {
+            // Longer arrays than count, so lanes past the end would show
+            long[] salaries = new long[count + lanes];
+            long[] gross = new long[count + lanes];
+            for (int i = 0; i < salaries.length; i++) {
+                salaries[i] = salary(random);
+                gross[i] = weeklyGross(random, salaries[i]);
+            }
+            assertSameAsScalar(tables, salaries, gross, count);
+        }
+    }
+
+    @Test
+    void negativeTaxableWagesMatchNoBracket() {
+        DeductionTables tables = tables(false, DeductionFormula.STANDARD);
+        int count = 2 * VectorDeductionKernel.lanes() + 3;
+        long[] salaries = new long[count];
+        long[] gross = new long[count];
+        Arrays.fill(salaries, Centavos.fromPesos(90_000));
+        long[][] out = new long[4][count];
+        VectorDeductionKernel.compute(tables, salaries, gross, out[0], out[1], out[2], out[3], count);
+        for (int i = 0; i < count; i++) {
+            // Gross 0 leaves the taxable wage below zero, under the first tax bracket
+            assertEquals(0, out[3][i]);
+        }
+        assertSameAsScalar(tables, salaries, gross, count);
+    }
+}